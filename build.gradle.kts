@@ -19,12 +19,14 @@ val assertjVersion="3.16.1"
 val mongoVersion="4.0.4"
 val picocliVersion="4.3.2"
 val reactorVersion="3.3.6.RELEASE"
+val hdrHistogramVersion="2.1.12"
 
 dependencies {
 //    implementation(kotlin("stdlib-jdk8"))
     implementation("org.mongodb:mongodb-driver-reactivestreams:$mongoVersion")
     implementation("info.picocli:picocli:$picocliVersion")
     implementation("io.projectreactor:reactor-core:$reactorVersion")
+    implementation("org.hdrhistogram:HdrHistogram:$hdrHistogramVersion")
     annotationProcessor("info.picocli:picocli-codegen:$picocliVersion")
     implementation(platform("org.apache.logging.log4j:log4j-bom:$log4Version"))
     implementation("org.apache.logging.log4j:log4j-core")
@@ -7,6 +7,7 @@ import picocli.CommandLine.HelpCommand;
 import uk.dioxic.grib.cli.command.FakeCommand;
 import uk.dioxic.grib.cli.command.GeneratorCommand;
 import uk.dioxic.grib.cli.command.LoadCommand;
+import uk.dioxic.grib.cli.command.MatrixCommand;
 import uk.dioxic.grib.cli.command.QueryCommand;
 import uk.dioxic.grib.cli.converter.PolygonConverter;
 import uk.dioxic.grib.cli.mixin.FormattingMixin;
@@ -21,6 +22,7 @@ import static picocli.CommandLine.Mixin;
         subcommands = {
                 HelpCommand.class,
                 LoadCommand.class,
+                MatrixCommand.class,
                 GeneratorCommand.class,
                 QueryCommand.class,
                 FakeCommand.class
@@ -6,6 +6,9 @@ import picocli.CommandLine.Model.CommandSpec;
 import uk.dioxic.grib.cli.mixin.FormattingMixin;
 import uk.dioxic.grib.cli.mixin.GeneratorMixin;
 import uk.dioxic.grib.csv.GribRecordCsv;
+import uk.dioxic.grib.dump.BinaryDumpWriter;
+import uk.dioxic.grib.dump.DumpHeader;
+import uk.dioxic.grib.generator.ForecastGenerator;
 
 import java.io.IOException;
 import java.io.PrintWriter;
@@ -46,7 +49,7 @@ public class GeneratorCommand implements Runnable {
     }
 
     @Command(name = "dump",
-            description = "dumps generated GRIB records to a CSV file")
+            description = "dumps generated GRIB records to a CSV or binary file")
     static class DumpCommand implements Callable<Integer> {
 
         @Mixin
@@ -61,18 +64,26 @@ public class GeneratorCommand implements Runnable {
                 paramLabel = "arg")
         private Path file;
 
+        @Option(names = {"--format"},
+                description = "output format, one of ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+                defaultValue = "CSV",
+                paramLabel = "arg")
+        private DumpFormat format;
+
         @Override
         public Integer call() {
-            GribRecordCsv csv = new GribRecordCsv();
+            ForecastGenerator generator = parent.generatorMixin.getGenerator();
             System.out.println("Dumping records to " + file.getFileName().toString());
 
-            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
-                parent.generatorMixin.getGenerator().generate()
-                        .doOnSubscribe(sub -> writer.println(csv.getHeader(Collections.emptyList())))
-                        .map(csv::getLine)
-                        .doOnNext(writer::println)
-                        .blockLast();
-
+            try {
+                switch (format) {
+                    case CSV:
+                        dumpCsv(generator);
+                        break;
+                    case BINARY:
+                        dumpBinary(generator);
+                        break;
+                }
             } catch (IOException e) {
                 throw new RuntimeException(e);
             }
@@ -81,5 +92,30 @@ public class GeneratorCommand implements Runnable {
 
             return 0;
         }
+
+        private void dumpCsv(ForecastGenerator generator) throws IOException {
+            GribRecordCsv csv = new GribRecordCsv();
+
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+                generator.generate()
+                        .doOnSubscribe(sub -> writer.println(csv.getHeader(Collections.emptyList())))
+                        .map(csv::getLine)
+                        .doOnNext(writer::println)
+                        .blockLast();
+            }
+        }
+
+        private void dumpBinary(ForecastGenerator generator) throws IOException {
+            try (BinaryDumpWriter writer = new BinaryDumpWriter(file, DumpHeader.of(generator))) {
+                generator.generate()
+                        .doOnNext(writer::write)
+                        .blockLast();
+            }
+        }
+    }
+
+    enum DumpFormat {
+        CSV,
+        BINARY
     }
 }
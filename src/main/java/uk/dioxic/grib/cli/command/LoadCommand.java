@@ -1,17 +1,35 @@
 package uk.dioxic.grib.cli.command;
 
 import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.bson.json.JsonWriterSettings;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.HelpCommand;
 import picocli.CommandLine.Mixin;
+import picocli.CommandLine.ParameterException;
 import picocli.CommandLine.Model.CommandSpec;
 import picocli.CommandLine.Spec;
 import reactor.core.publisher.Mono;
 import uk.dioxic.grib.cli.mixin.*;
+import uk.dioxic.grib.generator.ForecastGenerator;
+import uk.dioxic.grib.loader.CollectionStats;
+import uk.dioxic.grib.loader.LoadResult;
 import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.ShardLayout;
+import uk.dioxic.grib.loader.ShardPreSplitter;
+import uk.dioxic.grib.loader.Sink;
+import uk.dioxic.grib.loader.StripedWriteTarget;
+import uk.dioxic.grib.loader.WriteModelEncoder;
+import uk.dioxic.grib.loader.WriteTarget;
 import uk.dioxic.grib.model.GribRecord;
 import uk.dioxic.grib.schema.Schema;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
 @Command(name = "load",
         description = "loads GRIB records into MongoDB using various schema models",
         subcommands = {HelpCommand.class})
@@ -37,30 +55,147 @@ public class LoadCommand implements Runnable, SchemaCommand {
 
     @Override
     public <MODEL> void run(Schema<MODEL, GribRecord> schema) {
+        if (dataLoadMixin.isIdempotentUpdates()) {
+            schema = schema.idempotentUpdates();
+        }
+        if (dataLoadMixin.isResume() && dataLoadMixin.getCheckpointFile() == null) {
+            throw new ParameterException(spec.commandLine(), "--resume requires a --checkpoint-file");
+        }
+        if (dataLoadMixin.isResume() && dataLoadMixin.isDrop()) {
+            throw new ParameterException(spec.commandLine(), "--drop cannot be used with --resume");
+        }
+        if (dataLoadMixin.getCheckpointFile() != null && (dataLoadMixin.getTargetRate() > 0
+                || dataLoadMixin.getLiveCyclePeriod() != null || dataLoadMixin.isAdaptive())) {
+            throw new ParameterException(spec.commandLine(),
+                    "--checkpoint-file cannot be used with --target-rate, --live-cycle-period or --adaptive");
+        }
+        if (dataLoadMixin.isSharded() && dataLoadMixin.getCheckpointFile() != null) {
+            throw new ParameterException(spec.commandLine(), "--sharded cannot be used with --checkpoint-file");
+        }
+        if (dataLoadMixin.isSharded() && schema.shardKey() == null) {
+            throw new ParameterException(spec.commandLine(), "--sharded is not supported by " + schema.getClass().getSimpleName());
+        }
+        boolean toMongo = dataLoadMixin.getSink() == Sink.MONGODB;
+        if (!toMongo && (dataLoadMixin.isSharded() || dataLoadMixin.isResume() || mongoMixin.getClientCount() > 1
+                || mongoMixin.getMongosHosts() != null)) {
+            throw new ParameterException(spec.commandLine(),
+                    "--sink " + dataLoadMixin.getSink() + " cannot be used with --sharded, --resume, --clients or --mongos-hosts");
+        }
 
         long start = System.currentTimeMillis();
 
         mongoMixin.addCodecRegistry(schema.codecRegistry());
         MongoCollection<MODEL> collection = mongoMixin.getCollection(schema.getModelClass());
+        ForecastGenerator generator = generatorMixin.getGenerator();
+
+        // a schema that cannot delete a run of records cannot clean up incomplete segments before they are reloaded
+        if (dataLoadMixin.isResume()) {
+            GribRecord first = generator.generate().blockFirst();
+            if (first != null && schema.rangeFilter(first, null) == null) {
+                throw new ParameterException(spec.commandLine(), "--resume is not supported by " + schema.getClass().getSimpleName());
+            }
+        }
+
+        if (toMongo && dataLoadMixin.isDrop()) {
+            Mono.from(collection.drop()).block();
+        }
+        if (toMongo) {
+            schema.prepare(mongoMixin.getDatabase(), mongoMixin.getCollectionName()).block();
+        }
+
+        ShardLayout shardLayout = dataLoadMixin.isSharded()
+                ? ShardPreSplitter.<GribRecord>builder()
+                        .client(mongoMixin.getClient())
+                        .namespace(collection.getNamespace())
+                        .shardKey(schema.shardKey())
+                        .chunksPerShard(dataLoadMixin.getChunksPerShard())
+                        .build()
+                        .preSplit(generator)
+                        .block()
+                : null;
+
+        if (toMongo) {
+            schema.indexModel(collection).block();
+        }
+
+        WriteModelEncoder<MODEL> encoder = dataLoadMixin.isPreEncode() || dataLoadMixin.getMaxInflightBytes() > 0
+                ? new WriteModelEncoder<>(collection)
+                : null;
+
+        WriteTarget<MODEL> writeTarget = dataLoadMixin.getSink().target(collection.getCodecRegistry());
+        List<MongoCollection<MODEL>> collections = toMongo
+                ? mongoMixin.getCollections(schema.getModelClass())
+                : List.of(collection);
+        if (collections.size() > 1) {
+            List<WriteTarget<MODEL>> targets = new ArrayList<>();
+            for (MongoCollection<MODEL> clientCollection : collections) {
+                targets.add((encoder != null ? WriteModelEncoder.raw(clientCollection) : clientCollection)::bulkWrite);
+            }
+            writeTarget = new StripedWriteTarget<>(mongoMixin.getClientNames(), targets, dataLoadMixin.getClientSelection());
+        }
 
         LoadRunner<MODEL, GribRecord> loadRunner = LoadRunner.<MODEL, GribRecord>builder()
-                .generator(generatorMixin.getGenerator())
+                .generator(generator)
                 .batchSize(dataLoadMixin.getBatchSize())
                 .collection(collection)
                 .schema(schema)
                 .concurrency(dataLoadMixin.getConcurrency())
+                .partitions(dataLoadMixin.getPartitions())
+                .ordered(dataLoadMixin.isOrdered())
+                .frames(dataLoadMixin.isFrames())
+                .transformThreads(dataLoadMixin.getTransformThreads())
+                .encoder(encoder)
+                .writeTarget(writeTarget)
+                .maxInflightBytes(dataLoadMixin.getMaxInflightBytes())
+                .maxBatchBytes(dataLoadMixin.getMaxBatchBytes())
+                .maxRetries(dataLoadMixin.getMaxRetries())
+                .retryBackoff(dataLoadMixin.getRetryBackoff())
+                .maxRetryBackoff(dataLoadMixin.getMaxRetryBackoff())
+                .ignoreDuplicates(dataLoadMixin.isIgnoreDuplicates())
+                .targetRate(dataLoadMixin.getTargetRate())
+                .rateUnit(dataLoadMixin.getRateUnit())
+                .liveCyclePeriod(dataLoadMixin.getLiveCyclePeriod())
+                .flushInterval(dataLoadMixin.getFlushInterval())
+                .adaptive(dataLoadMixin.isAdaptive())
+                .maxConcurrency(dataLoadMixin.getMaxConcurrency())
+                .latencyCeiling(dataLoadMixin.getLatencyCeiling())
+                .histogramLog(dataLoadMixin.getHistogramLog())
+                .checkpointFile(dataLoadMixin.getCheckpointFile())
+                .resume(dataLoadMixin.isResume())
+                .checkpointSegments(dataLoadMixin.getCheckpointSegments())
+                .checkpointInterval(dataLoadMixin.getCheckpointInterval())
+                .shardLayout(shardLayout)
+                .shardConcurrency(dataLoadMixin.getShardConcurrency())
                 .build();
 
-        if (dataLoadMixin.isDrop()) {
-            Mono.from(collection.drop()).block();
-        }
-
-        schema.indexModel(collection).block();
-
-        loadRunner.load().block();
+        LoadResult result = loadRunner.run().block();
 
         long time = (System.currentTimeMillis() - start) / 1000;
-        System.out.println("Loaded " + generatorMixin.getGenerator().recordCount() + " grib records in " + time + "s");
+        System.out.println("Loaded " + generator.recordCount() + " grib records in " + time + "s");
+
+        Document report = new Document("schema", schemaMixin.getSchemaName())
+                .append("sink", dataLoadMixin.getSink().name())
+                .append("load", result.toDocument());
+
+        if (toMongo) {
+            CollectionStats.checkpoint(mongoMixin.getDatabase("admin")).block();
+            CollectionStats stats = CollectionStats.of(mongoMixin.getDatabase(), mongoMixin.getCollectionName()).block();
+            System.out.println(String.format("Storage %dMB (%.1fx compressed), indexes %dMB, %.2f bytes per value on disk, %.2f with indexes",
+                    stats.getStorageSize() >> 20,
+                    stats.getCompressionRatio(),
+                    stats.getTotalIndexSize() >> 20,
+                    (double) stats.getStorageSize() / Math.max(1, generator.recordCount()),
+                    (double) (stats.getStorageSize() + stats.getTotalIndexSize()) / Math.max(1, generator.recordCount())));
+            report.append("storage", stats.toDocument(generator.recordCount()));
+        }
+
+        if (dataLoadMixin.getReport() != null) {
+            try {
+                Files.writeString(dataLoadMixin.getReport(), report.toJson(JsonWriterSettings.builder().indent(true).build()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
     }
 
     @Override
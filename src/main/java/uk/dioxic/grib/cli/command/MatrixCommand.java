@@ -0,0 +1,272 @@
+package uk.dioxic.grib.cli.command;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.WriteConcern;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import lombok.Value;
+import org.bson.Document;
+import org.bson.json.JsonWriterSettings;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.HelpCommand;
+import picocli.CommandLine.Mixin;
+import picocli.CommandLine.Model.CommandSpec;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.ParameterException;
+import picocli.CommandLine.Spec;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.cli.mixin.FormattingMixin;
+import uk.dioxic.grib.cli.mixin.GeneratorMixin;
+import uk.dioxic.grib.cli.mixin.MongoMixin;
+import uk.dioxic.grib.generator.ForecastGenerator;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.loader.CollectionStats;
+import uk.dioxic.grib.loader.LoadResult;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.schema.Schema;
+import uk.dioxic.grib.schema.SchemaCandidates;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Loads the same generated records once for every combination of schema, batch size, concurrency and write concern.
+ * <p>
+ * Each run drops and re-indexes the collection first and is preceded by a warmup load of a slice of the records into
+ * a scratch collection, so no run benefits from the JIT or server caches warmed by the one before. The collection of
+ * the last run is left in place.
+ * </p>
+ */
+@Command(name = "matrix",
+        description = "loads the same GRIB records under every combination of schema, batch size, concurrency and write concern",
+        subcommands = {HelpCommand.class})
+public class MatrixCommand implements Runnable, SchemaCommand {
+
+    public enum ReportFormat {CSV, JSON}
+
+    private static final String[] COLUMNS = {"schema", "batchSize", "concurrency", "writeConcern", "operations",
+            "records", "seconds", "ops/s", "records/s", "p50", "p90", "p99", "p99.9", "max", "documents",
+            "storageSize", "indexSize", "bytesPerValue"};
+
+    @Spec
+    CommandSpec spec;
+
+    @Mixin
+    FormattingMixin formattingMixin;
+
+    @Mixin
+    GeneratorMixin generatorMixin;
+
+    @Mixin
+    MongoMixin mongoMixin;
+
+    @Option(names = {"--schemas"},
+            description = "schema models to compare, any of ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+            defaultValue = "SIMPLE_BUCKET",
+            split = ",",
+            paramLabel = "arg")
+    private List<SchemaCandidates> schemas;
+
+    @Option(names = {"--batch-sizes"},
+            description = "insert batch sizes to compare (default: ${DEFAULT-VALUE})",
+            defaultValue = "1000",
+            split = ",",
+            paramLabel = "arg")
+    private List<Integer> batchSizes;
+
+    @Option(names = {"--concurrency-levels"},
+            description = "concurrency levels to compare (default: ${DEFAULT-VALUE})",
+            defaultValue = "4",
+            split = ",",
+            paramLabel = "arg")
+    private List<Integer> concurrencyLevels;
+
+    @Option(names = {"--write-concerns"},
+            description = "write concerns to compare, e.g. W1,MAJORITY,JOURNALED,UNACKNOWLEDGED (default: ${DEFAULT-VALUE})",
+            defaultValue = "MAJORITY",
+            split = ",",
+            paramLabel = "arg")
+    private List<String> writeConcerns;
+
+    @Option(names = {"--warmup"},
+            description = "warm up before each run by loading 1/arg of the records into a scratch collection, 0 for none (default: ${DEFAULT-VALUE})",
+            defaultValue = "10",
+            paramLabel = "arg")
+    private int warmup;
+
+    @Option(names = {"--report"},
+            description = "file to write the results of every run to",
+            paramLabel = "arg")
+    private Path report;
+
+    @Option(names = {"--report-format"},
+            description = "format of the report file, one of ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+            defaultValue = "CSV",
+            paramLabel = "arg")
+    private ReportFormat reportFormat;
+
+    private final List<Run> runs = new ArrayList<>();
+
+    @Override
+    public void run() {
+        for (String writeConcern : writeConcerns) {
+            if (WriteConcern.valueOf(writeConcern) == null) {
+                throw new ParameterException(spec.commandLine(), "unknown write concern " + writeConcern);
+            }
+        }
+
+        schemas.forEach(candidate -> candidate.getSchema().visit(this));
+
+        List<Run> ranked = runs.stream()
+                .sorted(Comparator.comparingDouble((Run run) -> run.getResult().getParameterRate()).reversed())
+                .collect(Collectors.toList());
+
+        System.out.println();
+        System.out.println(String.format("%-4s %-18s %8s %11s %-14s %12s %12s %9s %9s %12s %12s",
+                "rank", "schema", "batch", "concurrency", "write concern", "records/s", "ops/s", "p50 (ms)",
+                "p99 (ms)", "storage (MB)", "index (MB)"));
+        for (int i = 0; i < ranked.size(); i++) {
+            Run run = ranked.get(i);
+            System.out.println(String.format("%-4d %-18s %8d %11d %-14s %12.0f %12.0f %9.1f %9.1f %12d %12d",
+                    i + 1, run.getSchema(), run.getBatchSize(), run.getConcurrency(), run.getWriteConcern(),
+                    run.getResult().getParameterRate(), run.getResult().getOperationRate(),
+                    run.getResult().latencyAt(50), run.getResult().latencyAt(99),
+                    run.getStats().getStorageSize() >> 20, run.getStats().getTotalIndexSize() >> 20));
+        }
+
+        if (report != null) {
+            writeReport(ranked);
+        }
+    }
+
+    @Override
+    public <MODEL> void run(Schema<MODEL, GribRecord> schema) {
+        String name = schemas.stream()
+                .filter(candidate -> candidate.getSchema() == schema)
+                .findFirst()
+                .map(Enum::name)
+                .orElse(schema.getClass().getSimpleName());
+        ForecastGenerator generator = generatorMixin.getGenerator();
+
+        MongoCollection<MODEL> collection = mongoMixin.getCollection(schema.getModelClass())
+                .withCodecRegistry(fromRegistries(schema.codecRegistry(), MongoClientSettings.getDefaultCodecRegistry()));
+        MongoCollection<MODEL> warmupCollection = mongoMixin.getDatabase()
+                .getCollection(mongoMixin.getCollectionName() + "_warmup", schema.getModelClass())
+                .withCodecRegistry(collection.getCodecRegistry());
+
+        for (String writeConcern : writeConcerns) {
+            for (int batchSize : batchSizes) {
+                for (int concurrency : concurrencyLevels) {
+                    System.out.println(String.format("running %s with batch size %d, concurrency %d and write concern %s",
+                            name, batchSize, concurrency, writeConcern));
+
+                    if (warmup > 0) {
+                        fresh(warmupCollection, schema);
+                        load(warmupCollection.withWriteConcern(WriteConcern.valueOf(writeConcern)), schema,
+                                generator.split(warmup).get(0), batchSize, concurrency);
+                        Mono.from(warmupCollection.drop()).block();
+                    }
+
+                    fresh(collection, schema);
+                    LoadResult result = load(collection.withWriteConcern(WriteConcern.valueOf(writeConcern)), schema,
+                            generator, batchSize, concurrency);
+                    CollectionStats.checkpoint(mongoMixin.getDatabase("admin")).block();
+                    CollectionStats stats = CollectionStats.of(mongoMixin.getDatabase(), mongoMixin.getCollectionName())
+                            .block();
+
+                    runs.add(new Run(name, batchSize, concurrency, writeConcern.toUpperCase(), result, stats));
+                }
+            }
+        }
+    }
+
+    private <MODEL> void fresh(MongoCollection<MODEL> collection, Schema<MODEL, GribRecord> schema) {
+        Mono.from(collection.drop()).block();
+        schema.prepare(mongoMixin.getDatabase(), collection.getNamespace().getCollectionName()).block();
+        schema.indexModel(collection).block();
+    }
+
+    private <MODEL> LoadResult load(MongoCollection<MODEL> collection, Schema<MODEL, GribRecord> schema,
+                                    Generator<GribRecord> generator, int batchSize, int concurrency) {
+        return LoadRunner.<MODEL, GribRecord>builder()
+                .generator(generator)
+                .collection(collection)
+                .schema(schema)
+                .batchSize(batchSize)
+                .concurrency(concurrency)
+                .build()
+                .run()
+                .block();
+    }
+
+    private void writeReport(List<Run> ranked) {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(report))) {
+            if (reportFormat == ReportFormat.CSV) {
+                writer.println(String.join(",", COLUMNS));
+                for (Run run : ranked) {
+                    writer.println(run.values().stream().map(String::valueOf).collect(Collectors.joining(",")));
+                }
+            } else {
+                writer.println(ranked.stream()
+                        .map(run -> run.toDocument().toJson(JsonWriterSettings.builder().indent(true).build()))
+                        .collect(Collectors.joining(",\n", "[\n", "\n]")));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        System.out.println("Wrote " + ranked.size() + " runs to " + report);
+    }
+
+    @Value
+    private static class Run {
+        String schema;
+        int batchSize;
+        int concurrency;
+        String writeConcern;
+        LoadResult result;
+        CollectionStats stats;
+
+        /**
+         * Report values in {@link #COLUMNS} order, with rates and latencies rounded to 0.1.
+         */
+        List<Object> values() {
+            return List.of(schema, batchSize, concurrency, writeConcern,
+                    result.getOperationCount(),
+                    result.getParameterCount(),
+                    round(result.getElapsedNanos() / 1e9),
+                    round(result.getOperationRate()),
+                    round(result.getParameterRate()),
+                    round(result.latencyAt(50)),
+                    round(result.latencyAt(90)),
+                    round(result.latencyAt(99)),
+                    round(result.latencyAt(99.9)),
+                    round(result.getMaxLatency()),
+                    stats.getCount(),
+                    stats.getStorageSize(),
+                    stats.getTotalIndexSize(),
+                    round((double) (stats.getStorageSize() + stats.getTotalIndexSize()) / Math.max(1, result.getParameterCount())));
+        }
+
+        Document toDocument() {
+            Document document = new Document();
+            List<Object> values = values();
+            for (int i = 0; i < COLUMNS.length; i++) {
+                document.append(COLUMNS[i], values.get(i));
+            }
+            return document;
+        }
+
+        private static double round(double value) {
+            return Math.round(value * 10) / 10.0;
+        }
+    }
+}
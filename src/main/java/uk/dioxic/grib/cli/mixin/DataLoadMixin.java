@@ -2,6 +2,12 @@ package uk.dioxic.grib.cli.mixin;
 
 import lombok.Getter;
 import picocli.CommandLine.Option;
+import uk.dioxic.grib.loader.RateUnit;
+import uk.dioxic.grib.loader.Sink;
+import uk.dioxic.grib.loader.StripedWriteTarget;
+
+import java.nio.file.Path;
+import java.time.Duration;
 
 @Getter
 public class DataLoadMixin {
@@ -21,4 +27,172 @@ public class DataLoadMixin {
             defaultValue = "4",
             paramLabel = "arg")
     private int concurrency;
+
+    @Option(names = {"--partitions"},
+            description = "number of generator partitions generated concurrently (default: ${DEFAULT-VALUE})",
+            defaultValue = "1",
+            paramLabel = "arg")
+    private int partitions;
+
+    @Option(names = {"--ordered"},
+            description = "merge generator partitions in generation order (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean ordered;
+
+    @Option(names = {"--frames"},
+            description = "generate columnar frames instead of GRIB records, only the simple and timestamp bucket schemas support it (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean frames;
+
+    @Option(names = {"--transform-threads"},
+            description = "threads transforming records into write models, 0 to transform on the generator threads (default: ${DEFAULT-VALUE})",
+            defaultValue = "0",
+            paramLabel = "arg")
+    private int transformThreads;
+
+    @Option(names = {"--pre-encode"},
+            description = "encode documents to raw BSON on the generator or transform threads instead of the driver threads (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean preEncode;
+
+    @Option(names = {"--target-rate"},
+            description = "open-loop target rate per second, 0 to write as fast as possible (default: ${DEFAULT-VALUE})",
+            defaultValue = "0",
+            paramLabel = "arg")
+    private double targetRate;
+
+    @Option(names = {"--rate-unit"},
+            description = "unit of the target rate, one of ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+            defaultValue = "OPERATIONS",
+            paramLabel = "arg")
+    private RateUnit rateUnit;
+
+    @Option(names = {"--live-cycle-period"},
+            description = "simulate live ingest, releasing one forecast cycle per period e.g. PT30S (default: backfill)",
+            paramLabel = "arg")
+    private Duration liveCyclePeriod;
+
+    @Option(names = {"--flush-interval"},
+            description = "longest a partial batch waits before it is written in live mode (default: ${DEFAULT-VALUE})",
+            defaultValue = "PT1S",
+            paramLabel = "arg")
+    private Duration flushInterval;
+
+    @Option(names = {"--adaptive"},
+            description = "adapt batch size and concurrency to maximise throughput under the latency ceiling (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean adaptive;
+
+    @Option(names = {"--max-concurrency"},
+            description = "upper bound on concurrency in adaptive mode (default: ${DEFAULT-VALUE})",
+            defaultValue = "64",
+            paramLabel = "arg")
+    private int maxConcurrency;
+
+    @Option(names = {"--latency-ceiling"},
+            description = "average batch latency the adaptive mode must stay under (default: ${DEFAULT-VALUE})",
+            defaultValue = "PT0.2S",
+            paramLabel = "arg")
+    private Duration latencyCeiling;
+
+    @Option(names = {"--max-inflight-bytes"},
+            description = "budget of encoded BSON bytes in flight, 0 for no limit, implies --pre-encode (default: ${DEFAULT-VALUE})",
+            defaultValue = "0",
+            paramLabel = "arg")
+    private long maxInflightBytes;
+
+    @Option(names = {"--max-batch-bytes"},
+            description = "encoded BSON bytes at which a pre-encoded batch closes before reaching the batch size (default: ${DEFAULT-VALUE})",
+            defaultValue = "16777216",
+            paramLabel = "arg")
+    private long maxBatchBytes;
+
+    @Option(names = {"--sink"},
+            description = "where to write, one of ${COMPLETION-CANDIDATES}, the others measuring the loader without a server (default: ${DEFAULT-VALUE})",
+            defaultValue = "MONGODB",
+            paramLabel = "arg")
+    private Sink sink;
+
+    @Option(names = {"--client-selection"},
+            description = "how batches are spread over multiple clients, one of ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+            defaultValue = "ROUND_ROBIN",
+            paramLabel = "arg")
+    private StripedWriteTarget.Selection clientSelection;
+
+    @Option(names = {"--max-retries"},
+            description = "times a failed operation is re-submitted before the load fails (default: ${DEFAULT-VALUE})",
+            defaultValue = "5",
+            paramLabel = "arg")
+    private int maxRetries;
+
+    @Option(names = {"--retry-backoff"},
+            description = "backoff before the first retry, doubling on every further retry (default: ${DEFAULT-VALUE})",
+            defaultValue = "PT0.1S",
+            paramLabel = "arg")
+    private Duration retryBackoff;
+
+    @Option(names = {"--max-retry-backoff"},
+            description = "upper bound on the backoff between retries (default: ${DEFAULT-VALUE})",
+            defaultValue = "PT5S",
+            paramLabel = "arg")
+    private Duration maxRetryBackoff;
+
+    @Option(names = {"--idempotent-updates"},
+            description = "write bucket updates with $addToSet rather than $push so a batch lost with its connection can be replayed (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean idempotentUpdates;
+
+    @Option(names = {"--ignore-duplicates"},
+            description = "treat duplicate key errors as written, for idempotent reloads (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean ignoreDuplicates;
+
+    @Option(names = {"--checkpoint-file"},
+            description = "file to checkpoint load progress to, so an interrupted backfill can be resumed",
+            paramLabel = "arg")
+    private Path checkpointFile;
+
+    @Option(names = {"--resume"},
+            description = "resume from the checkpoint file, skipping segments that are already written (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean resume;
+
+    @Option(names = {"--checkpoint-segments"},
+            description = "number of segments the generator is split into for checkpointing (default: ${DEFAULT-VALUE})",
+            defaultValue = "1000",
+            paramLabel = "arg")
+    private int checkpointSegments;
+
+    @Option(names = {"--checkpoint-interval"},
+            description = "how often the checkpoint file is saved (default: ${DEFAULT-VALUE})",
+            defaultValue = "PT10S",
+            paramLabel = "arg")
+    private Duration checkpointInterval;
+
+    @Option(names = {"--sharded"},
+            description = "shard and pre-split the collection, routing writes by shard (default: ${DEFAULT-VALUE})",
+            defaultValue = "false")
+    private boolean sharded;
+
+    @Option(names = {"--chunks-per-shard"},
+            description = "chunks per shard when pre-splitting a sharded collection (default: ${DEFAULT-VALUE})",
+            defaultValue = "4",
+            paramLabel = "arg")
+    private int chunksPerShard;
+
+    @Option(names = {"--shard-concurrency"},
+            description = "writes in flight per shard in sharded mode (default: ${DEFAULT-VALUE})",
+            defaultValue = "4",
+            paramLabel = "arg")
+    private int shardConcurrency;
+
+    @Option(names = {"--report"},
+            description = "JSON file to write the throughput, latency and storage footprint of the load to",
+            paramLabel = "arg")
+    private Path report;
+
+    @Option(names = {"--histogram-log"},
+            description = "file to write HDR latency histograms to for every metrics interval",
+            paramLabel = "arg")
+    private Path histogramLog;
 }
@@ -3,10 +3,18 @@ package uk.dioxic.grib.cli.mixin;
 import lombok.Getter;
 import picocli.CommandLine.ArgGroup;
 import picocli.CommandLine.Option;
+import uk.dioxic.grib.generator.ForecastGenerator;
+import uk.dioxic.grib.generator.Grib2FileGenerator;
 import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.generator.ReplayGenerator;
+import uk.dioxic.grib.generator.ValueModelCandidates;
+import uk.dioxic.grib.model.GeoGrid;
 import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.RegularGrid;
 
+import java.nio.file.Path;
 import java.time.LocalDate;
+import java.util.List;
 
 public class GeneratorMixin {
 
@@ -51,6 +59,29 @@ public class GeneratorMixin {
                 paramLabel = "arg")
         private Grid grid;
 
+        @Option(names = {"--grid-resolution"},
+                description = "grid resolution in degrees, overriding that of the grid (default: 0.25)",
+                paramLabel = "arg")
+        private Double gridResolution;
+
+        @Option(names = {"--grid-bounds"},
+                description = "custom grid bounds as minLongitude,maxLongitude,minLatitude,maxLatitude, overriding the grid",
+                split = ",",
+                paramLabel = "arg")
+        private double[] gridBounds;
+
+        @Option(names = {"--seed"},
+                description = "random seed, generated values are a function of the seed and their coordinates (default: ${DEFAULT-VALUE})",
+                defaultValue = "0",
+                paramLabel = "arg")
+        private Long seed;
+
+        @Option(names = {"--values"},
+                description = "value model, one of ${COMPLETION-CANDIDATES} (default: ${DEFAULT-VALUE})",
+                defaultValue = "UNIFORM",
+                paramLabel = "arg")
+        private ValueModelCandidates values;
+
         @Option(names = {"--start-date"},
                 description = "forecast start date (default: ${DEFAULT-VALUE})",
                 defaultValue = "2020-01-01",
@@ -63,19 +94,57 @@ public class GeneratorMixin {
                 paramLabel = "arg")
         private LocalDate endDate;
 
+        @Option(names = {"--grib-files"},
+                description = "GRIB2 files to read records from instead of generating them",
+                split = ",",
+                paramLabel = "arg")
+        private List<Path> gribFiles;
+
+        @Option(names = {"--replay"},
+                description = "binary dump file to replay records from instead of generating them",
+                paramLabel = "arg")
+        private Path replay;
+
     }
 
-    public GribGenerator getGenerator() {
+    public ForecastGenerator getGenerator() {
+        if (gribOptions.replay != null) {
+            return ReplayGenerator.builder()
+                    .file(gribOptions.replay)
+                    .build();
+        }
+        if (gribOptions.gribFiles != null && !gribOptions.gribFiles.isEmpty()) {
+            return Grib2FileGenerator.builder()
+                    .files(gribOptions.gribFiles)
+                    .build();
+        }
         return GribGenerator.builder()
                 .horizonDays(gribOptions.horizon)
                 .resolutionHours(gribOptions.resolution)
                 .intervalHours(gribOptions.interval)
                 .parameters(gribOptions.parameters)
+                .seed(gribOptions.seed)
+                .valueModel(gribOptions.values)
                 .endDate(gribOptions.endDate.atStartOfDay())
 //                .forecasts(gribOptions.forecasts)
-                .grid(gribOptions.grid)
+                .grid(getGrid())
                 .startDate(gribOptions.startDate.atStartOfDay())
                 .build();
     }
 
+    private GeoGrid getGrid() {
+        if (gribOptions.gridBounds != null) {
+            if (gribOptions.gridBounds.length != 4) {
+                throw new IllegalArgumentException("grid bounds must be minLongitude,maxLongitude,minLatitude,maxLatitude");
+            }
+            double[] bounds = gribOptions.gridBounds;
+            return new RegularGrid("CUSTOM", bounds[0], bounds[1], bounds[2], bounds[3],
+                    gribOptions.gridResolution != null ? gribOptions.gridResolution : 0.25);
+        }
+        if (gribOptions.gridResolution != null) {
+            return gribOptions.grid.withResolution(gribOptions.gridResolution);
+        }
+        return gribOptions.grid;
+    }
+
 }
@@ -26,6 +26,20 @@ public class MongoMixin {
             paramLabel = "arg")
     private String collectionName;
 
+    @Getter
+    @Option(names = {"--clients"},
+            description = "number of clients, each with its own connection pool, to spread load writes over (default: ${DEFAULT-VALUE})",
+            defaultValue = "1",
+            paramLabel = "arg")
+    private int clientCount;
+
+    @Getter
+    @Option(names = {"--mongos-hosts"},
+            description = "comma separated mongos host:port list to connect the clients to in turn, one client per host at least",
+            split = ",",
+            paramLabel = "arg")
+    private List<String> mongosHosts;
+
     @Getter
     @ArgGroup(heading = "%nAuthentication Options:%n", exclusive = false)
     private AuthenticationOptions authenticationOptions;
@@ -129,24 +143,47 @@ public class MongoMixin {
         }
     }
 
-    private MongoClient mongoClient;
+    private List<MongoClient> mongoClients;
+    private final List<String> clientNames = new ArrayList<>();
 
     private final List<Function<MongoClientSettings.Builder, MongoClientSettings.Builder>> clientSettingFunctions = new ArrayList<>();
 
     private CodecRegistry codecRegistry;
 
     public MongoClient getClient() {
-        if (mongoClient == null) {
-            mongoClient = MongoClients.create(getMongoClientSettings());
+        return getClients().get(0);
+    }
+
+    /**
+     * Clients with a connection pool each, connected to the mongos hosts in turn when given.
+     */
+    public List<MongoClient> getClients() {
+        if (mongoClients == null) {
+            int hostCount = mongosHosts == null ? 0 : mongosHosts.size();
+            int count = Math.max(Math.max(1, clientCount), hostCount);
+            mongoClients = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String host = hostCount > 0 ? mongosHosts.get(i % hostCount) : null;
+                mongoClients.add(MongoClients.create(getMongoClientSettings(host)));
+                clientNames.add(host != null ? "client-" + i + "@" + host : "client-" + i);
+            }
         }
-        return mongoClient;
+        return mongoClients;
+    }
+
+    public List<String> getClientNames() {
+        getClients();
+        return clientNames;
     }
 
-    private MongoClientSettings getMongoClientSettings() {
+    private MongoClientSettings getMongoClientSettings(String host) {
         MongoClientSettings.Builder mcsBuilder = MongoClientSettings.builder();
 
         mcsBuilder.applicationName("centrica-poc");
         connectionOptions.apply(mcsBuilder);
+        if (host != null) {
+            mcsBuilder.applyToClusterSettings(builder -> builder.hosts(Collections.singletonList(new ServerAddress(host))));
+        }
 
         if (authenticationOptions != null) {
             authenticationOptions.apply(mcsBuilder);
@@ -186,6 +223,17 @@ public class MongoMixin {
         return getDatabase(connectionOptions.getDatabaseName()).getCollection(getCollectionName(), clazz);
     }
 
+    /**
+     * The collection through each of the clients, the first being the one returned by {@link #getCollection(Class)}.
+     */
+    public <TDocument> List<MongoCollection<TDocument>> getCollections(Class<TDocument> clazz) {
+        List<MongoCollection<TDocument>> collections = new ArrayList<>();
+        for (MongoClient client : getClients()) {
+            collections.add(client.getDatabase(connectionOptions.getDatabaseName()).getCollection(getCollectionName(), clazz));
+        }
+        return collections;
+    }
+
     public MongoCollection<Document> getCollection() {
         return getCollection(Document.class);
     }
@@ -14,4 +14,8 @@ public class SchemaMixin {
     public Schema<?, ?> getSchema() {
         return schema.getSchema();
     }
+
+    public String getSchemaName() {
+        return schema.name();
+    }
 }
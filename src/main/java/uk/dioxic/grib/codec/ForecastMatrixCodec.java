@@ -0,0 +1,122 @@
+package uk.dioxic.grib.codec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.*;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.jsr310.LocalDateTimeCodec;
+import org.bson.types.ObjectId;
+import uk.dioxic.grib.model.ForecastMatrix;
+import uk.dioxic.grib.model.ForecastMatrix.ForecastMatrixBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Stores the matrix values as a single generic BinData of little-endian float32s in [leadTime][parameter] order.
+ */
+public class ForecastMatrixCodec implements CollectibleCodec<ForecastMatrix> {
+
+    private final Logger LOG = LogManager.getLogger(this.getClass());
+    private final PointCodec pointCodec = new PointCodec();
+    private final LocalDateTimeCodec dateCodec = new LocalDateTimeCodec();
+
+    @Override
+    public ForecastMatrix decode(BsonReader reader, DecoderContext decoderContext) {
+        ForecastMatrixBuilder builder = ForecastMatrix.builder();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String fieldName = reader.readName();
+
+            switch (fieldName) {
+                case "_id":
+                    builder.id(reader.readObjectId());
+                    break;
+                case "loc":
+                    builder.loc(pointCodec.decode(reader, decoderContext));
+                    break;
+                case "calcTs":
+                    builder.calcTs(dateCodec.decode(reader, decoderContext));
+                    break;
+                case "ts":
+                    builder.ts(dateCodec.decode(reader, decoderContext));
+                    break;
+                case "tsEnd":
+                    builder.tsEnd(dateCodec.decode(reader, decoderContext));
+                    break;
+                case "step":
+                    builder.stepHours(reader.readInt32());
+                    break;
+                case "params":
+                    builder.parameters(reader.readInt32());
+                    break;
+                case "values":
+                    builder.values(toFloats(reader.readBinaryData().getData()));
+                    break;
+                default:
+                    LOG.warn("unexpected field {} found in document", fieldName);
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return builder.build();
+    }
+
+    @Override
+    public void encode(BsonWriter writer, ForecastMatrix value, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+
+        if (value.getId() != null) {
+            writer.writeObjectId("_id", value.getId());
+        }
+        writer.writeName("loc");
+        pointCodec.encode(writer, value.getLoc(), encoderContext);
+        writer.writeName("calcTs");
+        dateCodec.encode(writer, value.getCalcTs(), encoderContext);
+        writer.writeName("ts");
+        dateCodec.encode(writer, value.getTs(), encoderContext);
+        writer.writeName("tsEnd");
+        dateCodec.encode(writer, value.getTsEnd(), encoderContext);
+        writer.writeInt32("step", value.getStepHours());
+        writer.writeInt32("params", value.getParameters());
+        writer.writeBinaryData("values", new BsonBinary(toBytes(value.getValues())));
+
+        writer.writeEndDocument();
+    }
+
+    static byte[] toBytes(float[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asFloatBuffer().put(values);
+        return buffer.array();
+    }
+
+    static float[] toFloats(byte[] bytes) {
+        float[] values = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer().get(values);
+        return values;
+    }
+
+    @Override
+    public Class<ForecastMatrix> getEncoderClass() {
+        return ForecastMatrix.class;
+    }
+
+    @Override
+    public ForecastMatrix generateIdIfAbsentFromDocument(ForecastMatrix document) {
+        return document.withId(ObjectId.get());
+    }
+
+    @Override
+    public boolean documentHasId(ForecastMatrix document) {
+        return document.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(ForecastMatrix document) {
+        return new BsonObjectId(document.getId());
+    }
+}
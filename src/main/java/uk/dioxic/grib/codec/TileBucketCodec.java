@@ -0,0 +1,148 @@
+package uk.dioxic.grib.codec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.*;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.jsr310.LocalDateTimeCodec;
+import org.bson.types.ObjectId;
+import uk.dioxic.grib.model.TileBucket;
+import uk.dioxic.grib.model.TileBucket.TileBucketBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static uk.dioxic.grib.codec.ForecastMatrixCodec.toBytes;
+import static uk.dioxic.grib.codec.ForecastMatrixCodec.toFloats;
+
+/**
+ * Stores the tile area as a GeoJSON polygon and the values as a single generic BinData of little-endian float32s in
+ * [offset][parameter] order.
+ */
+public class TileBucketCodec implements CollectibleCodec<TileBucket> {
+
+    private final Logger LOG = LogManager.getLogger(this.getClass());
+    private final LocalDateTimeCodec dateCodec = new LocalDateTimeCodec();
+
+    @Override
+    public TileBucket decode(BsonReader reader, DecoderContext decoderContext) {
+        TileBucketBuilder builder = TileBucket.builder();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String fieldName = reader.readName();
+
+            switch (fieldName) {
+                case "_id":
+                    builder.id(reader.readObjectId());
+                    break;
+                case "tile":
+                    builder.tile(reader.readInt32());
+                    break;
+                case "box":
+                    builder.box(decodeBox(reader));
+                    break;
+                case "ts":
+                    builder.ts(dateCodec.decode(reader, decoderContext));
+                    break;
+                case "calcTs":
+                    builder.calcTs(dateCodec.decode(reader, decoderContext));
+                    break;
+                case "params":
+                    builder.parameters(reader.readInt32());
+                    break;
+                case "values":
+                    builder.values(toFloats(reader.readBinaryData().getData()));
+                    break;
+                default:
+                    LOG.warn("unexpected field {} found in document", fieldName);
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return builder.build();
+    }
+
+    @Override
+    public void encode(BsonWriter writer, TileBucket value, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+
+        if (value.getId() != null) {
+            writer.writeObjectId("_id", value.getId());
+        }
+        writer.writeInt32("tile", value.getTile());
+        writer.writeName("box");
+        encodeBox(writer, value.getBox());
+        writer.writeName("ts");
+        dateCodec.encode(writer, value.getTs(), encoderContext);
+        writer.writeName("calcTs");
+        dateCodec.encode(writer, value.getCalcTs(), encoderContext);
+        writer.writeInt32("params", value.getParameters());
+        writer.writeBinaryData("values", new BsonBinary(toBytes(value.getValues())));
+
+        writer.writeEndDocument();
+    }
+
+    private void encodeBox(BsonWriter writer, double[][] ring) {
+        writer.writeStartDocument();
+        writer.writeString("type", "Polygon");
+        writer.writeStartArray("coordinates");
+        writer.writeStartArray();
+        for (double[] position : ring) {
+            writer.writeStartArray();
+            writer.writeDouble(position[0]);
+            writer.writeDouble(position[1]);
+            writer.writeEndArray();
+        }
+        writer.writeEndArray();
+        writer.writeEndArray();
+        writer.writeEndDocument();
+    }
+
+    private double[][] decodeBox(BsonReader reader) {
+        List<double[]> ring = new ArrayList<>(5);
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            if (reader.readName().equals("coordinates")) {
+                reader.readStartArray();
+                reader.readStartArray();
+                while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                    reader.readStartArray();
+                    ring.add(new double[]{reader.readDouble(), reader.readDouble()});
+                    reader.readEndArray();
+                }
+                reader.readEndArray();
+                reader.readEndArray();
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return ring.toArray(new double[0][]);
+    }
+
+    @Override
+    public Class<TileBucket> getEncoderClass() {
+        return TileBucket.class;
+    }
+
+    @Override
+    public TileBucket generateIdIfAbsentFromDocument(TileBucket document) {
+        return document.withId(ObjectId.get());
+    }
+
+    @Override
+    public boolean documentHasId(TileBucket document) {
+        return document.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(TileBucket document) {
+        return new BsonObjectId(document.getId());
+    }
+}
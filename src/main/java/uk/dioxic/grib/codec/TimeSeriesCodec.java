@@ -0,0 +1,127 @@
+package uk.dioxic.grib.codec;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.*;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.jsr310.LocalDateTimeCodec;
+import org.bson.types.ObjectId;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.model.SimpleBucket.SimpleBucketBuilder;
+
+/**
+ * Stores a bucket as a time-series measurement, with the location, calculation and parameter set as its meta field.
+ * <p>
+ * Values are written as doubles rather than float bits so the server can aggregate them and compress them
+ * column-wise within its buckets.
+ * </p>
+ * <p>
+ * The id is written like any other document's, but a time-series collection has no unique index on it, so a
+ * measurement inserted twice is stored twice rather than rejected as a duplicate.
+ * </p>
+ */
+public class TimeSeriesCodec implements CollectibleCodec<SimpleBucket> {
+
+    private final Logger LOG = LogManager.getLogger(this.getClass());
+    private final PointCodec pointCodec = new PointCodec();
+    private final LocalDateTimeCodec dateCodec = new LocalDateTimeCodec();
+
+    @Override
+    public SimpleBucket decode(BsonReader reader, DecoderContext decoderContext) {
+        SimpleBucketBuilder builder = SimpleBucket.builder();
+
+        reader.readStartDocument();
+        while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+            String fieldName = reader.readName();
+
+            switch (fieldName) {
+                case "_id":
+                    builder.id(reader.readObjectId());
+                    break;
+                case "ts":
+                    builder.ts(dateCodec.decode(reader, decoderContext));
+                    break;
+                case "meta":
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        String metaName = reader.readName();
+                        if (metaName.equals("loc")) {
+                            builder.loc(pointCodec.decode(reader, decoderContext));
+                        } else if (metaName.equals("calcTs")) {
+                            builder.calcTs(dateCodec.decode(reader, decoderContext));
+                        } else {
+                            reader.skipValue();
+                        }
+                    }
+                    reader.readEndDocument();
+                    break;
+                case "parameters":
+                    reader.readStartDocument();
+                    while (reader.readBsonType() != BsonType.END_OF_DOCUMENT) {
+                        builder.parameter(reader.readName(), (float) reader.readDouble());
+                    }
+                    reader.readEndDocument();
+                    break;
+                default:
+                    LOG.warn("unexpected field {} found in document", fieldName);
+                    reader.skipValue();
+            }
+        }
+        reader.readEndDocument();
+
+        return builder.build();
+    }
+
+    @Override
+    public void encode(BsonWriter writer, SimpleBucket value, EncoderContext encoderContext) {
+        writer.writeStartDocument();
+
+        if (value.getId() != null) {
+            writer.writeObjectId("_id", value.getId());
+        }
+
+        writer.writeName("ts");
+        dateCodec.encode(writer, value.getTs(), encoderContext);
+
+        writer.writeStartDocument("meta");
+        writer.writeName("loc");
+        pointCodec.encode(writer, value.getLoc(), encoderContext);
+        writer.writeName("calcTs");
+        dateCodec.encode(writer, value.getCalcTs(), encoderContext);
+        writer.writeStartArray("set");
+        value.getParameters().keySet().stream()
+                .mapToInt(Integer::parseInt)
+                .sorted()
+                .forEach(writer::writeInt32);
+        writer.writeEndArray();
+        writer.writeEndDocument();
+
+        writer.writeStartDocument("parameters");
+        value.getParameters().forEach((k, v) -> writer.writeDouble(k, v));
+        writer.writeEndDocument();
+
+        writer.writeEndDocument();
+    }
+
+    @Override
+    public Class<SimpleBucket> getEncoderClass() {
+        return SimpleBucket.class;
+    }
+
+    @Override
+    public SimpleBucket generateIdIfAbsentFromDocument(SimpleBucket document) {
+        return document.withId(ObjectId.get());
+    }
+
+    @Override
+    public boolean documentHasId(SimpleBucket document) {
+        return document.getId() != null;
+    }
+
+    @Override
+    public BsonValue getDocumentId(SimpleBucket document) {
+        return new BsonObjectId(document.getId());
+    }
+}
@@ -0,0 +1,40 @@
+package uk.dioxic.grib.csv;
+
+import uk.dioxic.grib.model.ForecastMatrix;
+
+import java.util.List;
+
+/**
+ * One line per lead time of the matrix, in the layout of {@link SimpleBucketCsv}.
+ */
+public class ForecastMatrixCsv implements Csv<ForecastMatrix> {
+    @Override
+    public String getHeader(List<Integer> parameters) {
+        StringBuilder header = new StringBuilder("timestamp,calculationTime,longitude,latitude");
+
+        parameters.forEach(i -> header.append(",").append("parameter").append(i));
+
+        return header.toString();
+    }
+
+    @Override
+    public String getLine(ForecastMatrix record) {
+        StringBuilder lines = new StringBuilder();
+
+        for (int lead = 0; lead < record.getLeads(); lead++) {
+            if (lead > 0) {
+                lines.append('\n');
+            }
+            lines.append(record.ts(lead)).append(',')
+                    .append(record.getCalcTs()).append(',')
+                    .append(record.getLoc().getLongitude()).append(',')
+                    .append(record.getLoc().getLatitude());
+            for (int parameter = 0; parameter < record.getParameters(); parameter++) {
+                lines.append(',').append(record.value(lead, parameter));
+            }
+        }
+
+        return lines.toString();
+    }
+
+}
@@ -0,0 +1,50 @@
+package uk.dioxic.grib.csv;
+
+import lombok.RequiredArgsConstructor;
+import uk.dioxic.grib.model.Point;
+import uk.dioxic.grib.model.TileBucket;
+import uk.dioxic.grib.model.Tiling;
+
+import java.util.List;
+
+/**
+ * One line per grid point of the tile, in the layout of {@link SimpleBucketCsv}.
+ */
+@RequiredArgsConstructor
+public class TileBucketCsv implements Csv<TileBucket> {
+    private final Tiling tiling;
+
+    @Override
+    public String getHeader(List<Integer> parameters) {
+        StringBuilder header = new StringBuilder("timestamp,calculationTime,longitude,latitude");
+
+        parameters.forEach(i -> header.append(",").append("parameter").append(i));
+
+        return header.toString();
+    }
+
+    @Override
+    public String getLine(TileBucket record) {
+        StringBuilder lines = new StringBuilder();
+
+        for (int offset = 0; offset < record.getPoints(); offset++) {
+            if (!record.hasPoint(offset)) {
+                continue;
+            }
+            if (lines.length() > 0) {
+                lines.append('\n');
+            }
+            Point point = tiling.point(record.getTile(), offset);
+            lines.append(record.getTs()).append(',')
+                    .append(record.getCalcTs()).append(',')
+                    .append(point.getLongitude()).append(',')
+                    .append(point.getLatitude());
+            for (int parameter = 0; parameter < record.getParameters(); parameter++) {
+                lines.append(',').append(record.value(offset, parameter));
+            }
+        }
+
+        return lines.toString();
+    }
+
+}
@@ -0,0 +1,81 @@
+package uk.dioxic.grib.dump;
+
+import uk.dioxic.grib.model.GribRecord;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static uk.dioxic.grib.dump.DumpHeader.RECORD_LENGTH;
+import static uk.dioxic.grib.dump.DumpHeader.toEpochMinute;
+
+/**
+ * Writes GRIB records to a binary dump through a direct buffer.
+ * <p>
+ * The record count is only known once all records are written, so the header is rewritten on close.
+ * </p>
+ */
+public class BinaryDumpWriter implements Closeable {
+    private static final int BUFFER_RECORDS = 32 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final DumpHeader header;
+    private long count;
+
+    public BinaryDumpWriter(Path file, DumpHeader header) throws IOException {
+        this.channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(BUFFER_RECORDS * RECORD_LENGTH).order(DumpHeader.BYTE_ORDER);
+        this.header = header;
+        channel.position(header.length());
+    }
+
+    public void write(GribRecord record) {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.putInt(toEpochMinute(record.getTs()))
+                .putInt(toEpochMinute(record.getCalcTs()))
+                .putDouble(record.getLoc().getLongitude())
+                .putDouble(record.getLoc().getLatitude())
+                .putInt(record.getParameter())
+                .putFloat(record.getValue());
+        count++;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    private void flush() {
+        try {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer headerBuffer = header.withRecordCount(count).toBuffer();
+            long position = 0;
+            while (headerBuffer.hasRemaining()) {
+                position += channel.write(headerBuffer, position);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package uk.dioxic.grib.dump;
+
+import lombok.Builder;
+import lombok.Data;
+import uk.dioxic.grib.generator.ForecastGenerator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Header of a binary GRIB dump.
+ * <p>
+ * A dump is the header followed by fixed-width little-endian records of
+ * {@value #RECORD_LENGTH} bytes: ts and calcTs as int32 minutes since the epoch,
+ * longitude and latitude as float64, parameter as int32 and value as float32.
+ * The header is padded to a multiple of the record length so records stay aligned.
+ * </p>
+ */
+@Data
+@Builder
+public class DumpHeader {
+    public static final int VERSION = 1;
+    public static final int RECORD_LENGTH = 32;
+    public static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final byte[] MAGIC = "GRIBDUMP".getBytes(StandardCharsets.US_ASCII);
+    private static final int FIXED_LENGTH = 42;
+
+    private final long recordCount;
+    private final int parameters;
+    private final int horizonDays;
+    private final int resolutionHours;
+    private final int intervalHours;
+    private final String grid;
+
+    public static DumpHeader of(ForecastGenerator generator) {
+        return DumpHeader.builder()
+                .parameters(generator.getParameters())
+                .horizonDays(generator.getHorizonDays())
+                .resolutionHours(generator.getResolutionHours())
+                .intervalHours(generator.getIntervalHours())
+                .grid(generator.getGridName())
+                .build();
+    }
+
+    public DumpHeader withRecordCount(long recordCount) {
+        return new DumpHeader(recordCount, parameters, horizonDays, resolutionHours, intervalHours, grid);
+    }
+
+    /**
+     * Header length including padding, which is the file offset of the first record.
+     */
+    public int length() {
+        int length = FIXED_LENGTH + gridBytes().length;
+        return (length + RECORD_LENGTH - 1) / RECORD_LENGTH * RECORD_LENGTH;
+    }
+
+    public ByteBuffer toBuffer() {
+        byte[] gridBytes = gridBytes();
+        ByteBuffer buffer = ByteBuffer.allocate(length()).order(BYTE_ORDER);
+        buffer.put(MAGIC)
+                .putInt(VERSION)
+                .putInt(length())
+                .putLong(recordCount)
+                .putInt(parameters)
+                .putInt(horizonDays)
+                .putInt(resolutionHours)
+                .putInt(intervalHours)
+                .putShort((short) gridBytes.length)
+                .put(gridBytes);
+        return buffer.clear();
+    }
+
+    public static DumpHeader read(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_LENGTH).order(BYTE_ORDER);
+        readFully(channel, buffer, 0);
+
+        byte[] magic = new byte[MAGIC.length];
+        buffer.get(magic);
+        if (!Arrays.equals(magic, MAGIC)) {
+            throw new IllegalArgumentException("not a GRIB dump file");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("unsupported GRIB dump version " + version);
+        }
+        buffer.getInt();
+
+        DumpHeaderBuilder builder = DumpHeader.builder()
+                .recordCount(buffer.getLong())
+                .parameters(buffer.getInt())
+                .horizonDays(buffer.getInt())
+                .resolutionHours(buffer.getInt())
+                .intervalHours(buffer.getInt());
+
+        ByteBuffer grid = ByteBuffer.allocate(buffer.getShort() & 0xffff);
+        readFully(channel, grid, FIXED_LENGTH);
+
+        return builder
+                .grid(new String(grid.array(), StandardCharsets.UTF_8))
+                .build();
+    }
+
+    public static int toEpochMinute(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 60);
+    }
+
+    public static LocalDateTime toLocalDateTime(int epochMinute) {
+        return LocalDateTime.ofEpochSecond(epochMinute * 60L, 0, ZoneOffset.UTC);
+    }
+
+    private byte[] gridBytes() {
+        return (grid != null ? grid : "").getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IllegalArgumentException("truncated GRIB dump header");
+            }
+        }
+        buffer.flip();
+    }
+
+}
@@ -0,0 +1,37 @@
+package uk.dioxic.grib.generator;
+
+/**
+ * Counter-based random numbers.
+ * <p>
+ * Each value is a pure function of the seed and its coordinates (SplitMix64 finalizer applied to the
+ * packed coordinates), so the same value is produced regardless of generation order, partitioning or thread.
+ * </p>
+ */
+public final class CounterRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private CounterRandom() {
+    }
+
+    public static long hash(long seed, int ts, int calcTs, int locIdx, int parameter) {
+        long h = mix64(seed + GOLDEN_GAMMA);
+        h = mix64(h ^ (((long) ts << 32) | (calcTs & 0xffffffffL)));
+        h = mix64((h + GOLDEN_GAMMA) ^ (((long) locIdx << 32) | (parameter & 0xffffffffL)));
+        return h;
+    }
+
+    /**
+     * Uniformly distributed float in [0, 1) for the given coordinates.
+     */
+    public static float nextFloat(long seed, int ts, int calcTs, int locIdx, int parameter) {
+        return (hash(seed, ts, calcTs, locIdx, parameter) >>> 40) * 0x1.0p-24f;
+    }
+
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+}
@@ -0,0 +1,34 @@
+package uk.dioxic.grib.generator;
+
+import uk.dioxic.grib.model.GribRecord;
+
+import java.util.Map;
+
+/**
+ * Generator of GRIB records in timestamp -> location -> calculationTs -> parameter order
+ * describing the shape of the forecasts it produces.
+ */
+public interface ForecastGenerator extends Generator<GribRecord> {
+
+    int getParameters();
+
+    int getHorizonDays();
+
+    int getResolutionHours();
+
+    int getIntervalHours();
+
+    String getGridName();
+
+    @Override
+    default Map<String, String> identity() {
+        Map<String, String> identity = Generator.super.identity();
+        identity.put("grid", getGridName());
+        identity.put("parameters", Integer.toString(getParameters()));
+        identity.put("horizonDays", Integer.toString(getHorizonDays()));
+        identity.put("resolutionHours", Integer.toString(getResolutionHours()));
+        identity.put("intervalHours", Integer.toString(getIntervalHours()));
+        return identity;
+    }
+
+}
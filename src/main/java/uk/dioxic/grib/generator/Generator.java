@@ -2,9 +2,61 @@ package uk.dioxic.grib.generator;
 
 import reactor.core.publisher.Flux;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 public interface Generator<T> {
 
     Flux<T> generate();
 
     long recordCount();
+
+    /**
+     * Split the generator into independent partitions that can be generated concurrently.
+     * <p>
+     * A partition never divides the records of a timestamp/location group, so a schema applied to each
+     * partition individually still sees complete buckets.
+     * </p>
+     * @param partitions the number of partitions required
+     * @return generator partitions, at most {@code partitions} in size
+     */
+    default List<Generator<T>> split(int partitions) {
+        return List.of(this);
+    }
+
+    /**
+     * Split the generator into consecutive segments to be generated one after another.
+     * <p>
+     * Unlike partitions, segments concatenated in list order reproduce the output of {@link #generate()} and
+     * never divide the records of a timestamp, so the first record of each segment bounds the timestamp range of
+     * the segment before it.
+     * </p>
+     * @param segments the number of segments required
+     * @return generator segments, at most {@code segments} in size
+     */
+    default List<Generator<T>> segments(int segments) {
+        return split(segments);
+    }
+
+    /**
+     * Split the generator into its forecast cycles, one generator per calculation run in calculation order.
+     * <p>
+     * Generators that cannot tell their runs apart return themselves as a single cycle.
+     * </p>
+     * @return generator per cycle
+     */
+    default List<Generator<T>> cycles() {
+        return List.of(this);
+    }
+
+    /**
+     * Settings that determine the generated records, so a checkpoint is only resumed by the load it was taken from.
+     * @return setting values by name, in a stable order
+     */
+    default Map<String, String> identity() {
+        Map<String, String> identity = new LinkedHashMap<>();
+        identity.put("generator", getClass().getSimpleName());
+        return identity;
+    }
 }
@@ -0,0 +1,308 @@
+package uk.dioxic.grib.generator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import uk.dioxic.grib.grib2.Grib2Field;
+import uk.dioxic.grib.grib2.Grib2Grid;
+import uk.dioxic.grib.grib2.Grib2Parameter;
+import uk.dioxic.grib.grib2.Grib2Reader;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.GribRecord.GribRecordBuilder;
+import uk.dioxic.grib.model.Point;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Generates GRIB records from the fields of real GRIB2 files.
+ * <p>
+ * Files are indexed up front and each message is memory-mapped when its timestamp is generated,
+ * so only the fields of one timestamp are decoded at a time. Every (timestamp, calculation) must
+ * have a field for each parameter found in the files, incomplete calculations are skipped.
+ * </p>
+ * <p>
+ * Output is ordered by timestamp -> location -> calculationTs -> parameter
+ * </p>
+ */
+@Getter
+public class Grib2FileGenerator implements ForecastGenerator {
+
+    private final Logger LOG = LogManager.getLogger(this.getClass());
+
+    private final Grib2Grid grid;
+    private final List<Grib2Parameter> parameterIds;
+    private final List<TsGroup> groups;
+    private final int groupFrom;
+    private final int groupTo;
+    private final int horizonDays;
+    private final int resolutionHours;
+    private final int intervalHours;
+
+    @Builder
+    private Grib2FileGenerator(@NonNull List<Path> files) {
+        List<Grib2Field> fields = files.parallelStream()
+                .map(Grib2FileGenerator::index)
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException("no GRIB2 fields found in " + files);
+        }
+
+        this.grid = fields.get(0).getGrid();
+        for (Grib2Field field : fields) {
+            if (!grid.equals(field.getGrid())) {
+                throw new IllegalArgumentException("all fields must share the same grid, found " + grid + " and " + field.getGrid());
+            }
+        }
+
+        this.parameterIds = fields.stream()
+                .map(Grib2Field::getParameter)
+                .distinct()
+                .sorted()
+                .collect(Collectors.toList());
+
+        // validTime -> referenceTime -> field per parameter
+        Map<LocalDateTime, Map<LocalDateTime, Grib2Field[]>> byTs = new TreeMap<>();
+        for (Grib2Field field : fields) {
+            Grib2Field[] calc = byTs.computeIfAbsent(field.getValidTime(), k -> new TreeMap<>())
+                    .computeIfAbsent(field.getReferenceTime(), k -> new Grib2Field[parameterIds.size()]);
+            int parameter = Collections.binarySearch(parameterIds, field.getParameter());
+            if (calc[parameter] == null) {
+                calc[parameter] = field;
+            }
+        }
+
+        this.groups = new ArrayList<>(byTs.size());
+        int skipped = 0;
+        for (Map.Entry<LocalDateTime, Map<LocalDateTime, Grib2Field[]>> ts : byTs.entrySet()) {
+            List<CalcGroup> calcs = new ArrayList<>();
+            for (Map.Entry<LocalDateTime, Grib2Field[]> calc : ts.getValue().entrySet()) {
+                if (Arrays.stream(calc.getValue()).allMatch(Objects::nonNull)) {
+                    calcs.add(new CalcGroup(calc.getKey(), calc.getValue()));
+                } else {
+                    skipped++;
+                }
+            }
+            if (!calcs.isEmpty()) {
+                groups.add(new TsGroup(ts.getKey(), calcs));
+            }
+        }
+        if (skipped > 0) {
+            LOG.warn("skipped {} calculations missing one or more of the {} parameters", skipped, parameterIds.size());
+        }
+
+        // describe the forecast shape for the schemas, which only use it to size documents and metrics
+        int resolution = 0;
+        int interval = 0;
+        int maxLead = 0;
+        LocalDateTime firstCalc = null;
+        for (TsGroup group : groups) {
+            for (CalcGroup calc : group.calcs) {
+                int lead = (int) Duration.between(calc.calcTs, group.ts).toHours();
+                resolution = lead > 0 ? GribGenerator.gcd(resolution, lead) : resolution;
+                maxLead = Math.max(maxLead, lead);
+                if (firstCalc == null) {
+                    firstCalc = calc.calcTs;
+                }
+                interval = GribGenerator.gcd(interval, (int) Math.abs(Duration.between(firstCalc, calc.calcTs).toHours()));
+            }
+        }
+        this.horizonDays = Math.max(1, GribGenerator.ceilDiv(maxLead, 24));
+        this.resolutionHours = Math.max(1, resolution);
+        this.intervalHours = interval > 0 ? interval : horizonDays * 24;
+        this.groupFrom = 0;
+        this.groupTo = groups.size();
+
+        LOG.info("indexed {} fields with {} parameters on a {}x{} grid covering {} timestamps",
+                fields.size(), parameterIds.size(), grid.getNi(), grid.getNj(), groups.size());
+    }
+
+    private Grib2FileGenerator(Grib2FileGenerator parent, int groupFrom, int groupTo) {
+        this.grid = parent.grid;
+        this.parameterIds = parent.parameterIds;
+        this.groups = parent.groups;
+        this.horizonDays = parent.horizonDays;
+        this.resolutionHours = parent.resolutionHours;
+        this.intervalHours = parent.intervalHours;
+        this.groupFrom = groupFrom;
+        this.groupTo = groupTo;
+    }
+
+    private static List<Grib2Field> index(Path file) {
+        try {
+            return Grib2Reader.index(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public int getParameters() {
+        return parameterIds.size();
+    }
+
+    @Override
+    public String getGridName() {
+        return grid.toString();
+    }
+
+    @Override
+    public long recordCount() {
+        long calcs = 0;
+        for (int i = groupFrom; i < groupTo; i++) {
+            calcs += groups.get(i).calcs.size();
+        }
+        return calcs * grid.size() * parameterIds.size();
+    }
+
+    /**
+     * Split by timestamp, concatenating the partitions in list order reproduces the output of {@link #generate()}.
+     * @param partitions the number of partitions required
+     * @return generator partitions
+     */
+    @Override
+    public List<Generator<GribRecord>> split(int partitions) {
+        int count = Math.min(partitions, groupTo - groupFrom);
+        if (count <= 1) {
+            return List.of(this);
+        }
+
+        List<Generator<GribRecord>> generators = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            generators.add(new Grib2FileGenerator(this,
+                    groupFrom + (groupTo - groupFrom) * i / count,
+                    groupFrom + (groupTo - groupFrom) * (i + 1) / count));
+        }
+
+        LOG.debug("split generator into {} partitions", generators.size());
+
+        return generators;
+    }
+
+    @Override
+    public Flux<GribRecord> generate() {
+        GribRecordBuilder builder = GribRecord.builder();
+        int parameters = parameterIds.size();
+        int points = grid.size();
+
+        LOG.info("creating grib flux for {} records from GRIB2 files", recordCount());
+
+        return Flux.using(Channels::new,
+                channels -> Flux.generate(
+                        () -> new FileState(groupFrom - 1, points, 0, parameters, null, null, null),
+                        (state, sink) -> {
+                            state.parameter++;
+                            if (state.parameter >= parameters) {
+                                state.parameter = 0;
+                                state.calcIdx++;
+                                if (state.group == null || state.calcIdx >= state.group.calcs.size()) {
+                                    state.calcIdx = 0;
+                                    state.locIdx++;
+                                    if (state.locIdx >= points) {
+                                        state.locIdx = 0;
+                                        state.groupIdx++;
+                                        if (state.groupIdx >= groupTo) {
+                                            sink.complete();
+                                            return state;
+                                        }
+                                        state.group = groups.get(state.groupIdx);
+                                        state.values = decode(state.group, channels);
+                                    }
+                                    state.loc = grid.point(state.locIdx);
+                                }
+                            }
+                            CalcGroup calc = state.group.calcs.get(state.calcIdx);
+                            sink.next(builder
+                                    .id(ObjectId.get())
+                                    .loc(state.loc)
+                                    .calcTs(calc.calcTs)
+                                    .ts(state.group.ts)
+                                    .parameter(state.parameter)
+                                    .value(state.values[state.calcIdx][state.parameter][state.locIdx])
+                                    .build());
+                            return state;
+                        }),
+                Channels::close);
+    }
+
+    private float[][][] decode(TsGroup group, Channels channels) {
+        float[][][] values = new float[group.calcs.size()][][];
+        for (int c = 0; c < values.length; c++) {
+            Grib2Field[] fields = group.calcs.get(c).fields;
+            values[c] = new float[fields.length][];
+            for (int p = 0; p < fields.length; p++) {
+                values[c][p] = Grib2Reader.decode(fields[p], channels.map(fields[p]));
+            }
+        }
+        return values;
+    }
+
+    @AllArgsConstructor
+    private static class TsGroup {
+        private final LocalDateTime ts;
+        private final List<CalcGroup> calcs;
+    }
+
+    @AllArgsConstructor
+    private static class CalcGroup {
+        private final LocalDateTime calcTs;
+        private final Grib2Field[] fields;
+    }
+
+    @AllArgsConstructor
+    private static class FileState {
+        private int groupIdx;
+        private int locIdx;
+        private int calcIdx;
+        private int parameter;
+        private TsGroup group;
+        private float[][][] values;
+        private Point loc;
+    }
+
+    /**
+     * File channels opened for the lifetime of a subscription.
+     */
+    private static class Channels {
+        private final Map<Path, FileChannel> channels = new HashMap<>();
+
+        ByteBuffer map(Grib2Field field) {
+            try {
+                FileChannel channel = channels.get(field.getFile());
+                if (channel == null) {
+                    channel = FileChannel.open(field.getFile(), StandardOpenOption.READ);
+                    channels.put(field.getFile(), channel);
+                }
+                return channel.map(FileChannel.MapMode.READ_ONLY, field.getMessageOffset(), field.getMessageLength());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void close() {
+            for (FileChannel channel : channels.values()) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+}
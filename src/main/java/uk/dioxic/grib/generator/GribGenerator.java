@@ -8,19 +8,18 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bson.types.ObjectId;
 import reactor.core.publisher.Flux;
+import uk.dioxic.grib.model.GribFrame;
 import uk.dioxic.grib.model.GribRecord;
 import uk.dioxic.grib.model.GribRecord.GribRecordBuilder;
-import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GeoGrid;
+import uk.dioxic.grib.model.Tiling;
 
 import java.time.LocalDateTime;
-import java.time.ZoneOffset;
 import java.util.*;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 
 @Data
-public class GribGenerator implements Generator<GribRecord> {
+public class GribGenerator implements ForecastGenerator {
 
     private final Logger LOG = LogManager.getLogger(this.getClass());
 
@@ -29,13 +28,27 @@ public class GribGenerator implements Generator<GribRecord> {
     private final int horizonDays;
     private final int resolutionHours;
     private final int intervalHours;
-    private final Grid grid;
+    private final GeoGrid grid;
     private final int parameters;
+    private final long seed;
+    private final ValueModel valueModel;
     private final int forecasts;
-    private final Map<LocalDateTime, List<LocalDateTime>> calculationMap;
+    private final int leadTimes;
+    private final int tsStepHours;
+    private final int startHour;
+    private final int tsFrom;
+    private final int tsTo;
+    private final int locFrom;
+    private final int locTo;
+    private final int calcFrom;
+    private final int calcTo;
 
     @Builder
-    private GribGenerator(int horizonDays, int resolutionHours, int intervalHours, int parameters, @NonNull Grid grid, @NonNull LocalDateTime startDate, @NonNull LocalDateTime endDate) {
+    private GribGenerator(int horizonDays, int resolutionHours, int intervalHours, int parameters, long seed, ValueModelCandidates valueModel, @NonNull GeoGrid grid, @NonNull LocalDateTime startDate, @NonNull LocalDateTime endDate) {
+        if (resolutionHours <= 0 || intervalHours <= 0) {
+            throw new IllegalArgumentException("resolution and interval must be positive");
+        }
+
         this.startDate = startDate;// != null ? startDate : LocalDateTime.parse("2000-01-01T00:00:00");
         this.endDate = endDate;// != null ? endDate : LocalDateTime.parse("2000-01-02T00:00:00");
         this.horizonDays = horizonDays;
@@ -43,25 +56,220 @@ public class GribGenerator implements Generator<GribRecord> {
         this.intervalHours = intervalHours;
         this.grid = grid;
         this.parameters = parameters;
+        this.seed = seed;
+        this.valueModel = (valueModel != null ? valueModel : ValueModelCandidates.UNIFORM).create(seed, grid);
+
+        // calculation n is made at startHour + n * interval and forecasts the
+        // timestamps startHour + n * interval + k * resolution for k in [1, leadTimes]
+        this.startHour = GribFrame.toEpochHour(startDate);
+        int hours = GribFrame.toEpochHour(endDate) - startHour;
+        this.forecasts = hours > 0 ? ceilDiv(hours, intervalHours) : 0;
+        this.leadTimes = Math.max(0, (horizonDays * 24 - 1) / resolutionHours);
+
+        // every forecast timestamp is a multiple of the step (though not every multiple is forecast)
+        this.tsStepHours = gcd(intervalHours, resolutionHours);
+        if (forecasts > 0 && leadTimes > 0) {
+            this.tsFrom = resolutionHours / tsStepHours;
+            this.tsTo = ((forecasts - 1) * intervalHours + leadTimes * resolutionHours) / tsStepHours + 1;
+        } else {
+            this.tsFrom = 0;
+            this.tsTo = 0;
+        }
+        this.locFrom = 0;
+        this.locTo = grid.size();
+        this.calcFrom = 0;
+        this.calcTo = forecasts;
+    }
+
+    private GribGenerator(GribGenerator parent, int tsFrom, int tsTo, int locFrom, int locTo) {
+        this(parent, tsFrom, tsTo, locFrom, locTo, parent.calcFrom, parent.calcTo);
+    }
+
+    private GribGenerator(GribGenerator parent, int tsFrom, int tsTo, int locFrom, int locTo, int calcFrom, int calcTo) {
+        this.startDate = parent.startDate;
+        this.endDate = parent.endDate;
+        this.horizonDays = parent.horizonDays;
+        this.resolutionHours = parent.resolutionHours;
+        this.intervalHours = parent.intervalHours;
+        this.grid = parent.grid;
+        this.parameters = parent.parameters;
+        this.seed = parent.seed;
+        this.valueModel = parent.valueModel;
+        this.forecasts = parent.forecasts;
+        this.leadTimes = parent.leadTimes;
+        this.tsStepHours = parent.tsStepHours;
+        this.startHour = parent.startHour;
+        this.tsFrom = tsFrom;
+        this.tsTo = tsTo;
+        this.locFrom = locFrom;
+        this.locTo = locTo;
+        this.calcFrom = calcFrom;
+        this.calcTo = calcTo;
+    }
+
+    public long recordCount() {
+        return (long) (locTo - locFrom) * (long) parameters * calculationCount();
+    }
+
+    @Override
+    public String getGridName() {
+        return grid.getName();
+    }
+
+    @Override
+    public Map<String, String> identity() {
+        Map<String, String> identity = ForecastGenerator.super.identity();
+        identity.put("startDate", startDate.toString());
+        identity.put("endDate", endDate.toString());
+        identity.put("seed", Long.toString(seed));
+        identity.put("valueModel", valueModel.getClass().getSimpleName());
+        return identity;
+    }
 
-        int hours = (int)(endDate.toEpochSecond(ZoneOffset.UTC) - startDate.toEpochSecond(ZoneOffset.UTC)) * 60 * 60;
-        this.forecasts = (int)(((double)hours / 24) * (24/intervalHours));
+    /**
+     * The value generated for the given coordinates.
+     * <p>
+     * Values depend only on the seed and coordinates, so loaded data can be verified without storing it.
+     * </p>
+     */
+    public float value(LocalDateTime ts, LocalDateTime calcTs, int locIdx, int parameter) {
+        return valueModel.value(GribFrame.toEpochHour(ts), GribFrame.toEpochHour(calcTs), locIdx, parameter);
+    }
+
+    /**
+     * Number of (timestamp, calculation) pairs within the timestamp range of this generator.
+     */
+    private long calculationCount() {
+        if (tsFrom >= tsTo) {
+            return 0;
+        }
 
-        calculationMap = new HashMap<>();
-        for (LocalDateTime calcTs = this.startDate; calcTs.isBefore(this.endDate); calcTs = calcTs.plusHours(intervalHours)) {
-            for (LocalDateTime ts = calcTs.plusHours(resolutionHours); ts.isBefore(calcTs.plusDays(horizonDays)); ts = ts.plusHours(resolutionHours)) {
-                calculationMap
-                        .computeIfAbsent(ts, k -> new ArrayList<>())
-                        .add(calcTs);
+        long minHours = (long) tsFrom * tsStepHours;
+        long maxHours = (long) tsTo * tsStepHours - 1;
+        if (calcFrom == 0 && calcTo == forecasts && minHours <= resolutionHours
+                && maxHours >= (long) (forecasts - 1) * intervalHours + (long) leadTimes * resolutionHours) {
+            return (long) forecasts * leadTimes;
+        }
+
+        long count = 0;
+        for (int calc = calcFrom; calc < calcTo; calc++) {
+            long calcHours = (long) calc * intervalHours;
+            long minLead = Math.max(1, ceilDiv(minHours - calcHours, resolutionHours));
+            long maxLead = Math.min(leadTimes, Math.floorDiv(maxHours - calcHours, resolutionHours));
+            count += Math.max(0, maxLead - minLead + 1);
+        }
+        return count;
+    }
+
+    /**
+     * Calculations forecasting a timestamp, in ascending order.
+     * @param tsIdx timestamp index, the timestamp being {@code startHour + tsIdx * tsStepHours}
+     * @param calculations array to fill with calculation indices
+     * @return the number of calculations written
+     */
+    private int calculations(int tsIdx, int[] calculations) {
+        long tsHours = (long) tsIdx * tsStepHours;
+        long minCalc = Math.max(calcFrom, ceilDiv(tsHours - (long) leadTimes * resolutionHours, intervalHours));
+        long maxCalc = Math.min(calcTo - 1, Math.floorDiv(tsHours - resolutionHours, intervalHours));
+
+        int count = 0;
+        for (long calc = minCalc; calc <= maxCalc; calc++) {
+            if ((tsHours - calc * intervalHours) % resolutionHours == 0) {
+                calculations[count++] = (int) calc;
             }
         }
+        return count;
     }
 
-    public long recordCount() {
-        return (long) grid.getPoints().size() * (long) parameters * calculationMap.values()
-                .stream()
-                .mapToLong(List::size)
-                .sum();
+    /**
+     * Upper bound on the number of calculations forecasting a single timestamp.
+     */
+    private int maxCalculations() {
+        return leadTimes > 0 ? Math.min(forecasts, (leadTimes - 1) * resolutionHours / intervalHours + 1) : 0;
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    static int ceilDiv(int x, int y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+    static int gcd(int a, int b) {
+        return b == 0 ? a : gcd(b, a % b);
+    }
+
+    /**
+     * Splits the generator into partitions of contiguous timestamps.
+     * <p>
+     * When there are fewer timestamps than partitions the locations are split instead. Timestamp partitions
+     * concatenated in list order reproduce the output of {@link #generate()}; location partitions do not.
+     * </p>
+     * @param partitions the number of partitions required
+     * @return generator partitions
+     */
+    @Override
+    public List<Generator<GribRecord>> split(int partitions) {
+        int tsCount = tsTo - tsFrom;
+        int locCount = locTo - locFrom;
+
+        if (partitions <= 1 || (tsCount <= 1 && locCount <= 1)) {
+            return List.of(this);
+        }
+
+        List<Generator<GribRecord>> generators = new ArrayList<>(partitions);
+        if (tsCount >= partitions || tsCount >= locCount) {
+            int count = Math.min(partitions, tsCount);
+            for (int i = 0; i < count; i++) {
+                generators.add(new GribGenerator(this,
+                        tsFrom + (int) ((long) tsCount * i / count),
+                        tsFrom + (int) ((long) tsCount * (i + 1) / count),
+                        locFrom,
+                        locTo));
+            }
+        } else {
+            int count = Math.min(partitions, locCount);
+            for (int i = 0; i < count; i++) {
+                generators.add(new GribGenerator(this,
+                        tsFrom,
+                        tsTo,
+                        locFrom + (int) ((long) locCount * i / count),
+                        locFrom + (int) ((long) locCount * (i + 1) / count)));
+            }
+        }
+
+        LOG.debug("split generator into {} partitions", generators.size());
+
+        return generators;
+    }
+
+    /**
+     * Splits by timestamp only, so there are no more segments than timestamps.
+     * @param segments the number of segments required
+     * @return generator segments
+     */
+    @Override
+    public List<Generator<GribRecord>> segments(int segments) {
+        return split(Math.min(segments, tsTo - tsFrom));
+    }
+
+    /**
+     * One generator per calculation, covering the timestamps that calculation forecasts.
+     * @return generator per calculation
+     */
+    @Override
+    public List<Generator<GribRecord>> cycles() {
+        List<Generator<GribRecord>> generators = new ArrayList<>(calcTo - calcFrom);
+        for (int calc = calcFrom; calc < calcTo; calc++) {
+            long calcHours = (long) calc * intervalHours;
+            int from = Math.max(tsFrom, (int) ((calcHours + resolutionHours) / tsStepHours));
+            int to = Math.min(tsTo, (int) ((calcHours + (long) leadTimes * resolutionHours) / tsStepHours) + 1);
+            if (from < to) {
+                generators.add(new GribGenerator(this, from, to, locFrom, locTo, calc, calc + 1));
+            }
+        }
+        return generators;
     }
 
     @Override
@@ -72,203 +280,189 @@ public class GribGenerator implements Generator<GribRecord> {
     /**
      * Generate raw GRIB record.
      * <p>
-     * Output is ordered by calculationTs -> timestamp -> location -> parameter
+     * Output is ordered by timestamp -> location -> calculationTs -> parameter
      * </p>
      * @return GribRecord flux
      */
-    private Flux<GribRecord> generateCalcOrder() {
-        Random rnd = ThreadLocalRandom.current();
-        GribRecordBuilder builder = GribRecord.builder();
-
-        LOG.info("creating grib flux for {} records", recordCount());
+    public Flux<GribRecord> generateTsOrder() {
+        LOG.info("creating grib flux for {} records in TS order with seed {}", recordCount(), seed);
 
-        return Flux.generate(
-                () -> new CalcState(0, 0, startDate, startDate, startDate.plusDays(horizonDays), -1),
-                (state, sink) -> {
-                    state.parameter++;
-                    if (state.parameter >= parameters) {
-                        state.parameter = 0;
-                        state.locIdx++;
-
-                        if (state.locIdx >= grid.getPoints().size()) {
-                            state.locIdx = 0;
-                            state.ts = state.ts.plusHours(resolutionHours);
-                            if (state.ts.isEqual(state.forcastEnd)) {
-                                state.calcTs = state.calcTs.plusHours(intervalHours);
-                                state.ts = state.calcTs;
-                                state.forcastEnd = state.calcTs.plusDays(horizonDays);
-                                state.forecast++;
-                                if (state.forecast >= forecasts) {
-                                    sink.complete();
-                                }
-                            }
-                        }
-                    }
-                    sink.next(builder
-                            .id(ObjectId.get())
-                            .loc(grid.getPoints().get(state.locIdx))
-                            .calcTs(state.calcTs)
-                            .ts(state.ts)
-                            .parameter(state.parameter)
-                            .value(rnd.nextFloat())
-                            .build());
-                    return state;
-                }
-        );
+        return generateFrames()
+                .map(frame -> frame.toGribRecords(grid))
+                .flatMapIterable(records -> records);
     }
 
     /**
-     * Generate raw GRIB record.
+     * Generate raw GRIB records a forecast at a time.
      * <p>
-     * Output is ordered by timestamp -> location -> calculationTs -> parameter
+     * Output is ordered by calculationTs -> location -> timestamp -> parameter over the timestamps of this
+     * generator, so the records of one calculation at one location are contiguous.
      * </p>
      * @return GribRecord flux
      */
-    @Deprecated
-    private Flux<GribRecord> generateTsOrderOld() {
-        Random rnd = ThreadLocalRandom.current();
-        GribRecordBuilder builder = GribRecord.builder();
+    public Flux<GribRecord> generateForecastOrder() {
+        if (recordCount() == 0) {
+            return Flux.empty();
+        }
 
-        LOG.info("creating grib flux for {} records in TS order", recordCount());
+        LOG.info("creating grib flux for {} records in forecast order with seed {}", recordCount(), seed);
 
-        int calcPerBucket = (horizonDays * 24) / intervalHours;
-        List<LocalDateTime> calcDates = IntStream.range(0, forecasts)
-                .mapToObj(i -> startDate.minusDays(horizonDays).plusHours(intervalHours * i))
-                .collect(Collectors.toList());
+        long minHours = (long) tsFrom * tsStepHours;
+        long maxHours = (long) tsTo * tsStepHours - 1;
 
-        return Flux.generate(
-                () -> new TsState2(0, 0, startDate, startDate.minusDays(horizonDays), calcDates, 0, -1),
-                (state, sink) -> {
-                    state.parameter++;
-                    if (state.parameter >= parameters) {
-                        state.parameter = 0;
-                        state.calcIdx++;
-                        state.calcTs = state.calcTs.plusHours(intervalHours);
+        return Flux.range(calcFrom, calcTo - calcFrom)
+                .concatMap(calc -> {
+                    long calcHours = (long) calc * intervalHours;
+                    int minLead = (int) Math.max(1, ceilDiv(minHours - calcHours, resolutionHours));
+                    int maxLead = (int) Math.min(leadTimes, Math.floorDiv(maxHours - calcHours, resolutionHours));
+                    if (minLead > maxLead) {
+                        return Flux.empty();
+                    }
+                    int calcHour = startHour + (int) calcHours;
+                    return Flux.range(locFrom, locTo - locFrom)
+                            .concatMapIterable(locIdx -> forecast(calcHour, locIdx, minLead, maxLead));
+                });
+    }
 
-                        if (!state.calcTs.isBefore(state.ts)) {
-                            state.calcIdx = 0;
-                            state.locIdx++;
+    private List<GribRecord> forecast(int calcHour, int locIdx, int minLead, int maxLead) {
+        GribRecordBuilder builder = GribRecord.builder()
+                .loc(grid.point(locIdx))
+                .calcTs(GribFrame.toLocalDateTime(calcHour));
+        List<GribRecord> records = new ArrayList<>((maxLead - minLead + 1) * parameters);
+
+        for (int lead = minLead; lead <= maxLead; lead++) {
+            int tsHour = calcHour + lead * resolutionHours;
+            builder.ts(GribFrame.toLocalDateTime(tsHour));
+            for (int parameter = 0; parameter < parameters; parameter++) {
+                records.add(builder
+                        .id(ObjectId.get())
+                        .parameter(parameter)
+                        .value(valueModel.value(tsHour, calcHour, locIdx, parameter))
+                        .build());
+            }
+        }
+        return records;
+    }
 
-                            if (state.locIdx >= grid.getPoints().size()) {
-                                state.locIdx = 0;
-                                state.tsIdx++;
-                                state.ts = state.ts.plusHours(resolutionHours);
+    /**
+     * Generate raw GRIB records a tile at a time.
+     * <p>
+     * Output is ordered by timestamp -> tile -> calculationTs -> location -> parameter, with tiles in the order of
+     * their first point in the grid, so the records of one timestamp, calculation and tile are contiguous.
+     * </p>
+     * @param tiling tiling of the lattice the grid points lie on
+     * @return GribRecord flux
+     */
+    public Flux<GribRecord> generateTileOrder(Tiling tiling) {
+        if (recordCount() == 0) {
+            return Flux.empty();
+        }
 
-                                if (state.tsIdx >= (intervalHours * horizonDays)) {
-                                    sink.complete();
-                                }
-                            }
+        LOG.info("creating grib flux for {} records in tile order with seed {}", recordCount(), seed);
 
-                            LocalDateTime deadline = state.ts.minusDays(horizonDays);
+        List<int[]> tiles = tiles(tiling);
 
-                            state.calcDates = state.calcDates.stream()
-                                    .filter(calcDate -> calcDate.isAfter(deadline) || calcDate.isEqual(deadline))
-                                    .collect(Collectors.toList());
+        return Flux.range(tsFrom, tsTo - tsFrom)
+                .concatMap(tsIdx -> {
+                    int[] calculations = new int[maxCalculations()];
+                    int calcCount = calculations(tsIdx, calculations);
+                    int tsHour = startHour + tsIdx * tsStepHours;
+                    return Flux.fromIterable(tiles)
+                            .concatMapIterable(tile -> tile(tsHour, tile, calculations, calcCount));
+                });
+    }
 
-                            state.calcTs = state.calcDates.get(0);
-                        }
-                    }
-                    sink.next(builder
+    /**
+     * Location indexes of this generator grouped by tile.
+     */
+    private List<int[]> tiles(Tiling tiling) {
+        Map<Integer, List<Integer>> tiles = new LinkedHashMap<>();
+        for (int locIdx = locFrom; locIdx < locTo; locIdx++) {
+            tiles.computeIfAbsent(tiling.tileId(grid.point(locIdx)), tile -> new ArrayList<>()).add(locIdx);
+        }
+        return tiles.values().stream()
+                .map(locations -> locations.stream().mapToInt(Integer::intValue).toArray())
+                .collect(Collectors.toList());
+    }
+
+    private List<GribRecord> tile(int tsHour, int[] locations, int[] calculations, int calcCount) {
+        GribRecordBuilder builder = GribRecord.builder()
+                .ts(GribFrame.toLocalDateTime(tsHour));
+        List<GribRecord> records = new ArrayList<>(calcCount * locations.length * parameters);
+
+        for (int calcIdx = 0; calcIdx < calcCount; calcIdx++) {
+            int calcHour = startHour + calculations[calcIdx] * intervalHours;
+            builder.calcTs(GribFrame.toLocalDateTime(calcHour));
+            for (int locIdx : locations) {
+                builder.loc(grid.point(locIdx));
+                for (int parameter = 0; parameter < parameters; parameter++) {
+                    records.add(builder
                             .id(ObjectId.get())
-                            .loc(grid.getPoints().get(state.locIdx))
-                            .calcTs(state.calcTs)
-                            .ts(state.ts)
-                            .parameter(state.parameter)
-                            .value(rnd.nextFloat())
+                            .parameter(parameter)
+                            .value(valueModel.value(tsHour, calcHour, locIdx, parameter))
                             .build());
-                    return state;
                 }
-        );
+            }
+        }
+        return records;
     }
 
     /**
-     * Generate raw GRIB record.
+     * Generate GRIB values as columnar frames, one per timestamp and location.
      * <p>
-     * Output is ordered by timestamp -> location -> calculationTs -> parameter
+     * Rows within a frame are ordered by calculationTs -> parameter. The same frame instance is
+     * refilled for every emission, so it must be consumed before the next one is requested.
      * </p>
-     * @return GribRecord flux
+     * @return GribFrame flux
      */
-    public Flux<GribRecord> generateTsOrder() {
-        Random rnd = ThreadLocalRandom.current();
-        GribRecordBuilder builder = GribRecord.builder();
-
-        LOG.info("creating grib flux for {} records in TS order", recordCount());
+    public Flux<GribFrame> generateFrames() {
+        if (recordCount() == 0) {
+            return Flux.empty();
+        }
 
-        List<LocalDateTime> tsList = calculationMap
-                .keySet()
-                .stream()
-                .sorted()
-                .collect(Collectors.toList());
+        int capacity = maxCalculations() * parameters;
 
         return Flux.generate(
-                () -> new TsState(calculationMap.get(tsList.get(0))),
+                () -> new FrameState(tsFrom - 1, locTo, new int[maxCalculations()], 0, new GribFrame(capacity)),
                 (state, sink) -> {
-                    state.parameterIdx++;
-                    if (state.parameterIdx >= parameters) {
-                        state.parameterIdx = 0;
-                        state.calcIdx++;
-
-                        if (state.calcIdx >= state.calculations.size()) {
-                            state.calcIdx = 0;
-                            state.locIdx++;
-
-                            if (state.locIdx >= grid.getPoints().size()) {
-                                state.locIdx = 0;
-                                state.tsIdx++;
-
-                                if (state.tsIdx >= tsList.size()) {
-                                    sink.complete();
-                                    return state;
-                                } else {
-                                    state.calculations = calculationMap.get(tsList.get(state.tsIdx));
-                                }
-                            }
+                    if (state.locIdx >= locTo) {
+                        state.locIdx = locFrom;
+                        do {
+                            state.tsIdx++;
+                        } while (state.tsIdx < tsTo && (state.calcCount = calculations(state.tsIdx, state.calculations)) == 0);
+
+                        if (state.tsIdx >= tsTo) {
+                            sink.complete();
+                            return state;
                         }
                     }
-                    sink.next(builder
-                            .id(ObjectId.get())
-                            .loc(grid.getPoints().get(state.locIdx))
-                            .calcTs(state.calculations.get(state.calcIdx))
-                            .ts(tsList.get(state.tsIdx))
-                            .parameter(state.parameterIdx)
-                            .value(rnd.nextFloat())
-                            .build());
-                    return state;
-                }
-        );
-    }
 
-    @AllArgsConstructor
-    static class CalcState {
-        int forecast;
-        int locIdx;
-        LocalDateTime ts;
-        LocalDateTime calcTs;
-        LocalDateTime forcastEnd;
-        int parameter;
-    }
+                    int tsHour = startHour + state.tsIdx * tsStepHours;
 
-    static class TsState {
-        int tsIdx;
-        int locIdx;
-        int calcIdx;
-        int parameterIdx;
-        List<LocalDateTime> calculations;
+                    GribFrame frame = state.frame;
+                    frame.clear();
+                    for (int calcIdx = 0; calcIdx < state.calcCount; calcIdx++) {
+                        int calcHour = startHour + state.calculations[calcIdx] * intervalHours;
+                        for (int parameter = 0; parameter < parameters; parameter++) {
+                            frame.add(tsHour, calcHour, state.locIdx, parameter,
+                                    valueModel.value(tsHour, calcHour, state.locIdx, parameter));
+                        }
+                    }
 
-        public TsState(List<LocalDateTime> calculations) {
-            this.calculations = calculations;
-        }
+                    state.locIdx++;
+                    sink.next(frame);
+                    return state;
+                }
+        );
     }
 
     @AllArgsConstructor
-    static class TsState2 {
+    static class FrameState {
         int tsIdx;
         int locIdx;
-        LocalDateTime ts;
-        LocalDateTime calcTs;
-        List<LocalDateTime> calcDates;
-        int calcIdx;
-        int parameter;
+        int[] calculations;
+        int calcCount;
+        GribFrame frame;
     }
 
 }
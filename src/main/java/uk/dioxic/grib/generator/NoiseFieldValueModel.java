@@ -0,0 +1,107 @@
+package uk.dioxic.grib.generator;
+
+import uk.dioxic.grib.model.GeoGrid;
+
+/**
+ * Smooth synthetic fields in [0, 1].
+ * <p>
+ * Each parameter is a multi-octave gradient noise field over longitude, latitude and valid time.
+ * A calculation sees that field plus a small perturbation of its own, growing with lead time,
+ * so successive calculations of the same timestamp are close but not identical.
+ * </p>
+ */
+public class NoiseFieldValueModel implements ValueModel {
+
+    private static final int OCTAVES = 4;
+    private static final double SPATIAL_SCALE_DEGREES = 10;
+    private static final double TEMPORAL_SCALE_HOURS = 48;
+    private static final double PERTURBATION = 0.05;
+    private static final double PERTURBATION_LEAD_HOURS = 120;
+
+    private final long seed;
+    private final GeoGrid grid;
+
+    public NoiseFieldValueModel(long seed, GeoGrid grid) {
+        this.seed = seed;
+        this.grid = grid;
+    }
+
+    @Override
+    public float value(int ts, int calcTs, int locIdx, int parameter) {
+        double x = grid.longitude(locIdx) / SPATIAL_SCALE_DEGREES;
+        double y = grid.latitude(locIdx) / SPATIAL_SCALE_DEGREES;
+        double z = ts / TEMPORAL_SCALE_HOURS;
+
+        long fieldSeed = CounterRandom.mix64(seed + parameter);
+        double field = fractalNoise(x, y, z, fieldSeed);
+
+        long calcSeed = CounterRandom.mix64(fieldSeed ^ calcTs);
+        double lead = Math.min(1, (ts - calcTs) / PERTURBATION_LEAD_HOURS);
+        double perturbation = PERTURBATION * lead * gradientNoise(2 * x, 2 * y, 2 * z, calcSeed);
+
+        double value = 0.5 + 0.5 * (field + perturbation);
+        return (float) Math.max(0, Math.min(1, value));
+    }
+
+    private static double fractalNoise(double x, double y, double z, long seed) {
+        double sum = 0;
+        double amplitude = 0.5;
+        double frequency = 1;
+        for (int octave = 0; octave < OCTAVES; octave++) {
+            sum += amplitude * gradientNoise(x * frequency, y * frequency, z * frequency, seed + octave);
+            amplitude *= 0.5;
+            frequency *= 2;
+        }
+        return sum / (1 - Math.pow(0.5, OCTAVES));
+    }
+
+    /**
+     * Improved Perlin noise with lattice gradients chosen by hashing the cell corner, roughly in [-1, 1].
+     */
+    static double gradientNoise(double x, double y, double z, long seed) {
+        int x0 = (int) Math.floor(x);
+        int y0 = (int) Math.floor(y);
+        int z0 = (int) Math.floor(z);
+        double fx = x - x0;
+        double fy = y - y0;
+        double fz = z - z0;
+        double u = fade(fx);
+        double v = fade(fy);
+        double w = fade(fz);
+
+        return lerp(w,
+                lerp(v,
+                        lerp(u, grad(seed, x0, y0, z0, fx, fy, fz), grad(seed, x0 + 1, y0, z0, fx - 1, fy, fz)),
+                        lerp(u, grad(seed, x0, y0 + 1, z0, fx, fy - 1, fz), grad(seed, x0 + 1, y0 + 1, z0, fx - 1, fy - 1, fz))),
+                lerp(v,
+                        lerp(u, grad(seed, x0, y0, z0 + 1, fx, fy, fz - 1), grad(seed, x0 + 1, y0, z0 + 1, fx - 1, fy, fz - 1)),
+                        lerp(u, grad(seed, x0, y0 + 1, z0 + 1, fx, fy - 1, fz - 1), grad(seed, x0 + 1, y0 + 1, z0 + 1, fx - 1, fy - 1, fz - 1))));
+    }
+
+    private static double grad(long seed, int xi, int yi, int zi, double x, double y, double z) {
+        long hash = CounterRandom.mix64(seed ^ (xi * 0x8da6b343L) ^ (yi * 0xd8163841L) ^ (zi * 0xcb1ab31fL));
+        switch ((int) (hash & 15)) {
+            case 0: case 12: return x + y;
+            case 1: case 14: return -x + y;
+            case 2: return x - y;
+            case 3: return -x - y;
+            case 4: return x + z;
+            case 5: return -x + z;
+            case 6: return x - z;
+            case 7: return -x - z;
+            case 8: return y + z;
+            case 9: case 13: return -y + z;
+            case 10: return y - z;
+            default: return -y - z;
+        }
+    }
+
+    private static double fade(double t) {
+        return t * t * t * (t * (t * 6 - 15) + 10);
+    }
+
+    private static double lerp(double t, double a, double b) {
+        return a + t * (b - a);
+    }
+
+}
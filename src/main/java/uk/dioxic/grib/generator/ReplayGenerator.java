@@ -0,0 +1,257 @@
+package uk.dioxic.grib.generator;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+import lombok.NonNull;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.types.ObjectId;
+import reactor.core.publisher.Flux;
+import uk.dioxic.grib.dump.DumpHeader;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.GribRecord.GribRecordBuilder;
+import uk.dioxic.grib.model.Point;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static uk.dioxic.grib.dump.DumpHeader.RECORD_LENGTH;
+
+/**
+ * Replays GRIB records from a binary dump written by the generate command.
+ * <p>
+ * The file is memory-mapped in windows so dumps larger than 2GB can be read. Consecutive records
+ * with the same ts, calcTs or location share instances, as they do when generated.
+ * </p>
+ */
+@Getter
+public class ReplayGenerator implements ForecastGenerator {
+    private static final long WINDOW_RECORDS = (1L << 30) / RECORD_LENGTH;
+
+    private final Logger LOG = LogManager.getLogger(this.getClass());
+
+    private final Path file;
+    private final DumpHeader header;
+    private final long recordFrom;
+    private final long recordTo;
+
+    @Builder
+    private ReplayGenerator(@NonNull Path file) {
+        this.file = file;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            this.header = DumpHeader.read(channel);
+            long expected = header.length() + header.getRecordCount() * RECORD_LENGTH;
+            if (channel.size() < expected) {
+                throw new IllegalArgumentException("dump file is truncated, expected " + expected + " bytes but found " + channel.size());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.recordFrom = 0;
+        this.recordTo = header.getRecordCount();
+    }
+
+    private ReplayGenerator(ReplayGenerator parent, long recordFrom, long recordTo) {
+        this.file = parent.file;
+        this.header = parent.header;
+        this.recordFrom = recordFrom;
+        this.recordTo = recordTo;
+    }
+
+    @Override
+    public int getParameters() {
+        return header.getParameters();
+    }
+
+    @Override
+    public int getHorizonDays() {
+        return header.getHorizonDays();
+    }
+
+    @Override
+    public int getResolutionHours() {
+        return header.getResolutionHours();
+    }
+
+    @Override
+    public int getIntervalHours() {
+        return header.getIntervalHours();
+    }
+
+    @Override
+    public String getGridName() {
+        return header.getGrid();
+    }
+
+    @Override
+    public Map<String, String> identity() {
+        Map<String, String> identity = ForecastGenerator.super.identity();
+        identity.put("file", file.toAbsolutePath().normalize().toString());
+        return identity;
+    }
+
+    @Override
+    public long recordCount() {
+        return recordTo - recordFrom;
+    }
+
+    /**
+     * Splits the dump into record ranges, moving each boundary forward to the next change of timestamp.
+     * <p>
+     * Concatenating the partitions in list order reproduces the output of {@link #generate()}.
+     * </p>
+     * @param partitions the number of partitions required
+     * @return generator partitions
+     */
+    @Override
+    public List<Generator<GribRecord>> split(int partitions) {
+        if (partitions <= 1 || recordCount() <= 1) {
+            return List.of(this);
+        }
+
+        List<Generator<GribRecord>> generators = new ArrayList<>(partitions);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer ts = ByteBuffer.allocate(4).order(DumpHeader.BYTE_ORDER);
+            long from = recordFrom;
+            for (int i = 1; i <= partitions; i++) {
+                long to = recordFrom + recordCount() * i / partitions;
+                if (to < recordTo) {
+                    to = nextTs(channel, ts, to);
+                }
+                if (to > from) {
+                    generators.add(new ReplayGenerator(this, from, to));
+                    from = to;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        LOG.debug("split generator into {} partitions", generators.size());
+
+        return generators;
+    }
+
+    /**
+     * First record at or after {@code from} whose timestamp differs from that of the record before it, found by
+     * binary search as the dump is in timestamp order.
+     */
+    private long nextTs(FileChannel channel, ByteBuffer buffer, long from) throws IOException {
+        int previous = readTs(channel, buffer, from - 1);
+        long low = from;
+        long high = recordTo;
+        while (low < high) {
+            long mid = (low + high) >>> 1;
+            if (readTs(channel, buffer, mid) == previous) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private int readTs(FileChannel channel, ByteBuffer buffer, long record) throws IOException {
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            channel.read(buffer, header.length() + record * RECORD_LENGTH + buffer.position());
+        }
+        return buffer.getInt(0);
+    }
+
+    @Override
+    public Flux<GribRecord> generate() {
+        GribRecordBuilder builder = GribRecord.builder();
+
+        LOG.info("creating grib flux for {} records replayed from {}", recordCount(), file);
+
+        return Flux.using(() -> FileChannel.open(file, StandardOpenOption.READ),
+                channel -> Flux.generate(
+                        () -> new ReplayState(recordFrom, -1, null, Integer.MIN_VALUE, null, Integer.MIN_VALUE, null, Double.NaN, Double.NaN, null),
+                        (state, sink) -> {
+                            if (state.record >= recordTo) {
+                                sink.complete();
+                                return state;
+                            }
+                            if (state.window == null || state.record >= state.windowFrom + WINDOW_RECORDS) {
+                                state.window = map(channel, state.record);
+                                state.windowFrom = state.record;
+                            }
+
+                            ByteBuffer buffer = state.window;
+                            int pos = (int) ((state.record - state.windowFrom) * RECORD_LENGTH);
+                            int ts = buffer.getInt(pos);
+                            int calcTs = buffer.getInt(pos + 4);
+                            double longitude = buffer.getDouble(pos + 8);
+                            double latitude = buffer.getDouble(pos + 16);
+
+                            if (ts != state.tsMinute) {
+                                state.tsMinute = ts;
+                                state.ts = DumpHeader.toLocalDateTime(ts);
+                            }
+                            if (calcTs != state.calcTsMinute) {
+                                state.calcTsMinute = calcTs;
+                                state.calcTs = DumpHeader.toLocalDateTime(calcTs);
+                            }
+                            if (longitude != state.longitude || latitude != state.latitude) {
+                                state.longitude = longitude;
+                                state.latitude = latitude;
+                                state.loc = new Point(longitude, latitude);
+                            }
+
+                            sink.next(builder
+                                    .id(ObjectId.get())
+                                    .loc(state.loc)
+                                    .calcTs(state.calcTs)
+                                    .ts(state.ts)
+                                    .parameter(buffer.getInt(pos + 24))
+                                    .value(buffer.getFloat(pos + 28))
+                                    .build());
+                            state.record++;
+                            return state;
+                        }),
+                this::close);
+    }
+
+    private ByteBuffer map(FileChannel channel, long record) {
+        try {
+            long records = Math.min(WINDOW_RECORDS, recordTo - record);
+            return channel.map(FileChannel.MapMode.READ_ONLY, header.length() + record * RECORD_LENGTH, records * RECORD_LENGTH)
+                    .order(DumpHeader.BYTE_ORDER);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @AllArgsConstructor
+    private static class ReplayState {
+        private long record;
+        private long windowFrom;
+        private ByteBuffer window;
+        private int tsMinute;
+        private LocalDateTime ts;
+        private int calcTsMinute;
+        private LocalDateTime calcTs;
+        private double longitude;
+        private double latitude;
+        private Point loc;
+    }
+
+}
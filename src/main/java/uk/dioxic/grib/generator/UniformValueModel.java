@@ -0,0 +1,23 @@
+package uk.dioxic.grib.generator;
+
+import lombok.RequiredArgsConstructor;
+import uk.dioxic.grib.model.GeoGrid;
+
+/**
+ * Independent uniformly distributed values in [0, 1).
+ */
+@RequiredArgsConstructor
+public class UniformValueModel implements ValueModel {
+
+    private final long seed;
+
+    public UniformValueModel(long seed, GeoGrid grid) {
+        this(seed);
+    }
+
+    @Override
+    public float value(int ts, int calcTs, int locIdx, int parameter) {
+        return CounterRandom.nextFloat(seed, ts, calcTs, locIdx, parameter);
+    }
+
+}
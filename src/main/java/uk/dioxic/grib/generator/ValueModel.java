@@ -0,0 +1,14 @@
+package uk.dioxic.grib.generator;
+
+/**
+ * Source of generated GRIB values.
+ * <p>
+ * Implementations must be pure functions of their arguments so that partitions and reruns agree.
+ * Timestamps are hours since the epoch and locations are grid indices.
+ * </p>
+ */
+public interface ValueModel {
+
+    float value(int ts, int calcTs, int locIdx, int parameter);
+
+}
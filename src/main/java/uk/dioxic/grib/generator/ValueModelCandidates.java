@@ -0,0 +1,19 @@
+package uk.dioxic.grib.generator;
+
+import lombok.RequiredArgsConstructor;
+import uk.dioxic.grib.model.GeoGrid;
+
+import java.util.function.BiFunction;
+
+@RequiredArgsConstructor
+public enum ValueModelCandidates {
+    UNIFORM(UniformValueModel::new),
+    NOISE(NoiseFieldValueModel::new);
+
+    private final BiFunction<Long, GeoGrid, ValueModel> factory;
+
+    public ValueModel create(long seed, GeoGrid grid) {
+        return factory.apply(seed, grid);
+    }
+
+}
@@ -0,0 +1,52 @@
+package uk.dioxic.grib.grib2;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Reads big-endian bit fields directly from a buffer without copying it.
+ */
+class BitReader {
+
+    private final ByteBuffer buffer;
+    private long bitPosition;
+
+    BitReader(ByteBuffer buffer, int byteOffset) {
+        this.buffer = buffer;
+        this.bitPosition = (long) byteOffset * 8;
+    }
+
+    /**
+     * Read an unsigned value of up to 32 bits.
+     */
+    long read(int bits) {
+        long result = 0;
+        int remaining = bits;
+        while (remaining > 0) {
+            int current = buffer.get((int) (bitPosition >>> 3)) & 0xff;
+            int available = 8 - (int) (bitPosition & 7);
+            int take = Math.min(available, remaining);
+            result = (result << take) | ((current >>> (available - take)) & ((1 << take) - 1));
+            remaining -= take;
+            bitPosition += take;
+        }
+        return result;
+    }
+
+    /**
+     * Read a sign-and-magnitude value, the sign being the leading bit.
+     */
+    long readSigned(int bits) {
+        boolean negative = read(1) == 1;
+        long magnitude = read(bits - 1);
+        return negative ? -magnitude : magnitude;
+    }
+
+    void skip(long bits) {
+        bitPosition += bits;
+    }
+
+    void alignToByte() {
+        bitPosition = (bitPosition + 7) & ~7L;
+    }
+
+}
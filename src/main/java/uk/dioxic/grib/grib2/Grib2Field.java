@@ -0,0 +1,28 @@
+package uk.dioxic.grib.grib2;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+
+/**
+ * Location and metadata of a single field within a GRIB2 file.
+ * <p>
+ * Section offsets are relative to the start of the message.
+ * </p>
+ */
+@Data
+@Builder
+public class Grib2Field {
+    private final Path file;
+    private final long messageOffset;
+    private final long messageLength;
+    private final Grib2Parameter parameter;
+    private final LocalDateTime referenceTime;
+    private final LocalDateTime validTime;
+    private final Grib2Grid grid;
+    private final int representationOffset;
+    private final int bitmapOffset;
+    private final int dataOffset;
+}
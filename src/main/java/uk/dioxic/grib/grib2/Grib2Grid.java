@@ -0,0 +1,53 @@
+package uk.dioxic.grib.grib2;
+
+import lombok.Data;
+import uk.dioxic.grib.model.Point;
+
+/**
+ * Regular latitude/longitude grid (GRIB2 grid definition template 3.0).
+ * <p>
+ * Coordinates are in micro-degrees as encoded in the message.
+ * </p>
+ */
+@Data
+public class Grib2Grid {
+    private static final int I_NEGATIVE = 0x80;
+    private static final int J_POSITIVE = 0x40;
+    private static final int J_CONSECUTIVE = 0x20;
+
+    private final int ni;
+    private final int nj;
+    private final int la1;
+    private final int lo1;
+    private final int di;
+    private final int dj;
+    private final int scanningMode;
+
+    public int size() {
+        return ni * nj;
+    }
+
+    /**
+     * Location of the n-th data point, with longitudes normalised to [-180, 180).
+     */
+    public Point point(int n) {
+        int i;
+        int j;
+        if ((scanningMode & J_CONSECUTIVE) == 0) {
+            i = n % ni;
+            j = n / ni;
+        } else {
+            i = n / nj;
+            j = n % nj;
+        }
+
+        long lon = lo1 + (long) i * di * ((scanningMode & I_NEGATIVE) == 0 ? 1 : -1);
+        long lat = la1 + (long) j * dj * ((scanningMode & J_POSITIVE) == 0 ? -1 : 1);
+
+        double longitude = lon / 1e6;
+        longitude = ((longitude + 180) % 360 + 360) % 360 - 180;
+
+        return new Point(longitude, lat / 1e6);
+    }
+
+}
@@ -0,0 +1,33 @@
+package uk.dioxic.grib.grib2;
+
+import lombok.Data;
+
+/**
+ * Parameter identity: discipline, category and number plus the first fixed surface.
+ */
+@Data
+public class Grib2Parameter implements Comparable<Grib2Parameter> {
+    private final int discipline;
+    private final int category;
+    private final int number;
+    private final int surfaceType;
+    private final double surfaceValue;
+
+    @Override
+    public int compareTo(Grib2Parameter other) {
+        int result = Integer.compare(discipline, other.discipline);
+        if (result == 0) {
+            result = Integer.compare(category, other.category);
+        }
+        if (result == 0) {
+            result = Integer.compare(number, other.number);
+        }
+        if (result == 0) {
+            result = Integer.compare(surfaceType, other.surfaceType);
+        }
+        if (result == 0) {
+            result = Double.compare(surfaceValue, other.surfaceValue);
+        }
+        return result;
+    }
+}
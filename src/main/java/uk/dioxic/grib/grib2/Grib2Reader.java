@@ -0,0 +1,387 @@
+package uk.dioxic.grib.grib2;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimal GRIB2 decoder working directly on memory-mapped messages.
+ * <p>
+ * Supports regular lat/lon grids (template 3.0), the common product templates sharing the
+ * layout of 4.0 and simple (5.0) or complex packing with optional spatial differencing (5.2, 5.3).
+ * </p>
+ */
+public class Grib2Reader {
+    private static final Logger LOG = LogManager.getLogger(Grib2Reader.class);
+    private static final int INDICATOR_LENGTH = 16;
+    private static final int SEARCH_CHUNK = 64 * 1024;
+
+    private Grib2Reader() {
+    }
+
+    /**
+     * Scan a file for GRIB2 messages and index every field found, decoding only the metadata sections.
+     */
+    public static List<Grib2Field> index(Path file) throws IOException {
+        List<Grib2Field> fields = new ArrayList<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer indicator = ByteBuffer.allocate(INDICATOR_LENGTH);
+            long position = find(channel, 0);
+
+            while (position >= 0) {
+                indicator.clear();
+                while (indicator.hasRemaining() && channel.read(indicator, position + indicator.position()) > 0) ;
+                if (indicator.hasRemaining()) {
+                    LOG.warn("truncated GRIB message at offset {} in {}", position, file);
+                    break;
+                }
+                int edition = indicator.get(7) & 0xff;
+                if (edition != 2) {
+                    throw new IllegalArgumentException("unsupported GRIB edition " + edition + " at offset " + position + " in " + file);
+                }
+                long length = indicator.getLong(8);
+                if (position + length > channel.size()) {
+                    LOG.warn("truncated GRIB message at offset {} in {}", position, file);
+                    break;
+                }
+
+                ByteBuffer message = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                index(file, position, message, fields);
+
+                position = find(channel, position + length);
+            }
+        }
+
+        LOG.debug("indexed {} fields in {}", fields.size(), file);
+        return fields;
+    }
+
+    static void index(Path file, long offset, ByteBuffer message, List<Grib2Field> fields) {
+        int discipline = message.get(6) & 0xff;
+        LocalDateTime referenceTime = null;
+        Grib2Grid grid = null;
+        Grib2Parameter parameter = null;
+        long forecastMinutes = 0;
+        int representationOffset = -1;
+        int bitmapOffset = -1;
+
+        int pos = INDICATOR_LENGTH;
+        while (pos + 4 < message.limit() && !isEndSection(message, pos)) {
+            int sectionLength = message.getInt(pos);
+            int section = message.get(pos + 4) & 0xff;
+            switch (section) {
+                case 1:
+                    referenceTime = LocalDateTime.of(
+                            message.getShort(pos + 12) & 0xffff,
+                            message.get(pos + 14),
+                            message.get(pos + 15),
+                            message.get(pos + 16),
+                            message.get(pos + 17),
+                            message.get(pos + 18));
+                    break;
+                case 3:
+                    grid = grid(message, pos);
+                    break;
+                case 4:
+                    int productTemplate = message.getShort(pos + 7) & 0xffff;
+                    if (productTemplate > 15) {
+                        throw new IllegalArgumentException("unsupported product definition template 4." + productTemplate);
+                    }
+                    parameter = new Grib2Parameter(discipline,
+                            message.get(pos + 9) & 0xff,
+                            message.get(pos + 10) & 0xff,
+                            message.get(pos + 22) & 0xff,
+                            scaled(signedInt(message, pos + 24), signedByte(message, pos + 23)));
+                    forecastMinutes = minutes(message.get(pos + 17) & 0xff, signedInt(message, pos + 18));
+                    break;
+                case 5:
+                    representationOffset = pos;
+                    break;
+                case 6:
+                    int bitmapIndicator = message.get(pos + 5) & 0xff;
+                    if (bitmapIndicator == 0) {
+                        bitmapOffset = pos;
+                    } else if (bitmapIndicator == 255) {
+                        bitmapOffset = -1;
+                    } else if (bitmapIndicator != 254) {
+                        throw new IllegalArgumentException("unsupported predefined bitmap " + bitmapIndicator);
+                    }
+                    break;
+                case 7:
+                    if (referenceTime == null || grid == null || parameter == null || representationOffset < 0) {
+                        throw new IllegalArgumentException("incomplete GRIB message at offset " + offset + " in " + file);
+                    }
+                    fields.add(Grib2Field.builder()
+                            .file(file)
+                            .messageOffset(offset)
+                            .messageLength(message.limit())
+                            .parameter(parameter)
+                            .referenceTime(referenceTime)
+                            .validTime(referenceTime.plusMinutes(forecastMinutes))
+                            .grid(grid)
+                            .representationOffset(representationOffset)
+                            .bitmapOffset(bitmapOffset)
+                            .dataOffset(pos)
+                            .build());
+                    break;
+                default:
+            }
+            pos += sectionLength;
+        }
+    }
+
+    /**
+     * Decode the values of a field from its memory-mapped message.
+     * <p>
+     * Points masked out by the bitmap or flagged as missing are returned as {@link Float#NaN}.
+     * </p>
+     */
+    public static float[] decode(Grib2Field field, ByteBuffer message) {
+        int drs = field.getRepresentationOffset();
+        int packedCount = message.getInt(drs + 5);
+        int template = message.getShort(drs + 9) & 0xffff;
+
+        float[] packed;
+        switch (template) {
+            case 0:
+                packed = unpackSimple(message, drs, field.getDataOffset(), packedCount);
+                break;
+            case 2:
+            case 3:
+                packed = unpackComplex(message, drs, field.getDataOffset(), packedCount, template == 3);
+                break;
+            default:
+                throw new IllegalArgumentException("unsupported data representation template 5." + template);
+        }
+
+        int points = field.getGrid().size();
+        if (field.getBitmapOffset() < 0) {
+            if (packed.length != points) {
+                throw new IllegalArgumentException("expected " + points + " values but found " + packed.length);
+            }
+            return packed;
+        }
+
+        float[] values = new float[points];
+        BitReader bitmap = new BitReader(message, field.getBitmapOffset() + 6);
+        int next = 0;
+        for (int i = 0; i < points; i++) {
+            values[i] = bitmap.read(1) == 1 ? packed[next++] : Float.NaN;
+        }
+        return values;
+    }
+
+    private static float[] unpackSimple(ByteBuffer message, int drs, int data, int count) {
+        float reference = message.getFloat(drs + 11);
+        double binaryScale = Math.pow(2, signedShort(message, drs + 15));
+        double decimalScale = Math.pow(10, -signedShort(message, drs + 17));
+        int bits = message.get(drs + 19) & 0xff;
+
+        float[] values = new float[count];
+        BitReader reader = new BitReader(message, data + 5);
+        for (int i = 0; i < count; i++) {
+            long x = bits == 0 ? 0 : reader.read(bits);
+            values[i] = (float) ((reference + x * binaryScale) * decimalScale);
+        }
+        return values;
+    }
+
+    private static float[] unpackComplex(ByteBuffer message, int drs, int data, int count, boolean spatialDifferencing) {
+        float reference = message.getFloat(drs + 11);
+        double binaryScale = Math.pow(2, signedShort(message, drs + 15));
+        double decimalScale = Math.pow(10, -signedShort(message, drs + 17));
+        int referenceBits = message.get(drs + 19) & 0xff;
+        int missingManagement = message.get(drs + 22) & 0xff;
+        int groups = message.getInt(drs + 31);
+        int widthReference = message.get(drs + 35) & 0xff;
+        int widthBits = message.get(drs + 36) & 0xff;
+        long lengthReference = message.getInt(drs + 37) & 0xffffffffL;
+        int lengthIncrement = message.get(drs + 41) & 0xff;
+        long lastLength = message.getInt(drs + 42) & 0xffffffffL;
+        int lengthBits = message.get(drs + 46) & 0xff;
+
+        BitReader reader = new BitReader(message, data + 5);
+
+        int order = 0;
+        long first = 0;
+        long second = 0;
+        long minimum = 0;
+        if (spatialDifferencing) {
+            order = message.get(drs + 47) & 0xff;
+            int descriptorBits = (message.get(drs + 48) & 0xff) * 8;
+            if (descriptorBits > 0) {
+                first = reader.readSigned(descriptorBits);
+                if (order == 2) {
+                    second = reader.readSigned(descriptorBits);
+                }
+                minimum = reader.readSigned(descriptorBits);
+            }
+        }
+
+        long[] groupReference = readGroup(reader, groups, referenceBits);
+        long[] groupWidth = readGroup(reader, groups, widthBits);
+        long[] groupLength = readGroup(reader, groups, lengthBits);
+        for (int g = 0; g < groups; g++) {
+            groupWidth[g] += widthReference;
+            groupLength[g] = groupLength[g] * lengthIncrement + lengthReference;
+        }
+        if (groups > 0) {
+            groupLength[groups - 1] = lastLength;
+        }
+        long described = 0;
+        for (long length : groupLength) {
+            described += length;
+        }
+        if (described != count) {
+            throw new IllegalArgumentException("group lengths describe " + described + " values but expected " + count);
+        }
+
+        long[] ints = new long[count];
+        boolean[] missing = missingManagement == 0 ? null : new boolean[count];
+        long missingGroup = (1L << referenceBits) - 1;
+        int n = 0;
+        int present = 0;
+        for (int g = 0; g < groups; g++) {
+            int width = (int) groupWidth[g];
+            long missingValue = (1L << width) - 1;
+            for (long k = 0; k < groupLength[g]; k++, n++) {
+                long x = width == 0 ? 0 : reader.read(width);
+                if (missing != null && isMissing(width == 0 ? groupReference[g] : x,
+                        width == 0 ? missingGroup : missingValue, missingManagement)) {
+                    missing[n] = true;
+                } else {
+                    ints[present++] = x + groupReference[g];
+                }
+            }
+        }
+
+        if (order == 1 && present > 0) {
+            ints[0] = first;
+            for (int i = 1; i < present; i++) {
+                ints[i] += minimum + ints[i - 1];
+            }
+        } else if (order == 2 && present > 1) {
+            ints[0] = first;
+            ints[1] = second;
+            for (int i = 2; i < present; i++) {
+                ints[i] += minimum + 2 * ints[i - 1] - ints[i - 2];
+            }
+        }
+
+        float[] values = new float[count];
+        for (int i = 0, next = 0; i < count; i++) {
+            values[i] = missing != null && missing[i]
+                    ? Float.NaN
+                    : (float) ((reference + ints[next++] * binaryScale) * decimalScale);
+        }
+        return values;
+    }
+
+    private static boolean isMissing(long value, long primary, int management) {
+        return value == primary || (management == 2 && value == primary - 1);
+    }
+
+    private static long[] readGroup(BitReader reader, int groups, int bits) {
+        long[] values = new long[groups];
+        if (bits > 0) {
+            for (int g = 0; g < groups; g++) {
+                values[g] = reader.read(bits);
+            }
+            reader.alignToByte();
+        }
+        return values;
+    }
+
+    private static Grib2Grid grid(ByteBuffer message, int pos) {
+        int template = message.getShort(pos + 12) & 0xffff;
+        if (template != 0) {
+            throw new IllegalArgumentException("unsupported grid definition template 3." + template);
+        }
+        return new Grib2Grid(
+                message.getInt(pos + 30),
+                message.getInt(pos + 34),
+                signedInt(message, pos + 46),
+                signedInt(message, pos + 50),
+                message.getInt(pos + 63),
+                message.getInt(pos + 67),
+                message.get(pos + 71) & 0xff);
+    }
+
+    private static long minutes(int unit, int value) {
+        switch (unit) {
+            case 0:
+                return value;
+            case 1:
+                return ChronoUnit.HOURS.getDuration().toMinutes() * value;
+            case 2:
+                return ChronoUnit.DAYS.getDuration().toMinutes() * value;
+            case 10:
+                return 180L * value;
+            case 11:
+                return 360L * value;
+            case 12:
+                return 720L * value;
+            case 13:
+                return value / 60;
+            default:
+                throw new IllegalArgumentException("unsupported forecast time unit " + unit);
+        }
+    }
+
+    private static double scaled(int value, int scale) {
+        return scale == 0 ? value : value / Math.pow(10, scale);
+    }
+
+    private static int signedByte(ByteBuffer buffer, int pos) {
+        int value = buffer.get(pos) & 0xff;
+        return (value & 0x80) == 0 ? value : -(value & 0x7f);
+    }
+
+    private static int signedShort(ByteBuffer buffer, int pos) {
+        int value = buffer.getShort(pos) & 0xffff;
+        return (value & 0x8000) == 0 ? value : -(value & 0x7fff);
+    }
+
+    private static int signedInt(ByteBuffer buffer, int pos) {
+        int value = buffer.getInt(pos);
+        return value >= 0 ? value : -(value & 0x7fffffff);
+    }
+
+    private static boolean isEndSection(ByteBuffer message, int pos) {
+        return message.get(pos) == '7' && message.get(pos + 1) == '7'
+                && message.get(pos + 2) == '7' && message.get(pos + 3) == '7';
+    }
+
+    /**
+     * Find the offset of the next "GRIB" indicator at or after the given position.
+     */
+    private static long find(FileChannel channel, long position) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(SEARCH_CHUNK);
+        long size = channel.size();
+        while (position + 4 <= size) {
+            chunk.clear();
+            int read = channel.read(chunk, position);
+            if (read < 4) {
+                return -1;
+            }
+            for (int i = 0; i + 4 <= read; i++) {
+                if (chunk.get(i) == 'G' && chunk.get(i + 1) == 'R' && chunk.get(i + 2) == 'I' && chunk.get(i + 3) == 'B') {
+                    return position + i;
+                }
+            }
+            position += read - 3;
+        }
+        return -1;
+    }
+
+}
@@ -0,0 +1,212 @@
+package uk.dioxic.grib.loader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adjusts batch size and write concurrency towards maximum throughput under a latency ceiling.
+ * <p>
+ * Completed writes are evaluated in windows. A window whose average latency is above the ceiling
+ * decreases concurrency multiplicatively, or the batch size once concurrency is down to one.
+ * Otherwise one dimension is increased additively (concurrency by one, batch size by a quarter)
+ * and kept only if throughput does not fall, alternating between dimensions. When neither dimension
+ * improves throughput the controller has settled and holds until latency breaches the ceiling again.
+ * </p>
+ */
+public class AdaptiveController {
+    private static final Logger LOG = LogManager.getLogger(AdaptiveController.class);
+
+    /**
+     * MongoDB splits bulk writes larger than its maxWriteBatchSize of 100,000 anyway
+     */
+    static final int MAX_BATCH_SIZE = 100_000;
+    static final int MIN_BATCH_SIZE = 10;
+    private static final double DECREASE = 0.7;
+    private static final double BATCH_INCREASE = 1.25;
+    private static final double TOLERANCE = 0.97;
+    private static final int MIN_WINDOW = 8;
+
+    private enum Dimension {CONCURRENCY, BATCH_SIZE}
+
+    private final long latencyCeilingNanos;
+    private final int maxConcurrency;
+    private final AsyncLimiter limiter;
+
+    private volatile int batchSize;
+    private volatile int concurrency;
+
+    private long windowStartNanos;
+    private int windowBatches;
+    private long windowRecords;
+    private long windowLatencyNanos;
+
+    private Dimension dimension = Dimension.CONCURRENCY;
+    private boolean warmup = true;
+    private boolean probing;
+    private boolean settled;
+    private int failures;
+    private double baselineThroughput;
+    private int previousBatchSize;
+    private int previousConcurrency;
+    private int adjustments;
+
+    public AdaptiveController(int batchSize, int concurrency, int maxConcurrency, Duration latencyCeiling) {
+        this.batchSize = Math.max(MIN_BATCH_SIZE, Math.min(MAX_BATCH_SIZE, batchSize));
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.concurrency = Math.max(1, Math.min(this.maxConcurrency, concurrency));
+        this.latencyCeilingNanos = latencyCeiling.toNanos();
+        this.limiter = new AsyncLimiter(this.concurrency);
+        this.windowStartNanos = System.nanoTime();
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public int getConcurrency() {
+        return concurrency;
+    }
+
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    public synchronized int getAdjustments() {
+        return adjustments;
+    }
+
+    public synchronized boolean isSettled() {
+        return settled;
+    }
+
+    /**
+     * Completes when a write may start, the permit must be returned with {@link #release()}.
+     */
+    public Mono<Void> acquire() {
+        return limiter.acquire();
+    }
+
+    public void release() {
+        limiter.release();
+    }
+
+    /**
+     * Record a completed write.
+     * @param records records written
+     * @param latencyNanos write latency
+     * @param nowNanos completion time
+     */
+    public synchronized void onComplete(long records, long latencyNanos, long nowNanos) {
+        windowBatches++;
+        windowRecords += records;
+        windowLatencyNanos += latencyNanos;
+
+        if (windowBatches < Math.max(MIN_WINDOW, 2 * concurrency)) {
+            return;
+        }
+
+        long elapsedNanos = Math.max(1, nowNanos - windowStartNanos);
+        double throughput = windowRecords * 1e9 / elapsedNanos;
+        long averageLatencyNanos = windowLatencyNanos / windowBatches;
+
+        windowStartNanos = nowNanos;
+        windowBatches = 0;
+        windowRecords = 0;
+        windowLatencyNanos = 0;
+
+        // the first window after a change still holds writes started under the previous settings
+        if (warmup) {
+            warmup = false;
+            return;
+        }
+
+        evaluate(throughput, averageLatencyNanos);
+    }
+
+    private void evaluate(double throughput, long averageLatencyNanos) {
+        long latencyMillis = TimeUnit.NANOSECONDS.toMillis(averageLatencyNanos);
+
+        boolean probed = probing;
+        probing = false;
+
+        if (probed && (averageLatencyNanos > latencyCeilingNanos || throughput < baselineThroughput * TOLERANCE)) {
+            adjust(previousBatchSize, previousConcurrency, "throughput {}/s at latency {}ms, reverting", (long) throughput, latencyMillis);
+            dimension = other(dimension);
+            if (++failures >= Dimension.values().length) {
+                settled = true;
+                LOG.info("adaptive controller settled on batch size {} and concurrency {}", batchSize, concurrency);
+            }
+            return;
+        }
+        if (probed) {
+            failures = 0;
+        }
+
+        if (averageLatencyNanos > latencyCeilingNanos) {
+            if (concurrency > 1) {
+                adjust(batchSize, (int) (concurrency * DECREASE), "latency {}ms above ceiling", latencyMillis);
+            } else if (batchSize > MIN_BATCH_SIZE) {
+                adjust(Math.max(MIN_BATCH_SIZE, (int) (batchSize * DECREASE)), concurrency, "latency {}ms above ceiling", latencyMillis);
+            }
+            settled = false;
+            failures = 0;
+            return;
+        }
+
+        baselineThroughput = throughput;
+        if (settled) {
+            return;
+        }
+
+        if (dimension == Dimension.CONCURRENCY && concurrency >= maxConcurrency) {
+            dimension = Dimension.BATCH_SIZE;
+        }
+        if (dimension == Dimension.BATCH_SIZE && batchSize >= MAX_BATCH_SIZE) {
+            dimension = Dimension.CONCURRENCY;
+        }
+
+        previousBatchSize = batchSize;
+        previousConcurrency = concurrency;
+        if (dimension == Dimension.CONCURRENCY && concurrency < maxConcurrency) {
+            probing = adjust(batchSize, concurrency + 1, "throughput {}/s at latency {}ms, increasing concurrency", (long) throughput, latencyMillis);
+        } else if (batchSize < MAX_BATCH_SIZE) {
+            probing = adjust((int) Math.min(MAX_BATCH_SIZE, Math.ceil(batchSize * BATCH_INCREASE)), concurrency,
+                    "throughput {}/s at latency {}ms, increasing batch size", (long) throughput, latencyMillis);
+        } else {
+            settled = true;
+        }
+    }
+
+    private boolean adjust(int newBatchSize, int newConcurrency, String reason, Object... args) {
+        newConcurrency = Math.max(1, Math.min(maxConcurrency, newConcurrency));
+        if (newBatchSize == batchSize && newConcurrency == concurrency) {
+            return false;
+        }
+
+        LOG.info("adjusting batch size {} -> {} and concurrency {} -> {}: " + reason,
+                concat(new Object[]{batchSize, newBatchSize, concurrency, newConcurrency}, args));
+
+        batchSize = newBatchSize;
+        concurrency = newConcurrency;
+        limiter.setLimit(newConcurrency);
+        adjustments++;
+        warmup = true;
+        return true;
+    }
+
+    private static Dimension other(Dimension dimension) {
+        return dimension == Dimension.CONCURRENCY ? Dimension.BATCH_SIZE : Dimension.CONCURRENCY;
+    }
+
+    private static Object[] concat(Object[] a, Object[] b) {
+        Object[] result = new Object[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+}
@@ -0,0 +1,127 @@
+package uk.dioxic.grib.loader;
+
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+/**
+ * Non-blocking permit limiter whose limit can change while permits are held.
+ * <p>
+ * Waiters are granted permits in arrival order. Lowering the limit takes effect as held permits are released.
+ * A request for more permits than the limit is granted once nothing else is held, so it cannot wait forever.
+ * Cancelling a pending acquire gives up its place in the queue, or returns its permits if they were granted as
+ * it was cancelled.
+ * </p>
+ */
+class AsyncLimiter {
+    private final Queue<Waiter> waiters = new ArrayDeque<>();
+    private long limit;
+    private long inFlight;
+
+    AsyncLimiter(long limit) {
+        this.limit = limit;
+    }
+
+    Mono<Void> acquire() {
+        return acquire(1);
+    }
+
+    Mono<Void> acquire(long permits) {
+        return Mono.create(sink -> {
+            Waiter waiter = new Waiter(sink, permits);
+            sink.onCancel(() -> cancel(waiter));
+            boolean granted;
+            synchronized (this) {
+                if (waiter.cancelled) {
+                    return;
+                }
+                granted = waiters.isEmpty() && grantable(permits);
+                if (granted) {
+                    inFlight += permits;
+                    waiter.granted = true;
+                } else {
+                    waiters.add(waiter);
+                }
+            }
+            if (granted) {
+                sink.success();
+            }
+        });
+    }
+
+    /**
+     * A cancelled waiter that was granted may have had its success signal dropped, so its permits are released
+     * rather than leaked. Reactor does not call back on a cancel after the signal has been delivered.
+     */
+    private void cancel(Waiter waiter) {
+        boolean queued;
+        boolean granted;
+        synchronized (this) {
+            waiter.cancelled = true;
+            queued = waiters.remove(waiter);
+            granted = waiter.granted;
+        }
+        if (granted) {
+            release(waiter.permits);
+        } else if (queued) {
+            // waiters behind it may now be at the head
+            grant();
+        }
+    }
+
+    void release() {
+        release(1);
+    }
+
+    void release(long permits) {
+        synchronized (this) {
+            inFlight -= permits;
+        }
+        grant();
+    }
+
+    void setLimit(long limit) {
+        synchronized (this) {
+            this.limit = limit;
+        }
+        grant();
+    }
+
+    synchronized long getInFlight() {
+        return inFlight;
+    }
+
+    private boolean grantable(long permits) {
+        return inFlight == 0 || inFlight + permits <= limit;
+    }
+
+    private void grant() {
+        while (true) {
+            Waiter next;
+            synchronized (this) {
+                if (waiters.isEmpty() || !grantable(waiters.peek().permits)) {
+                    return;
+                }
+                next = waiters.poll();
+                inFlight += next.permits;
+                next.granted = true;
+            }
+            next.sink.success();
+        }
+    }
+
+    private static class Waiter {
+        private final MonoSink<Void> sink;
+        private final long permits;
+        private boolean granted;
+        private boolean cancelled;
+
+        private Waiter(MonoSink<Void> sink, long permits) {
+            this.sink = sink;
+            this.permits = permits;
+        }
+    }
+
+}
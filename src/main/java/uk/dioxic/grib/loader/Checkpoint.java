@@ -0,0 +1,252 @@
+package uk.dioxic.grib.loader;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.schema.Schema;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load progress over the segments of a generator, persisted to a properties file.
+ * <p>
+ * A segment is complete once it has been fully generated and every batch of it acknowledged. The watermark is the
+ * number of leading segments that are all complete; completed segments beyond it are kept as well so that a resumed
+ * load only rewrites what was actually missing.
+ * </p>
+ * <p>
+ * The file records the segment and record counts of the load it belongs to, along with the generator settings and
+ * schema, and is only resumed by a load that matches all of them. Saves go through a temporary file so a crash never
+ * leaves a torn checkpoint behind.
+ * </p>
+ */
+public class Checkpoint {
+    private static final Logger LOG = LogManager.getLogger(Checkpoint.class);
+    private static final String SEGMENTS = "segments";
+    private static final String RECORDS = "records";
+    private static final String WATERMARK = "watermark";
+    private static final String COMPLETED = "completed";
+    private static final String IDENTITY_PREFIX = "load.";
+
+    private final Path file;
+    private final int segments;
+    private final long records;
+    private final Map<String, String> identity;
+    private final BitSet completed;
+    private final boolean resumed;
+
+    private Checkpoint(Path file, int segments, long records, Map<String, String> identity, BitSet completed, boolean resumed) {
+        this.file = file;
+        this.segments = segments;
+        this.records = records;
+        this.identity = identity;
+        this.completed = completed;
+        this.resumed = resumed;
+    }
+
+    /**
+     * Identity of a load of the generator with the schema.
+     */
+    public static Map<String, String> identity(Generator<?> generator, Schema<?, ?> schema) {
+        Map<String, String> identity = new LinkedHashMap<>(generator.identity());
+        identity.put("schema", schema.getClass().getSimpleName());
+        return identity;
+    }
+
+    /**
+     * An empty checkpoint, overwriting any previous file on the first save.
+     */
+    public static Checkpoint create(Path file, int segments, long records, Map<String, String> identity) {
+        return new Checkpoint(file, segments, records, identity, new BitSet(segments), false);
+    }
+
+    /**
+     * Resume from the checkpoint file if there is one, otherwise start empty.
+     * @throws IllegalStateException if the file belongs to a load with different segments, records or identity
+     */
+    public static Checkpoint resume(Path file, int segments, long records, Map<String, String> identity) {
+        if (!Files.exists(file)) {
+            LOG.info("no checkpoint found at {}, starting from the beginning", file);
+            return create(file, segments, records, identity);
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file)) {
+            properties.load(reader);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        int fileSegments = Integer.parseInt(properties.getProperty(SEGMENTS));
+        long fileRecords = Long.parseLong(properties.getProperty(RECORDS));
+        if (fileSegments != segments || fileRecords != records) {
+            throw new IllegalStateException(String.format(
+                    "checkpoint %s is for %d records in %d segments, not %d records in %d segments",
+                    file, fileRecords, fileSegments, records, segments));
+        }
+
+        Map<String, String> fileIdentity = new LinkedHashMap<>();
+        for (String name : properties.stringPropertyNames()) {
+            if (name.startsWith(IDENTITY_PREFIX)) {
+                fileIdentity.put(name.substring(IDENTITY_PREFIX.length()), properties.getProperty(name));
+            }
+        }
+        if (!fileIdentity.equals(identity)) {
+            throw new IllegalStateException(String.format("checkpoint %s is for load %s, not %s",
+                    file, fileIdentity, identity));
+        }
+
+        BitSet completed = parseRanges(properties.getProperty(COMPLETED, ""));
+        completed.set(0, Integer.parseInt(properties.getProperty(WATERMARK, "0")));
+
+        Checkpoint checkpoint = new Checkpoint(file, segments, records, identity, completed, true);
+        LOG.info("resuming from checkpoint with {} of {} segments complete and watermark {}",
+                completed.cardinality(), segments, checkpoint.getWatermark());
+        return checkpoint;
+    }
+
+    public synchronized boolean isComplete(int segment) {
+        return completed.get(segment);
+    }
+
+    public synchronized int getWatermark() {
+        return completed.nextClearBit(0);
+    }
+
+    public synchronized int getCompletedCount() {
+        return completed.cardinality();
+    }
+
+    public int getSegments() {
+        return segments;
+    }
+
+    /**
+     * Whether progress was read from an earlier load, whose incomplete segments may be partially written.
+     */
+    public boolean isResumed() {
+        return resumed;
+    }
+
+    /**
+     * Ranges of incomplete segments as {@code [from, to)} pairs, in segment order.
+     */
+    public synchronized List<int[]> incompleteRanges() {
+        List<int[]> ranges = new ArrayList<>();
+        for (int from = completed.nextClearBit(0); from < segments; ) {
+            int next = completed.nextSetBit(from);
+            int to = next < 0 ? segments : Math.min(next, segments);
+            ranges.add(new int[]{from, to});
+            from = completed.nextClearBit(to);
+        }
+        return ranges;
+    }
+
+    /**
+     * Start tracking a segment, which completes after {@link Segment#generated()} once all its batches
+     * are acknowledged.
+     */
+    public Segment segment(int segment) {
+        return new Segment(segment);
+    }
+
+    private synchronized void complete(int segment) {
+        completed.set(segment);
+    }
+
+    public synchronized void save() {
+        Properties properties = new Properties();
+        int watermark = completed.nextClearBit(0);
+        properties.setProperty(SEGMENTS, Integer.toString(segments));
+        properties.setProperty(RECORDS, Long.toString(records));
+        identity.forEach((name, value) -> properties.setProperty(IDENTITY_PREFIX + name, value));
+        properties.setProperty(WATERMARK, Integer.toString(watermark));
+        properties.setProperty(COMPLETED, formatRanges(completed.get(watermark, Math.max(watermark, completed.length())), watermark));
+
+        try {
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (Writer writer = Files.newBufferedWriter(tmp)) {
+                properties.store(writer, "load checkpoint");
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Format set bits as comma separated ranges, e.g. {@code 3-7,9}.
+     */
+    static String formatRanges(BitSet bits, int offset) {
+        StringBuilder sb = new StringBuilder();
+        for (int from = bits.nextSetBit(0); from >= 0; from = bits.nextSetBit(from)) {
+            int to = bits.nextClearBit(from);
+            if (sb.length() > 0) {
+                sb.append(',');
+            }
+            sb.append(from + offset);
+            if (to - from > 1) {
+                sb.append('-').append(to - 1 + offset);
+            }
+            from = to;
+        }
+        return sb.toString();
+    }
+
+    static BitSet parseRanges(String ranges) {
+        BitSet bits = new BitSet();
+        for (String range : ranges.split(",")) {
+            if (range.isBlank()) {
+                continue;
+            }
+            String[] bounds = range.trim().split("-");
+            int from = Integer.parseInt(bounds[0]);
+            int to = bounds.length > 1 ? Integer.parseInt(bounds[1]) : from;
+            bits.set(from, to + 1);
+        }
+        return bits;
+    }
+
+    /**
+     * Outstanding work of one segment, one count for its generation plus one per unacknowledged batch.
+     */
+    public class Segment {
+        private final int segment;
+        private final AtomicLong outstanding = new AtomicLong(1);
+
+        private Segment(int segment) {
+            this.segment = segment;
+        }
+
+        public void batch() {
+            outstanding.incrementAndGet();
+        }
+
+        public void acknowledged() {
+            release();
+        }
+
+        public void generated() {
+            release();
+        }
+
+        private void release() {
+            if (outstanding.decrementAndGet() == 0) {
+                complete(segment);
+            }
+        }
+    }
+}
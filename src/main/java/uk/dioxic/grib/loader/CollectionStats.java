@@ -0,0 +1,104 @@
+package uk.dioxic.grib.loader;
+
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import lombok.Value;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import reactor.core.publisher.Mono;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Document count and sizes in bytes of a collection from {@code collStats}.
+ * <p>
+ * WiredTiger only allocates storage for written data at a checkpoint, so the stats are best taken after
+ * {@link #checkpoint(MongoDatabase)}.
+ * </p>
+ */
+@Value
+public class CollectionStats {
+    private static final Logger LOG = LogManager.getLogger(CollectionStats.class);
+
+    long count;
+    long size;
+    long storageSize;
+    long totalIndexSize;
+    long avgObjSize;
+    Map<String, Long> indexSizes;
+
+    public static Mono<CollectionStats> of(MongoDatabase database, String collectionName) {
+        return Mono.from(database.runCommand(new Document("collStats", collectionName)))
+                .map(stats -> {
+                    Map<String, Long> indexSizes = new LinkedHashMap<>();
+                    Document indexes = stats.get("indexSizes", new Document());
+                    indexes.keySet().forEach(index -> indexSizes.put(index, number(indexes, index)));
+                    return new CollectionStats(
+                            number(stats, "count"),
+                            number(stats, "size"),
+                            number(stats, "storageSize"),
+                            number(stats, "totalIndexSize"),
+                            number(stats, "avgObjSize"),
+                            indexSizes);
+                });
+    }
+
+    /**
+     * Force a checkpoint with {@code fsync} so storage sizes include everything written, carrying on without one
+     * where the command is not permitted.
+     */
+    public static Mono<Void> checkpoint(MongoDatabase admin) {
+        return Mono.from(admin.runCommand(new Document("fsync", 1)))
+                .doOnError(e -> LOG.warn("could not fsync before collecting stats, storage sizes may be understated: {}", e.getMessage()))
+                .onErrorResume(e -> Mono.empty())
+                .then();
+    }
+
+    /**
+     * Uncompressed over compressed size of the documents.
+     */
+    public double getCompressionRatio() {
+        return storageSize > 0 ? (double) size / storageSize : 0;
+    }
+
+    /**
+     * Sizes as they are, per document and per GRIB value loaded.
+     */
+    public Document toDocument(long values) {
+        Document indexes = new Document();
+        indexSizes.forEach(indexes::append);
+
+        return new Document("documents", count)
+                .append("values", values)
+                .append("dataSize", size)
+                .append("storageSize", storageSize)
+                .append("compressionRatio", round(getCompressionRatio()))
+                .append("avgDocumentSize", avgObjSize)
+                .append("totalIndexSize", totalIndexSize)
+                .append("indexSizes", indexes)
+                .append("perDocument", new Document("dataSize", per(size, count))
+                        .append("storageSize", per(storageSize, count))
+                        .append("indexSize", per(totalIndexSize, count)))
+                .append("perValue", new Document("dataSize", per(size, values))
+                        .append("storageSize", per(storageSize, values))
+                        .append("indexSize", per(totalIndexSize, values))
+                        .append("totalSize", per(storageSize + totalIndexSize, values)));
+    }
+
+    private static double per(long bytes, long count) {
+        return count > 0 ? round((double) bytes / count) : 0;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * Sizes are int32, int64 or double depending on their magnitude and the server version.
+     */
+    private static long number(Document stats, String field) {
+        Number number = stats.get(field, Number.class);
+        return number != null ? number.longValue() : 0;
+    }
+}
@@ -0,0 +1,126 @@
+package uk.dioxic.grib.loader;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.apache.logging.log4j.Logger;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.EncoderContext;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encodes every document of a batch with the registered codecs as the driver would, without sending it anywhere.
+ * <p>
+ * Documents are encoded into a per-thread buffer that is discarded, or copied out and kept when storing, which
+ * makes this a write-only stand-in for the collection. Updates are kept as their encoded filter and update, as
+ * nothing is applied. Encoding runs on the thread subscribing to the write, in place of the driver threads.
+ * </p>
+ */
+public class EncodingWriteTarget<MODEL> implements WriteTarget<MODEL> {
+    private static final ThreadLocal<BasicOutputBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> new BasicOutputBuffer(64 * 1024));
+    private static final EncoderContext COLLECTIBLE_CONTEXT = EncoderContext.builder()
+            .isEncodingCollectibleDocument(true)
+            .build();
+    private static final EncoderContext DEFAULT_CONTEXT = EncoderContext.builder().build();
+
+    private final CodecRegistry codecRegistry;
+    private final boolean store;
+    private final BsonDocumentCodec documentCodec = new BsonDocumentCodec();
+    private final Queue<RawBsonDocument> documents = new ConcurrentLinkedQueue<>();
+    private final LongAdder documentCount = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+
+    public EncodingWriteTarget(CodecRegistry codecRegistry, boolean store) {
+        this.codecRegistry = codecRegistry;
+        this.store = store;
+    }
+
+    @Override
+    public Publisher<BulkWriteResult> bulkWrite(List<? extends WriteModel<? extends MODEL>> requests, BulkWriteOptions options) {
+        return Mono.fromCallable(() -> {
+            int inserted = 0;
+            int updated = 0;
+            for (WriteModel<? extends MODEL> model : requests) {
+                if (model instanceof InsertOneModel) {
+                    encode(((InsertOneModel<? extends MODEL>) model).getDocument(), COLLECTIBLE_CONTEXT);
+                    inserted++;
+                } else if (model instanceof ReplaceOneModel) {
+                    ReplaceOneModel<? extends MODEL> replace = (ReplaceOneModel<? extends MODEL>) model;
+                    encode(toBsonDocument(replace.getFilter()), DEFAULT_CONTEXT);
+                    encode(replace.getReplacement(), COLLECTIBLE_CONTEXT);
+                    updated++;
+                } else if (model instanceof UpdateOneModel && ((UpdateOneModel<? extends MODEL>) model).getUpdate() != null) {
+                    UpdateOneModel<? extends MODEL> update = (UpdateOneModel<? extends MODEL>) model;
+                    encode(toBsonDocument(update.getFilter()), DEFAULT_CONTEXT);
+                    encode(toBsonDocument(update.getUpdate()), DEFAULT_CONTEXT);
+                    updated++;
+                } else {
+                    throw new IllegalArgumentException("cannot encode " + model.getClass().getSimpleName());
+                }
+            }
+            return BulkWriteResult.acknowledged(inserted, updated, 0, updated, Collections.emptyList(), Collections.emptyList());
+        });
+    }
+
+    private BsonDocument toBsonDocument(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, codecRegistry);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void encode(T document, EncoderContext context) {
+        Codec<T> codec = document instanceof BsonDocument && !(document instanceof RawBsonDocument)
+                ? (Codec<T>) documentCodec
+                : (Codec<T>) codecRegistry.get(document.getClass());
+
+        BasicOutputBuffer buffer = BUFFERS.get();
+        buffer.truncateToPosition(0);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, document, context);
+        }
+
+        documentCount.increment();
+        bytes.add(buffer.getPosition());
+        if (store) {
+            documents.add(new RawBsonDocument(buffer.toByteArray()));
+        }
+    }
+
+    /**
+     * Documents kept when storing, in no particular order.
+     */
+    public Queue<RawBsonDocument> getDocuments() {
+        return documents;
+    }
+
+    public long getDocumentCount() {
+        return documentCount.sum();
+    }
+
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    @Override
+    public void logSummary(Logger log) {
+        log.info("encoded {} documents, {}MB of BSON{}", getDocumentCount(), getBytes() >> 20,
+                store ? ", kept in memory" : "");
+    }
+}
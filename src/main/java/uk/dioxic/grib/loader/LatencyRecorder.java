@@ -0,0 +1,85 @@
+package uk.dioxic.grib.loader;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogWriter;
+import org.HdrHistogram.Recorder;
+
+import java.io.Closeable;
+import java.io.FileNotFoundException;
+import java.nio.file.Path;
+
+/**
+ * Lock-free latency recording into per-interval and whole-run HDR histograms.
+ * <p>
+ * Values are recorded in nanoseconds from any thread. Intervals are taken by a single reader
+ * and optionally appended to an HDR histogram log for later comparison and plotting.
+ * </p>
+ */
+class LatencyRecorder implements Closeable {
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final Recorder recorder = new Recorder(SIGNIFICANT_DIGITS);
+    private final Histogram total = new Histogram(SIGNIFICANT_DIGITS);
+    private final HistogramLogWriter logWriter;
+    private Histogram interval;
+
+    LatencyRecorder() {
+        logWriter = null;
+    }
+
+    LatencyRecorder(Path logFile) throws FileNotFoundException {
+        if (logFile != null) {
+            long now = System.currentTimeMillis();
+            logWriter = new HistogramLogWriter(logFile.toFile());
+            logWriter.outputLogFormatVersion();
+            logWriter.outputStartTime(now);
+            logWriter.setBaseTime(now);
+            logWriter.outputLegend();
+        } else {
+            logWriter = null;
+        }
+    }
+
+    void record(long nanos) {
+        recorder.recordValue(nanos);
+    }
+
+    /**
+     * Histogram of the values recorded since the previous interval.
+     * <p>
+     * The returned histogram is recycled by the next call.
+     * </p>
+     */
+    Histogram nextInterval() {
+        interval = recorder.getIntervalHistogram(interval);
+        total.add(interval);
+        if (logWriter != null) {
+            logWriter.outputIntervalHistogram(interval);
+        }
+        return interval;
+    }
+
+    Histogram getTotal() {
+        return total;
+    }
+
+    /**
+     * Latency percentiles of a histogram in milliseconds, tab separated.
+     */
+    static String percentiles(Histogram histogram) {
+        return String.format("%.1f\t%.1f\t%.1f\t%.1f\t%.1f",
+                histogram.getValueAtPercentile(50) / 1e6,
+                histogram.getValueAtPercentile(90) / 1e6,
+                histogram.getValueAtPercentile(99) / 1e6,
+                histogram.getValueAtPercentile(99.9) / 1e6,
+                histogram.getMaxValue() / 1e6);
+    }
+
+    @Override
+    public void close() {
+        if (logWriter != null) {
+            logWriter.close();
+        }
+    }
+
+}
@@ -0,0 +1,64 @@
+package uk.dioxic.grib.loader;
+
+import lombok.Value;
+import org.HdrHistogram.Histogram;
+import org.bson.Document;
+
+/**
+ * Totals of a completed load and the latency of all its batches.
+ */
+@Value
+public class LoadResult {
+    long operationCount;
+    long parameterCount;
+    long retriedOperationCount;
+    long duplicateCount;
+    long writeConcernErrorCount;
+    long elapsedNanos;
+    /**
+     * batch latency in nanoseconds
+     */
+    Histogram latency;
+
+    public double getOperationRate() {
+        return operationCount / (elapsedNanos / 1e9);
+    }
+
+    public double getParameterRate() {
+        return parameterCount / (elapsedNanos / 1e9);
+    }
+
+    /**
+     * Batch latency at a percentile in milliseconds.
+     */
+    public double latencyAt(double percentile) {
+        return latency.getValueAtPercentile(percentile) / 1e6;
+    }
+
+    public double getMaxLatency() {
+        return latency.getMaxValue() / 1e6;
+    }
+
+    /**
+     * Throughput and latency in milliseconds, rounded to 0.1.
+     */
+    public Document toDocument() {
+        return new Document("operations", operationCount)
+                .append("records", parameterCount)
+                .append("seconds", round(elapsedNanos / 1e9))
+                .append("operationsPerSecond", round(getOperationRate()))
+                .append("recordsPerSecond", round(getParameterRate()))
+                .append("retriedOperations", retriedOperationCount)
+                .append("duplicates", duplicateCount)
+                .append("writeConcernErrors", writeConcernErrorCount)
+                .append("latency", new Document("p50", round(latencyAt(50)))
+                        .append("p90", round(latencyAt(90)))
+                        .append("p99", round(latencyAt(99)))
+                        .append("p99_9", round(latencyAt(99.9)))
+                        .append("max", round(getMaxLatency())));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 10) / 10.0;
+    }
+}
@@ -1,28 +1,54 @@
 package uk.dioxic.grib.loader;
 
-import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoException;
+import com.mongodb.MongoNodeIsRecoveringException;
+import com.mongodb.MongoNotPrimaryException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.MongoTimeoutException;
+import com.mongodb.bulk.BulkWriteError;
 import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
 import com.mongodb.client.model.WriteModel;
 import com.mongodb.reactivestreams.client.MongoCollection;
 import lombok.AccessLevel;
 import lombok.Builder;
 import lombok.Data;
 import lombok.RequiredArgsConstructor;
+import org.HdrHistogram.Histogram;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
+import org.bson.conversions.Bson;
+import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 import reactor.core.scheduler.Schedulers;
+import reactor.util.function.Tuples;
 import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.schema.FrameSchema;
 import uk.dioxic.grib.schema.Schema;
 
+import java.io.FileNotFoundException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Builder
@@ -30,84 +56,697 @@ public class LoadRunner<MODEL, SOURCE> {
     private final Logger LOG = LogManager.getLogger(this.getClass());
     private final Logger METRICS_LOG = LogManager.getLogger("MetricMonitor");
     private final BulkWriteOptions writeOptions = new BulkWriteOptions().ordered(false);
+    private final AsyncLimiter inflightBytes = new AsyncLimiter(Long.MAX_VALUE);
+    private static final int DUPLICATE_KEY = 11000;
+    /**
+     * Write error codes of elections, step-downs, migrations and lock contention that may succeed when re-submitted
+     */
+    private static final Set<Integer> RETRYABLE_CODES = Set.of(6, 7, 24, 89, 91, 112, 189, 262, 9001, 10107, 11600,
+            11602, 13388, 13435, 13436);
 
     private final Generator<SOURCE> generator;
     private final MongoCollection<MODEL> collection;
     private final Schema<MODEL, SOURCE> schema;
     private final int concurrency;
     private final int batchSize;
+    @Builder.Default
+    private final int partitions = 1;
+    private final boolean ordered;
+    private final boolean frames;
+    private final double targetRate;
+    @Builder.Default
+    private final RateUnit rateUnit = RateUnit.OPERATIONS;
+    private final Duration liveCyclePeriod;
+    @Builder.Default
+    private final Duration flushInterval = Duration.ofSeconds(1);
+    private final boolean adaptive;
+    @Builder.Default
+    private final int maxConcurrency = 64;
+    @Builder.Default
+    private final Duration latencyCeiling = Duration.ofMillis(200);
+    private final Path histogramLog;
+    private final int transformThreads;
+    private final WriteModelEncoder<MODEL> encoder;
+    private final Path checkpointFile;
+    private final boolean resume;
+    @Builder.Default
+    private final int checkpointSegments = 1000;
+    @Builder.Default
+    private final Duration checkpointInterval = Duration.ofSeconds(10);
+    private final ShardLayout shardLayout;
+    @Builder.Default
+    private final int shardConcurrency = 4;
+    private final WriteTarget<MODEL> writeTarget;
+    private final long maxInflightBytes;
+    @Builder.Default
+    private final long maxBatchBytes = 16 * 1024 * 1024;
+    @Builder.Default
+    private final int maxRetries = 5;
+    @Builder.Default
+    private final Duration retryBackoff = Duration.ofMillis(100);
+    @Builder.Default
+    private final Duration maxRetryBackoff = Duration.ofSeconds(5);
+    private final boolean ignoreDuplicates;
 
     public Mono<Long> load() {
-        Flux<SOURCE> generationFlux = generator.generate();
+        return run().map(LoadResult::getOperationCount);
+    }
+
+    /**
+     * Load the generator, completing with the totals and latency of the whole run once the summary is logged.
+     */
+    public Mono<LoadResult> run() {
+        if (maxInflightBytes > 0) {
+            if (encoder == null) {
+                throw new IllegalStateException("a byte budget needs pre-encoded write models to measure");
+            }
+            inflightBytes.setLimit(maxInflightBytes);
+            LOG.info("limiting encoded BSON in flight to {}MB", maxInflightBytes >> 20);
+        }
+        if (frames && !(schema instanceof FrameSchema)) {
+            LOG.warn("{} cannot consume frames, generating records instead", schema.getClass().getSimpleName());
+        }
+        if (liveCyclePeriod != null && targetRate > 0) {
+            LOG.warn("target rate is ignored in live mode, cycles are released every {}", liveCyclePeriod);
+        }
+        if (adaptive && (liveCyclePeriod != null || targetRate > 0)) {
+            LOG.warn("adaptive batching only applies to closed-loop backfill, using fixed batch size and concurrency");
+        }
+        if (checkpointFile != null && (liveCyclePeriod != null || targetRate > 0 || adaptive)) {
+            throw new IllegalStateException("checkpoints only apply to closed-loop backfill with a fixed batch size");
+        }
+        if (shardLayout != null && checkpointFile != null) {
+            throw new IllegalStateException("shard routing cannot be combined with checkpoints");
+        }
+        if (shardLayout != null && (liveCyclePeriod != null || targetRate > 0 || adaptive)) {
+            LOG.warn("shard routing only applies to closed-loop backfill, writes are not routed by shard");
+        }
+        if (transformThreads > 0 && schema.transformKey() == null) {
+            LOG.warn("{} cannot be transformed in parallel, transforming on the generator threads", schema.getClass().getSimpleName());
+        }
+        if (transformThreads > 0 && ordered) {
+            LOG.warn("write models are reordered across transform rails, only the order within a bucket is kept");
+        }
+
+        Scheduler scheduler = Schedulers.newParallel("generator", Math.max(1, partitions));
+        Scheduler transformScheduler = Schedulers.newParallel("transform", Math.max(1, transformThreads));
 
-        Flux<OperationMetrics> results = schema.writeModel(generationFlux, generator)
-                .subscribeOn(Schedulers.newSingle("generator"))
-                .buffer(batchSize)
-                .flatMap(this::bulkWrite, concurrency)
-                .share();
+        long startNanos = System.nanoTime();
+        Flux<OperationMetrics> results = (liveCyclePeriod != null
+                ? liveWrite(scheduler, transformScheduler)
+                : backfillWrite(scheduler, transformScheduler))
+                .doFinally(signal -> {
+                    scheduler.dispose();
+                    transformScheduler.dispose();
+                })
+                // start once both the monitor and the totals are subscribed, or fast sinks complete batches unseen
+                .publish()
+                .autoConnect(2);
 
-        monitor(results);
+        CompletableFuture<Histogram> latency = monitor(results);
 
         return results
-                .map(OperationMetrics::getOperationCount)
-                .collect(Collectors.summingLong(Long::longValue))
-                .doOnNext(count -> LOG.info("total document operations: {}", count));
+                .reduce(OperationMetrics.ZERO, OperationMetrics::add)
+                .map(total -> Tuples.of(total, System.nanoTime() - startNanos))
+                .doOnNext(total -> logRate(total.getT1(), total.getT2()))
+                .doOnNext(total -> LOG.info("total document operations: {}", total.getT1().getOperationCount()))
+                .zipWith(Mono.fromFuture(latency), (total, histogram) -> new LoadResult(
+                        total.getT1().getOperationCount(),
+                        total.getT1().getParameterCount(),
+                        total.getT1().getRetriedOperationCount(),
+                        total.getT1().getDuplicateCount(),
+                        total.getT1().getWriteConcernErrorCount(),
+                        total.getT2(),
+                        histogram));
+    }
+
+    private Flux<OperationMetrics> backfillWrite(Scheduler scheduler, Scheduler transformScheduler) {
+        if (adaptive && targetRate <= 0) {
+            return adaptiveWrite(writeModel(generator, scheduler, transformScheduler));
+        }
+        if (checkpointFile != null && targetRate <= 0) {
+            return checkpointedWrite(scheduler, transformScheduler);
+        }
+        if (shardLayout != null && targetRate <= 0) {
+            return shardedWrite(scheduler, transformScheduler);
+        }
+
+        Flux<List<WriteModel<MODEL>>> batches = budget(batch(writeModel(generator, scheduler, transformScheduler)));
+
+        return targetRate > 0
+                ? scheduledWrite(batches)
+                : batches.flatMap(this::bulkWrite, concurrency);
+    }
+
+    /**
+     * Closed-loop backfill of a pre-split collection with the writes of each shard batched and limited separately.
+     * <p>
+     * Every shard works through its own partitions in key order with up to the shard concurrency in flight, so a
+     * slow shard holds back only its own writes and each batch goes to a single shard.
+     * </p>
+     */
+    private Flux<OperationMetrics> shardedWrite(Scheduler scheduler, Scheduler transformScheduler) {
+        List<Generator<SOURCE>> shardPartitions = generator.segments(shardLayout.getPartitions());
+        if (shardPartitions.size() != shardLayout.getPartitions()) {
+            throw new IllegalStateException("generator segmented into " + shardPartitions.size()
+                    + " partitions but the shard layout has " + shardLayout.getPartitions());
+        }
+
+        LOG.info("routing writes to {} shards with {} writes in flight per shard", shardLayout.getShards().size(), shardConcurrency);
+
+        return Flux.fromIterable(shardLayout.getShards())
+                .flatMap(shard -> {
+                    AtomicLong operations = new AtomicLong();
+                    return Flux.fromIterable(shardLayout.partitionsOf(shard))
+                            .concatMap(partition -> writeModel(shardPartitions.get(partition), scheduler, transformScheduler))
+                            .transform(this::batch)
+                            .transform(this::budget)
+                            .flatMap(this::bulkWrite, shardConcurrency)
+                            .doOnNext(metrics -> operations.addAndGet(metrics.getOperationCount()))
+                            .doOnComplete(() -> LOG.info("shard {} complete with {} operations", shard, operations.get()));
+                }, shardLayout.getShards().size());
+    }
+
+    /**
+     * Closed-loop backfill over checkpointed segments of the generator.
+     * <p>
+     * Segments are generated one after another, each with the usual partitions, and a batch never spans two
+     * segments so a segment is complete once its last batch is acknowledged. A resumed load skips complete
+     * segments and first deletes whatever the incomplete ones wrote, so a deterministic generator writes every
+     * record exactly once.
+     * </p>
+     */
+    private Flux<OperationMetrics> checkpointedWrite(Scheduler scheduler, Scheduler transformScheduler) {
+        List<Generator<SOURCE>> segments = generator.segments(checkpointSegments);
+        Map<String, String> identity = Checkpoint.identity(generator, schema);
+        Checkpoint checkpoint = resume
+                ? Checkpoint.resume(checkpointFile, segments.size(), generator.recordCount(), identity)
+                : Checkpoint.create(checkpointFile, segments.size(), generator.recordCount(), identity);
+        List<Bson> incompleteFilters = checkpoint.isResumed() ? incompleteFilters(checkpoint, segments) : List.of();
+
+        Flux<OperationMetrics> writes = Flux.range(0, segments.size())
+                .filter(idx -> !checkpoint.isComplete(idx))
+                .concatMap(idx -> {
+                    Checkpoint.Segment segment = checkpoint.segment(idx);
+                    return writeModel(segments.get(idx), scheduler, transformScheduler)
+                            .transform(this::batch)
+                            .transform(this::budget)
+                            .doOnNext(batch -> segment.batch())
+                            .doOnComplete(segment::generated)
+                            .map(batch -> Tuples.of(segment, batch));
+                })
+                .flatMap(batch -> bulkWrite(batch.getT2())
+                        .doOnNext(metrics -> batch.getT1().acknowledged()), concurrency);
+
+        return Flux.fromIterable(incompleteFilters)
+                .concatMap(filter -> Mono.from(target().bulkWrite(List.of(new DeleteManyModel<MODEL>(filter)), writeOptions)))
+                .reduce(0L, (count, result) -> count + result.getDeletedCount())
+                .doOnNext(count -> LOG.info("deleted {} documents of incomplete segments", count))
+                .thenMany(Flux.defer(() -> {
+                    checkpoint.save();
+                    long periodMillis = checkpointInterval.toMillis();
+                    Disposable saver = Schedulers.single().schedulePeriodically(() -> saveCheckpoint(checkpoint),
+                            periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+                    return writes.doFinally(signal -> {
+                        saver.dispose();
+                        saveCheckpoint(checkpoint);
+                        LOG.info("checkpoint saved with {} of {} segments complete up to watermark {}",
+                                checkpoint.getCompletedCount(), checkpoint.getSegments(), checkpoint.getWatermark());
+                    });
+                }));
+    }
+
+    /**
+     * Filters for the documents of each run of incomplete segments.
+     */
+    private List<Bson> incompleteFilters(Checkpoint checkpoint, List<Generator<SOURCE>> segments) {
+        List<Bson> filters = new ArrayList<>();
+        for (int[] range : checkpoint.incompleteRanges()) {
+            SOURCE from = segments.get(range[0]).generate().blockFirst();
+            SOURCE to = range[1] < segments.size() ? segments.get(range[1]).generate().blockFirst() : null;
+            Bson filter = schema.rangeFilter(from, to);
+            if (filter == null) {
+                LOG.warn("{} cannot delete partially written segments, records of incomplete segments may be written twice",
+                        schema.getClass().getSimpleName());
+                return List.of();
+            }
+            filters.add(filter);
+        }
+        return filters;
+    }
+
+    private void saveCheckpoint(Checkpoint checkpoint) {
+        try {
+            checkpoint.save();
+        } catch (UncheckedIOException e) {
+            LOG.error("failed to save checkpoint to {}", checkpointFile, e);
+        }
+    }
+
+    /**
+     * Live ingest where forecast cycle n is released at start + n * period, as runs arrive in production.
+     * <p>
+     * Partial batches are flushed after the flush interval so the tail of a cycle is not held back waiting
+     * for the next one. Cycle latency runs from the release of the cycle to the completion of its last write.
+     * </p>
+     */
+    private Flux<OperationMetrics> liveWrite(Scheduler scheduler, Scheduler transformScheduler) {
+        List<Generator<SOURCE>> cycles = generator.cycles();
+        long periodNanos = liveCyclePeriod.toNanos();
+        LongSummaryStatistics latencies = new LongSummaryStatistics();
+
+        LOG.info("live ingest of {} cycles released every {}", cycles.size(), liveCyclePeriod);
+
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            return Flux.interval(Duration.ZERO, liveCyclePeriod)
+                    .take(cycles.size())
+                    .onBackpressureBuffer()
+                    .flatMap(idx -> {
+                        Generator<SOURCE> cycle = cycles.get(idx.intValue());
+                        long releaseNanos = startNanos + idx * periodNanos;
+                        return writeModel(cycle, scheduler, transformScheduler)
+                                .bufferTimeout(batchSize, flushInterval)
+                                .transform(this::budget)
+                                .flatMap(this::bulkWrite, concurrency)
+                                .doOnComplete(() -> {
+                                    long latency = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - releaseNanos);
+                                    synchronized (latencies) {
+                                        latencies.accept(latency);
+                                    }
+                                    LOG.info("cycle {} of {} records ingested in {}ms", idx, cycle.recordCount(), latency);
+                                });
+                    });
+        }).doOnComplete(() -> {
+            if (latencies.getCount() > 0) {
+                LOG.info("cycle ingest latency (ms) min {} avg {} max {}",
+                        latencies.getMin(), (long) latencies.getAverage(), latencies.getMax());
+            }
+        });
+    }
+
+    /**
+     * Write models of a generator, split into partitions generated concurrently on the scheduler.
+     */
+    private Flux<WriteModel<MODEL>> writeModel(Generator<SOURCE> source, Scheduler scheduler, Scheduler transformScheduler) {
+        Function<SOURCE, Object> transformKey = schema.transformKey();
+        if (transformThreads > 0 && transformKey != null && !useFrames(source)) {
+            return parallelWriteModel(source, transformKey, scheduler, transformScheduler);
+        }
+
+        List<Flux<WriteModel<MODEL>>> writeModelFluxes = source.split(partitions).stream()
+                .map(partition -> encode(partitionWriteModel(partition)).subscribeOn(scheduler))
+                .collect(Collectors.toList());
+
+        return ordered
+                ? Flux.mergeSequential(writeModelFluxes)
+                : Flux.merge(writeModelFluxes);
+    }
+
+    /**
+     * Write models transformed on a pool of rails, independently of the generator threads.
+     * <p>
+     * Each partition is cut into chunks of consecutive records sharing a transform key before the partitions
+     * are merged, and chunks are routed to a rail by the hash of their key. A bucket is therefore always built
+     * on one rail from its records in generation order, however many partitions and rails there are.
+     * </p>
+     */
+    private Flux<WriteModel<MODEL>> parallelWriteModel(Generator<SOURCE> source, Function<SOURCE, Object> transformKey,
+                                                       Scheduler scheduler, Scheduler transformScheduler) {
+        List<Flux<List<SOURCE>>> chunkFluxes = source.split(partitions).stream()
+                .map(partition -> schema.source(partition).bufferUntilChanged(transformKey).subscribeOn(scheduler))
+                .collect(Collectors.toList());
+
+        return (ordered ? Flux.mergeSequential(chunkFluxes) : Flux.merge(chunkFluxes))
+                .groupBy(chunk -> Math.floorMod(transformKey.apply(chunk.get(0)).hashCode(), transformThreads))
+                .flatMap(rail -> encode(schema.writeModel(rail
+                        .publishOn(transformScheduler)
+                        .concatMapIterable(chunk -> chunk), source)), transformThreads);
+    }
+
+    /**
+     * Pre-encode write models on the thread that built them, if an encoder is configured.
+     */
+    private Flux<WriteModel<MODEL>> encode(Flux<WriteModel<MODEL>> writeModels) {
+        return encoder != null ? writeModels.map(encoder::encode) : writeModels;
+    }
+
+    /**
+     * Closed-loop write with the batch size and number of writes in flight set by an {@link AdaptiveController}.
+     */
+    private Flux<OperationMetrics> adaptiveWrite(Flux<WriteModel<MODEL>> writeModels) {
+        AdaptiveController controller = new AdaptiveController(batchSize, concurrency, maxConcurrency, latencyCeiling);
+
+        LOG.info("adaptive load starting at batch size {} and concurrency {} with a latency ceiling of {}ms",
+                controller.getBatchSize(), controller.getConcurrency(), latencyCeiling.toMillis());
+
+        return Flux.defer(() -> {
+            AtomicInteger count = new AtomicInteger();
+            return writeModels
+                    .bufferUntil(model -> {
+                        if (count.incrementAndGet() >= controller.getBatchSize()) {
+                            count.set(0);
+                            return true;
+                        }
+                        return false;
+                    })
+                    .transform(this::budget)
+                    .concatMap(batch -> controller.acquire().thenReturn(batch), 1)
+                    .flatMap(batch -> {
+                        long startNanos = System.nanoTime();
+                        return bulkWrite(batch, startNanos)
+                                .doOnNext(metrics -> {
+                                    long nowNanos = System.nanoTime();
+                                    controller.onComplete(metrics.getParameterCount(), nowNanos - startNanos, nowNanos);
+                                })
+                                .doFinally(signal -> controller.release());
+                    }, controller.getMaxConcurrency());
+        }).doOnComplete(() -> LOG.info("adaptive controller {} on batch size {} and concurrency {} after {} adjustments",
+                controller.isSettled() ? "settled" : "finished", controller.getBatchSize(), controller.getConcurrency(),
+                controller.getAdjustments()));
+    }
+
+    /**
+     * Open-loop write where batch n is released at start + n * interval regardless of how earlier writes perform.
+     * <p>
+     * Latency is measured from the intended release time, so time spent queued behind a slow write is included
+     * rather than hidden by the load generator backing off. Concurrency still caps the writes in flight.
+     * </p>
+     */
+    private Flux<OperationMetrics> scheduledWrite(Flux<List<WriteModel<MODEL>>> batches) {
+        long recordsPerBatch = (long) batchSize * (rateUnit == RateUnit.RECORDS ? schema.recordsPerOperation(generator) : 1);
+        long intervalNanos = (long) (recordsPerBatch * 1e9 / targetRate);
+
+        LOG.info("open-loop load at {} {}/s releasing a batch every {}us", targetRate, rateUnit.name().toLowerCase(), intervalNanos / 1000);
+
+        return Flux.defer(() -> {
+            long startNanos = System.nanoTime();
+            return batches.index()
+                    .concatMap(batch -> {
+                        long intendedNanos = startNanos + batch.getT1() * intervalNanos;
+                        long delayNanos = intendedNanos - System.nanoTime();
+                        Mono<List<WriteModel<MODEL>>> release = Mono.just(batch.getT2());
+                        // delays are scheduled in whole milliseconds, round up so a batch is never released early
+                        return (delayNanos > 0 ? release.delayElement(Duration.ofMillis(ceilMillis(delayNanos))) : release)
+                                .map(models -> Tuples.of(intendedNanos, models));
+                    })
+                    .flatMap(batch -> bulkWrite(batch.getT2(), batch.getT1()), concurrency);
+        });
+    }
+
+    private static long ceilMillis(long nanos) {
+        return (nanos + 999_999) / 1_000_000;
+    }
+
+    /**
+     * Batches that close at the batch size or, for pre-encoded models, once they reach the maximum batch bytes.
+     */
+    private Flux<List<WriteModel<MODEL>>> batch(Flux<WriteModel<MODEL>> writeModels) {
+        if (encoder == null) {
+            return writeModels.buffer(batchSize);
+        }
+        return Flux.defer(() -> {
+            AtomicInteger count = new AtomicInteger();
+            AtomicLong bytes = new AtomicLong();
+            return writeModels.bufferUntil(model -> {
+                long batchBytes = bytes.addAndGet(WriteModelEncoder.size(model));
+                if (count.incrementAndGet() >= batchSize || batchBytes >= maxBatchBytes) {
+                    count.set(0);
+                    bytes.set(0);
+                    return true;
+                }
+                return false;
+            });
+        });
+    }
+
+    /**
+     * Hold batches back until their encoded bytes fit in the in-flight budget, released as each write completes.
+     * <p>
+     * Only one batch waits at a time, so the memory held by the loader is bounded by the budget plus the batches
+     * being built rather than by the number of batches in flight.
+     * </p>
+     */
+    private Flux<List<WriteModel<MODEL>>> budget(Flux<List<WriteModel<MODEL>>> batches) {
+        if (maxInflightBytes <= 0) {
+            return batches;
+        }
+        return batches.concatMap(batch -> inflightBytes.acquire(size(batch)).thenReturn(batch), 1);
+    }
+
+    private static long size(List<? extends WriteModel<?>> batch) {
+        long bytes = 0;
+        for (WriteModel<?> model : batch) {
+            bytes += WriteModelEncoder.size(model);
+        }
+        return bytes;
+    }
+
+    private void logRate(OperationMetrics total, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        long operationRate = (long) (total.getOperationCount() / seconds);
+        long recordRate = (long) (total.getParameterCount() / seconds);
+
+        if (targetRate > 0) {
+            LOG.info("achieved {} ops/s and {} records/s against a target of {} {}/s",
+                    operationRate, recordRate, targetRate, rateUnit.name().toLowerCase());
+        } else {
+            LOG.info("achieved {} ops/s and {} records/s", operationRate, recordRate);
+        }
+    }
+
+    private boolean useFrames(Generator<SOURCE> partition) {
+        return frames && schema instanceof FrameSchema && partition instanceof GribGenerator;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Flux<WriteModel<MODEL>> partitionWriteModel(Generator<SOURCE> partition) {
+        if (useFrames(partition)) {
+            GribGenerator gribGenerator = (GribGenerator) partition;
+            return ((FrameSchema<MODEL>) schema).frameWriteModel(gribGenerator.generateFrames(), gribGenerator);
+        }
+        return schema.writeModel(schema.source(partition), partition);
     }
 
     private Mono<OperationMetrics> bulkWrite(List<WriteModel<MODEL>> batch) {
-        MetricBuilder builder = MetricBuilder.start(batchSize, schema.recordsPerOperation(generator));
-        return Mono.from(collection.bulkWrite(batch, writeOptions))
+        return bulkWrite(batch, System.nanoTime());
+    }
+
+    private Mono<OperationMetrics> bulkWrite(List<WriteModel<MODEL>> batch, long startNanos) {
+        MetricBuilder builder = MetricBuilder.start(startNanos, batch.size(), schema.recordsPerOperation(generator));
+        Mono<OperationMetrics> write = retryingWrite(target(), batch, 0, new RetryStats())
                 .map(builder::complete);
+        return maxInflightBytes > 0
+                ? write.doFinally(signal -> inflightBytes.release(size(batch)))
+                : write;
+    }
+
+    /**
+     * Unordered bulk write that re-submits only the operations that failed.
+     * <p>
+     * Write errors with a transient code are retried by index after a bounded exponential backoff. Duplicate keys are
+     * successes on a retry, where they are the writes of an earlier attempt, and on the first attempt too when
+     * duplicates are ignored. A failure of the whole batch, such as a step-down or a lost connection, re-submits the
+     * whole batch, some of which may already have been applied, so it fails the load instead when the schema is not
+     * {@link Schema#isReplayable() replayable}. Write concern errors are counted but not retried as the writes were
+     * applied on the primary.
+     * </p>
+     */
+    private Mono<RetryStats> retryingWrite(WriteTarget<MODEL> target, List<WriteModel<MODEL>> batch, int attempt, RetryStats stats) {
+        return Mono.from(target.bulkWrite(batch, writeOptions))
+                .thenReturn(stats)
+                .onErrorResume(e -> {
+                    List<WriteModel<MODEL>> failed;
+                    if (e instanceof MongoBulkWriteException) {
+                        MongoBulkWriteException bulkError = (MongoBulkWriteException) e;
+                        failed = new ArrayList<>();
+                        for (BulkWriteError error : bulkError.getWriteErrors()) {
+                            if (error.getCode() == DUPLICATE_KEY && (attempt > 0 || ignoreDuplicates)) {
+                                stats.duplicates++;
+                            } else if (RETRYABLE_CODES.contains(error.getCode())) {
+                                failed.add(batch.get(error.getIndex()));
+                            } else {
+                                return Mono.error(e);
+                            }
+                        }
+                        if (bulkError.getWriteConcernError() != null) {
+                            stats.writeConcernErrors++;
+                            LOG.warn("write concern error on a batch of {}: {}", batch.size(),
+                                    bulkError.getWriteConcernError().getMessage());
+                        }
+                    } else if (isTransient(e) && schema.isReplayable()) {
+                        failed = batch;
+                    } else {
+                        return Mono.error(e);
+                    }
+
+                    if (failed.isEmpty()) {
+                        return Mono.just(stats);
+                    }
+                    if (attempt >= maxRetries) {
+                        LOG.error("{} operations still failing after {} retries", failed.size(), attempt);
+                        return Mono.error(e);
+                    }
+                    Duration backoff = backoff(attempt);
+                    LOG.debug("retrying {} of {} operations in {}ms: {}", failed.size(), batch.size(), backoff.toMillis(), e.getMessage());
+                    stats.retries++;
+                    stats.retriedOperations += failed.size();
+                    return Mono.delay(backoff)
+                            .then(Mono.defer(() -> retryingWrite(target, failed, attempt + 1, stats)));
+                });
+    }
+
+    private WriteTarget<MODEL> target() {
+        if (writeTarget != null) {
+            return writeTarget;
+        }
+        return encoder != null ? encoder.getCollection()::bulkWrite : collection::bulkWrite;
     }
 
-    private void monitor(Flux<OperationMetrics> operationMetricsFlux) {
+    private static boolean isTransient(Throwable e) {
+        return e instanceof MongoSocketException
+                || e instanceof MongoNotPrimaryException
+                || e instanceof MongoNodeIsRecoveringException
+                || e instanceof MongoTimeoutException
+                || e instanceof MongoException && ((MongoException) e).hasErrorLabel("RetryableWriteError");
+    }
+
+    private Duration backoff(int attempt) {
+        long millis = retryBackoff.toMillis() << Math.min(attempt, 20);
+        return Duration.ofMillis(Math.min(millis, maxRetryBackoff.toMillis()));
+    }
+
+    private CompletableFuture<Histogram> monitor(Flux<OperationMetrics> operationMetricsFlux) {
+        final CompletableFuture<Histogram> runLatency = new CompletableFuture<>();
         final AtomicInteger atomicOutputCount = new AtomicInteger();
         final AtomicLong atomicParameterCount = new AtomicLong();
 
         final AtomicReference<OperationMetrics> atomicMetric = new AtomicReference<>(OperationMetrics.ZERO);
         final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final LatencyRecorder latencies = latencyRecorder();
+        final LatencyRecorder retriedLatencies = new LatencyRecorder();
+        final EncodeWindow encodeWindow = new EncodeWindow();
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
         final int seconds = 5;
 
         Runnable monitorTask = () -> {
             if (atomicOutputCount.getAndAccumulate(1, (x, y) -> (x + y) % 10) == 0) {
-                METRICS_LOG.info("ops/s\t\t\tparameters/s\t\tlatency (ms)\t\t% complete");
+                METRICS_LOG.info("ops/s\t\t\tparameters/s\t\tp50\tp90\tp99\tp99.9\tmax (ms)\t% complete\theap (MB){}{}",
+                        maxInflightBytes > 0 ? "\tin-flight (MB)" : "",
+                        encoder != null ? "\tencode (us/op)" : "");
             }
             OperationMetrics windowMetrics = atomicMetric.getAndSet(OperationMetrics.ZERO);
             long totalParameters = atomicParameterCount.addAndGet(windowMetrics.parameterCount);
 
-            METRICS_LOG.info("{}\t\t\t{}\t\t\t{}\t\t\t{}",
+            METRICS_LOG.info("{}\t\t\t{}\t\t\t{}\t{}\t\t\t{}{}{}",
                     windowMetrics.getOperationCount() / seconds,
                     windowMetrics.getParameterCount() / seconds,
-                    windowMetrics.getAverageLatency(),
-                    totalParameters / (generator.recordCount() / 100));
+                    LatencyRecorder.percentiles(latencies.nextInterval()),
+                    totalParameters * 100 / Math.max(1, generator.recordCount()),
+                    memory.getHeapMemoryUsage().getUsed() >> 20,
+                    maxInflightBytes > 0 ? "\t\t" + (inflightBytes.getInFlight() >> 20) : "",
+                    encoder != null ? "\t\t\t" + encodeWindow.next() : "");
+            target().logInterval(METRICS_LOG);
+            if (windowMetrics.getRetriedOperationCount() > 0 || windowMetrics.getDuplicateCount() > 0) {
+                METRICS_LOG.info("retried {} operations in {} batches, {} duplicates treated as written",
+                        windowMetrics.getRetriedOperationCount(),
+                        windowMetrics.getRetriedBatchCount(),
+                        windowMetrics.getDuplicateCount());
+            }
+        };
+
+        Runnable summaryTask = () -> {
+            latencies.nextInterval();
+            METRICS_LOG.info("run latency p50\tp90\tp99\tp99.9\tmax (ms) over {} batches", latencies.getTotal().getTotalCount());
+            METRICS_LOG.info("{}", LatencyRecorder.percentiles(latencies.getTotal()));
+            if (encoder != null) {
+                METRICS_LOG.info("pre-encoded {} operations in {}ms of encoder time, {}us per operation",
+                        encoder.getEncodeCount(),
+                        TimeUnit.NANOSECONDS.toMillis(encoder.getEncodeNanos()),
+                        encoder.getEncodeNanos() / Math.max(1, encoder.getEncodeCount()) / 1000.0);
+            }
+            target().logSummary(METRICS_LOG);
+            retriedLatencies.nextInterval();
+            if (retriedLatencies.getTotal().getTotalCount() > 0) {
+                METRICS_LOG.info("retried batch latency p50\tp90\tp99\tp99.9\tmax (ms) over {} batches",
+                        retriedLatencies.getTotal().getTotalCount());
+                METRICS_LOG.info("{}", LatencyRecorder.percentiles(retriedLatencies.getTotal()));
+            }
+            runLatency.complete(latencies.getTotal().copy());
+            latencies.close();
         };
 
         executor.scheduleAtFixedRate(monitorTask, 1, seconds, TimeUnit.SECONDS);
 
         operationMetricsFlux
-                .doOnComplete(executor::shutdown)
-                .doOnError(err -> executor.shutdown())
-                .subscribe(metrics -> atomicMetric.accumulateAndGet(metrics, OperationMetrics::add));
+                .doFinally(signal -> {
+                    executor.execute(summaryTask);
+                    executor.shutdown();
+                })
+                .subscribe(metrics -> {
+                    latencies.record(metrics.getDuration());
+                    if (metrics.getRetriedBatchCount() > 0) {
+                        retriedLatencies.record(metrics.getDuration());
+                    }
+                    atomicMetric.accumulateAndGet(metrics, OperationMetrics::add);
+                }, e -> {
+                    // surfaced by the totals, the monitor only needs to stop
+                });
+
+        return runLatency;
+    }
+
+    private LatencyRecorder latencyRecorder() {
+        try {
+            return new LatencyRecorder(histogramLog);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Average encode time per operation since the previous window, read by the single monitor thread.
+     */
+    private class EncodeWindow {
+        private long nanos;
+        private long count;
+
+        double next() {
+            long totalNanos = encoder.getEncodeNanos();
+            long totalCount = encoder.getEncodeCount();
+            double average = totalCount > count ? (totalNanos - nanos) / (double) (totalCount - count) / 1000 : 0;
+            nanos = totalNanos;
+            count = totalCount;
+            return Math.round(average * 10) / 10.0;
+        }
     }
 
     @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
     static class MetricBuilder {
-        private final long startMillis;
+        private final long startNanos;
         private final int batchSize;
         private final int recordsPerOperation;
 
-        static MetricBuilder start(int batchSize, int recordsPerOperation) {
-            return new MetricBuilder(System.currentTimeMillis(), batchSize, recordsPerOperation * batchSize);
+        static MetricBuilder start(long startNanos, int batchSize, int recordsPerOperation) {
+            return new MetricBuilder(startNanos, batchSize, recordsPerOperation * batchSize);
         }
 
-        public OperationMetrics complete(BulkWriteResult writeResult) {
-            return complete(batchSize);
+        public OperationMetrics complete(RetryStats retryStats) {
+            long duration = System.nanoTime() - startNanos;
+            return new OperationMetrics(recordsPerOperation, batchSize, 1, duration,
+                    retryStats.retries > 0 ? 1 : 0, retryStats.retriedOperations, retryStats.duplicates,
+                    retryStats.writeConcernErrors);
         }
+    }
 
-        public OperationMetrics complete(int operationCount) {
-            long duration = System.currentTimeMillis() - startMillis;
-            return new OperationMetrics(recordsPerOperation, operationCount, 1, duration);
-        }
+    /**
+     * Retries of a single batch, only touched by the attempt in progress.
+     */
+    static class RetryStats {
+        private int retries;
+        private long retriedOperations;
+        private long duplicates;
+        private long writeConcernErrors;
     }
 
     @Data
@@ -115,20 +754,31 @@ public class LoadRunner<MODEL, SOURCE> {
         private final long parameterCount;
         private final long operationCount;
         private final long batchCount;
+        /**
+         * total latency in nanoseconds
+         */
         private final long duration;
+        private final long retriedBatchCount;
+        private final long retriedOperationCount;
+        private final long duplicateCount;
+        private final long writeConcernErrorCount;
 
         public OperationMetrics add(OperationMetrics other) {
             return new OperationMetrics(
                     this.parameterCount + other.parameterCount,
                     this.operationCount + other.operationCount,
                     this.batchCount + other.batchCount,
-                    this.duration + other.duration);
+                    this.duration + other.duration,
+                    this.retriedBatchCount + other.retriedBatchCount,
+                    this.retriedOperationCount + other.retriedOperationCount,
+                    this.duplicateCount + other.duplicateCount,
+                    this.writeConcernErrorCount + other.writeConcernErrorCount);
         }
 
-        public static final OperationMetrics ZERO = new OperationMetrics(0, 0, 0,0);
+        public static final OperationMetrics ZERO = new OperationMetrics(0, 0, 0,0, 0, 0, 0, 0);
 
         public long getAverageLatency() {
-            return duration / batchCount;
+            return batchCount > 0 ? TimeUnit.NANOSECONDS.toMillis(duration / batchCount) : 0;
         }
     }
 
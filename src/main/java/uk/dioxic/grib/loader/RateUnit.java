@@ -0,0 +1,15 @@
+package uk.dioxic.grib.loader;
+
+/**
+ * Unit of an open-loop target rate.
+ */
+public enum RateUnit {
+    /**
+     * document write operations per second
+     */
+    OPERATIONS,
+    /**
+     * GRIB records per second
+     */
+    RECORDS
+}
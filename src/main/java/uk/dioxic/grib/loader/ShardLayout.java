@@ -0,0 +1,59 @@
+package uk.dioxic.grib.loader;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Shard owning the documents of each generator partition in a pre-split collection.
+ * <p>
+ * Partition n of {@code generator.segments(partitions)} is written to a chunk of its own on {@code shardOf(n)}, so
+ * writes can be routed to a shard by partition instead of looking up the chunk of every document.
+ * </p>
+ */
+@Getter
+public class ShardLayout {
+    private final List<String> shards;
+    private final List<String> partitionShards;
+
+    public ShardLayout(List<String> shards, List<String> partitionShards) {
+        this.shards = List.copyOf(shards);
+        this.partitionShards = List.copyOf(partitionShards);
+    }
+
+    /**
+     * Consecutive partitions dealt to the shards in turn, so that writes progressing through the key range
+     * are spread over every shard.
+     */
+    public static ShardLayout roundRobin(List<String> shards, int partitions) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("no shards to distribute partitions over");
+        }
+        List<String> partitionShards = new ArrayList<>(partitions);
+        for (int partition = 0; partition < partitions; partition++) {
+            partitionShards.add(shards.get(partition % shards.size()));
+        }
+        return new ShardLayout(shards, partitionShards);
+    }
+
+    public int getPartitions() {
+        return partitionShards.size();
+    }
+
+    public String shardOf(int partition) {
+        return partitionShards.get(partition);
+    }
+
+    /**
+     * Partitions owned by a shard, in key order.
+     */
+    public List<Integer> partitionsOf(String shard) {
+        return IntStream.range(0, partitionShards.size())
+                .filter(partition -> partitionShards.get(partition).equals(shard))
+                .boxed()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,98 @@
+package uk.dioxic.grib.loader;
+
+import com.mongodb.MongoNamespace;
+import com.mongodb.client.model.Filters;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import lombok.Builder;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.schema.ShardKey;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Shards an empty collection on a range key and pre-splits it into chunks spread over every shard.
+ * <p>
+ * The generator is cut into {@code shards * chunksPerShard} consecutive segments and a chunk boundary is placed at the
+ * first record of each, so the chunks line up with the partitions that {@link LoadRunner} routes by. Segments never
+ * divide a timestamp, so every key of a segment falls inside its chunk. Chunks are moved to
+ * the shards round robin before any data is written, which leaves nothing for the balancer to do while loading.
+ * Partitions without records get no chunk of their own.
+ * </p>
+ */
+@Builder
+public class ShardPreSplitter<SOURCE> {
+    private static final Logger LOG = LogManager.getLogger(ShardPreSplitter.class);
+
+    private final MongoClient client;
+    private final MongoNamespace namespace;
+    private final ShardKey<SOURCE> shardKey;
+    @Builder.Default
+    private final int chunksPerShard = 4;
+
+    public Mono<ShardLayout> preSplit(Generator<SOURCE> generator) {
+        if (generator.recordCount() == 0) {
+            return Mono.error(new IllegalArgumentException("cannot pre-split for a generator without records"));
+        }
+        MongoDatabase admin = client.getDatabase("admin");
+
+        return command(admin, new Document("listShards", 1))
+                .map(result -> result.getList("shards", Document.class).stream()
+                        .map(shard -> shard.getString("_id"))
+                        .collect(Collectors.toList()))
+                .flatMap(shards -> Flux.fromIterable(generator.segments(shards.size() * chunksPerShard))
+                        // the first key of each partition, empty for partitions without records
+                        .concatMap(partition -> partition.generate()
+                                .next()
+                                .map(record -> Optional.of(shardKey.of(record)))
+                                .defaultIfEmpty(Optional.empty()))
+                        .collectList()
+                        .flatMap(partitionKeys -> preSplit(admin, shards, partitionKeys)));
+    }
+
+    private Mono<ShardLayout> preSplit(MongoDatabase admin, List<String> shards, List<Optional<Document>> partitionKeys) {
+        ShardLayout layout = ShardLayout.roundRobin(shards, partitionKeys.size());
+        List<Integer> chunks = IntStream.range(0, partitionKeys.size())
+                .filter(partition -> partitionKeys.get(partition).isPresent())
+                .boxed()
+                .collect(Collectors.toList());
+
+        LOG.info("pre-splitting {} into {} chunks over {} shards", namespace, chunks.size(), shards.size());
+
+        return command(admin, new Document("enableSharding", namespace.getDatabaseName()))
+                .then(command(admin, new Document("shardCollection", namespace.getFullName())
+                        .append("key", shardKey.keyPattern())))
+                .then(primaryShard())
+                .flatMap(primary -> Flux.fromIterable(chunks.subList(1, chunks.size()))
+                        .concatMap(partition -> command(admin, new Document("split", namespace.getFullName())
+                                .append("middle", partitionKeys.get(partition).get())))
+                        .thenMany(Flux.fromIterable(chunks)
+                                .filter(partition -> !layout.shardOf(partition).equals(primary))
+                                .concatMap(partition -> command(admin, new Document("moveChunk", namespace.getFullName())
+                                        .append("find", partitionKeys.get(partition).get())
+                                        .append("to", layout.shardOf(partition))
+                                        .append("_waitForDelete", false))))
+                        .then(Mono.just(layout)));
+    }
+
+    private Mono<String> primaryShard() {
+        return Mono.from(client.getDatabase("config")
+                .getCollection("databases")
+                .find(Filters.eq("_id", namespace.getDatabaseName()))
+                .first())
+                .map(database -> database.getString("primary"));
+    }
+
+    private Mono<Document> command(MongoDatabase admin, Document command) {
+        LOG.debug("running {}", command);
+        return Mono.from(admin.runCommand(command));
+    }
+}
@@ -0,0 +1,41 @@
+package uk.dioxic.grib.loader;
+
+import org.bson.codecs.configuration.CodecRegistry;
+
+/**
+ * Where a load writes to, MongoDB or a stand-in that measures the client side of the pipeline on its own.
+ */
+public enum Sink {
+    /**
+     * the collection being loaded
+     */
+    MONGODB,
+    /**
+     * acknowledge every batch straight away, measuring generation and transform alone
+     */
+    NULL,
+    /**
+     * run the codecs into a discarded buffer, adding the encoding the driver would do
+     */
+    ENCODE,
+    /**
+     * encode and keep the documents in memory, adding the allocation of a collection stand-in
+     */
+    MEMORY;
+
+    /**
+     * @return the write target, or null to write to the collection
+     */
+    public <MODEL> WriteTarget<MODEL> target(CodecRegistry codecRegistry) {
+        switch (this) {
+            case NULL:
+                return new NullWriteTarget<>();
+            case ENCODE:
+                return new EncodingWriteTarget<>(codecRegistry, false);
+            case MEMORY:
+                return new EncodingWriteTarget<>(codecRegistry, true);
+            default:
+                return null;
+        }
+    }
+}
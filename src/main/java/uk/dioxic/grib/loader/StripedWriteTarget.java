@@ -0,0 +1,107 @@
+package uk.dioxic.grib.loader;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Spreads batches over the collections of several clients, each with a connection pool of its own and optionally
+ * connected to a different mongos.
+ * <p>
+ * A client is chosen for every attempt of a batch, so a retry may go to a different client than the failed attempt.
+ * Least outstanding selection picks the client with the fewest batches in flight, starting from a rotating client
+ * so that ties are shared out evenly.
+ * </p>
+ */
+public class StripedWriteTarget<MODEL> implements WriteTarget<MODEL> {
+
+    public enum Selection {ROUND_ROBIN, LEAST_OUTSTANDING}
+
+    private final List<Stripe<MODEL>> stripes = new ArrayList<>();
+    private final Selection selection;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public StripedWriteTarget(List<String> names, List<? extends WriteTarget<MODEL>> targets, Selection selection) {
+        if (names.size() != targets.size() || targets.isEmpty()) {
+            throw new IllegalArgumentException("need a name for each of at least one target");
+        }
+        for (int i = 0; i < targets.size(); i++) {
+            stripes.add(new Stripe<>(names.get(i), targets.get(i)));
+        }
+        this.selection = selection;
+    }
+
+    @Override
+    public Publisher<BulkWriteResult> bulkWrite(List<? extends WriteModel<? extends MODEL>> requests, BulkWriteOptions options) {
+        return Mono.defer(() -> {
+            Stripe<MODEL> stripe = select();
+            stripe.outstanding.incrementAndGet();
+            long startNanos = System.nanoTime();
+            return Mono.from(stripe.target.bulkWrite(requests, options))
+                    .doOnSuccess(result -> {
+                        stripe.latencies.record(System.nanoTime() - startNanos);
+                        stripe.operations.add(requests.size());
+                    })
+                    .doFinally(signal -> stripe.outstanding.decrementAndGet());
+        });
+    }
+
+    private Stripe<MODEL> select() {
+        int start = Math.floorMod(next.getAndIncrement(), stripes.size());
+        if (selection == Selection.ROUND_ROBIN) {
+            return stripes.get(start);
+        }
+        Stripe<MODEL> least = stripes.get(start);
+        for (int i = 1; i < stripes.size(); i++) {
+            Stripe<MODEL> stripe = stripes.get((start + i) % stripes.size());
+            if (stripe.outstanding.get() < least.outstanding.get()) {
+                least = stripe;
+            }
+        }
+        return least;
+    }
+
+    public int getOutstanding(int stripe) {
+        return stripes.get(stripe).outstanding.get();
+    }
+
+    @Override
+    public void logInterval(Logger log) {
+        log.info("client\t\t\tin-flight\tops\tp50\tp90\tp99\tp99.9\tmax (ms)");
+        for (Stripe<MODEL> stripe : stripes) {
+            log.info("{}\t\t\t{}\t\t{}\t{}", stripe.name, stripe.outstanding.get(), stripe.operations.sumThenReset(),
+                    LatencyRecorder.percentiles(stripe.latencies.nextInterval()));
+        }
+    }
+
+    @Override
+    public void logSummary(Logger log) {
+        log.info("client\t\t\tbatches\tp50\tp90\tp99\tp99.9\tmax (ms)");
+        for (Stripe<MODEL> stripe : stripes) {
+            stripe.latencies.nextInterval();
+            log.info("{}\t\t\t{}\t{}", stripe.name, stripe.latencies.getTotal().getTotalCount(),
+                    LatencyRecorder.percentiles(stripe.latencies.getTotal()));
+        }
+    }
+
+    private static class Stripe<MODEL> {
+        private final String name;
+        private final WriteTarget<MODEL> target;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final LongAdder operations = new LongAdder();
+        private final LatencyRecorder latencies = new LatencyRecorder();
+
+        private Stripe(String name, WriteTarget<MODEL> target) {
+            this.name = name;
+            this.target = target;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package uk.dioxic.grib.loader;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.BsonBinaryWriter;
+import org.bson.BsonDocument;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.bson.codecs.Codec;
+import org.bson.codecs.CollectibleCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.conversions.Bson;
+import org.bson.io.BasicOutputBuffer;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Encodes write models into {@link RawBsonDocument}s ahead of the driver.
+ * <p>
+ * Documents are encoded into a per-thread scratch buffer that is reused for every document, so the only allocation
+ * is the final byte array. The driver then copies the bytes onto the wire instead of running the schema codecs on
+ * its own threads. Ids are generated here as the driver would for a collectible codec.
+ * </p>
+ * <p>
+ * Encoded models are still typed as {@code MODEL} so they flow through the load pipeline unchanged, and must only
+ * be written through the collection returned by {@link #getCollection()}.
+ * </p>
+ */
+public class WriteModelEncoder<MODEL> {
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+    private static final ThreadLocal<BasicOutputBuffer> BUFFERS =
+            ThreadLocal.withInitial(() -> new BasicOutputBuffer(INITIAL_BUFFER_SIZE));
+    private static final EncoderContext COLLECTIBLE_CONTEXT = EncoderContext.builder()
+            .isEncodingCollectibleDocument(true)
+            .build();
+    private static final EncoderContext DEFAULT_CONTEXT = EncoderContext.builder().build();
+
+    private final Codec<MODEL> codec;
+    private final MongoCollection<MODEL> collection;
+    private final MongoCollection<MODEL> rawCollection;
+    private final BsonDocumentCodec documentCodec = new BsonDocumentCodec();
+    private final LongAdder encodeNanos = new LongAdder();
+    private final LongAdder encodeCount = new LongAdder();
+
+    public WriteModelEncoder(MongoCollection<MODEL> collection) {
+        this.collection = collection;
+        this.rawCollection = raw(collection);
+        this.codec = collection.getCodecRegistry().get(collection.getDocumentClass());
+    }
+
+    /**
+     * The collection to write encoded models to, which passes raw documents to the server as they are.
+     */
+    public MongoCollection<MODEL> getCollection() {
+        return rawCollection;
+    }
+
+    /**
+     * A collection that encoded models can be written to, such as the same collection through another client.
+     */
+    @SuppressWarnings("unchecked")
+    public static <MODEL> MongoCollection<MODEL> raw(MongoCollection<MODEL> collection) {
+        return (MongoCollection<MODEL>) (MongoCollection<?>) collection.withDocumentClass(RawBsonDocument.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    public WriteModel<MODEL> encode(WriteModel<MODEL> model) {
+        long startNanos = System.nanoTime();
+        WriteModel<?> encoded;
+
+        if (model instanceof InsertOneModel) {
+            encoded = new InsertOneModel<>(encodeDocument(((InsertOneModel<MODEL>) model).getDocument()));
+        } else if (model instanceof UpdateOneModel && ((UpdateOneModel<MODEL>) model).getUpdate() != null) {
+            UpdateOneModel<MODEL> update = (UpdateOneModel<MODEL>) model;
+            encoded = new UpdateOneModel<>(encodeBson(update.getFilter()), encodeBson(update.getUpdate()), update.getOptions());
+        } else {
+            throw new IllegalArgumentException("cannot pre-encode " + model.getClass().getSimpleName());
+        }
+
+        encodeNanos.add(System.nanoTime() - startNanos);
+        encodeCount.increment();
+        return (WriteModel<MODEL>) encoded;
+    }
+
+    @SuppressWarnings("unchecked")
+    private RawBsonDocument encodeDocument(MODEL document) {
+        if (codec instanceof CollectibleCodec) {
+            CollectibleCodec<MODEL> collectibleCodec = (CollectibleCodec<MODEL>) codec;
+            if (!collectibleCodec.documentHasId(document)) {
+                document = collectibleCodec.generateIdIfAbsentFromDocument(document);
+            }
+        }
+        return encode(codec, document, COLLECTIBLE_CONTEXT);
+    }
+
+    private RawBsonDocument encodeBson(Bson bson) {
+        BsonDocument document = bson.toBsonDocument(collection.getDocumentClass(), collection.getCodecRegistry());
+        return encode(documentCodec, document, DEFAULT_CONTEXT);
+    }
+
+    private <T> RawBsonDocument encode(Codec<T> codec, T value, EncoderContext context) {
+        BasicOutputBuffer buffer = BUFFERS.get();
+        buffer.truncateToPosition(0);
+        try (BsonBinaryWriter writer = new BsonBinaryWriter(buffer)) {
+            codec.encode(writer, value, context);
+        }
+        return new RawBsonDocument(buffer.toByteArray());
+    }
+
+    /**
+     * Size in bytes of a model encoded by {@link #encode(WriteModel)}.
+     */
+    public static long size(WriteModel<?> model) {
+        if (model instanceof InsertOneModel) {
+            return size(((InsertOneModel<?>) model).getDocument());
+        }
+        if (model instanceof UpdateOneModel) {
+            UpdateOneModel<?> update = (UpdateOneModel<?>) model;
+            return size(update.getFilter()) + size(update.getUpdate());
+        }
+        throw new IllegalArgumentException("cannot size " + model.getClass().getSimpleName());
+    }
+
+    private static long size(Object document) {
+        if (!(document instanceof RawBsonDocument)) {
+            throw new IllegalArgumentException("write model is not encoded");
+        }
+        return ((RawBsonDocument) document).getByteBuffer().remaining();
+    }
+
+    /**
+     * Total time spent encoding in nanoseconds.
+     */
+    public long getEncodeNanos() {
+        return encodeNanos.sum();
+    }
+
+    public long getEncodeCount() {
+        return encodeCount.sum();
+    }
+}
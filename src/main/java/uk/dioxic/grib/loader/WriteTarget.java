@@ -0,0 +1,28 @@
+package uk.dioxic.grib.loader;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import org.apache.logging.log4j.Logger;
+import org.reactivestreams.Publisher;
+
+import java.util.List;
+
+/**
+ * Destination of the bulk writes of a load.
+ * <p>
+ * A collection is a target as it is, {@code collection::bulkWrite}. Targets that keep metrics of their own log them
+ * alongside the load metrics at every monitor interval and at the end of the run.
+ * </p>
+ */
+@FunctionalInterface
+public interface WriteTarget<MODEL> {
+
+    Publisher<BulkWriteResult> bulkWrite(List<? extends WriteModel<? extends MODEL>> requests, BulkWriteOptions options);
+
+    default void logInterval(Logger log) {
+    }
+
+    default void logSummary(Logger log) {
+    }
+}
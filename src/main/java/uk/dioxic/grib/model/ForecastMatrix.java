@@ -0,0 +1,79 @@
+package uk.dioxic.grib.model;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.With;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * The values of one calculation at one location as a [leadTime][parameter] matrix.
+ * <p>
+ * Lead n forecasts {@code ts + n * stepHours}, up to and including {@code tsEnd}. A forecast split over generator
+ * partitions is stored as one matrix per partition, each starting at its own first timestamp.
+ * </p>
+ */
+@Data
+@Builder
+@RequiredArgsConstructor
+public class ForecastMatrix {
+    @With
+    private final ObjectId id;
+    private final Point loc;
+    private final LocalDateTime calcTs;
+    private final LocalDateTime ts;
+    private final LocalDateTime tsEnd;
+    private final int stepHours;
+    private final int parameters;
+    private final float[] values;
+
+    /**
+     * @param gribRecords the records of one calculation at one location in timestamp -> parameter order, with every
+     *                    parameter from 0 for each timestamp
+     */
+    public ForecastMatrix(List<GribRecord> gribRecords, int stepHours, int parameters) {
+        if (gribRecords == null || gribRecords.isEmpty()) {
+            throw new IllegalArgumentException("grib records cannot be empty!");
+        }
+        if (gribRecords.size() % parameters != 0) {
+            throw new IllegalArgumentException("grib records do not fill whole lead times!");
+        }
+
+        GribRecord first = gribRecords.get(0);
+        loc = first.getLoc();
+        calcTs = first.getCalcTs();
+        ts = first.getTs();
+        this.stepHours = stepHours;
+        this.parameters = parameters;
+        values = new float[gribRecords.size()];
+
+        for (int i = 0; i < gribRecords.size(); i++) {
+            GribRecord rec = gribRecords.get(i);
+            if (!rec.getLoc().equals(loc)
+                    || !rec.getCalcTs().equals(calcTs)
+                    || !rec.getTs().equals(ts.plusHours((long) (i / parameters) * stepHours))
+                    || rec.getParameter() != i % parameters) {
+                throw new IllegalArgumentException("grib record " + rec + " is out of forecast order!");
+            }
+            values[i] = rec.getValue();
+        }
+
+        tsEnd = ts.plusHours((long) (getLeads() - 1) * stepHours);
+        id = ObjectId.get();
+    }
+
+    public int getLeads() {
+        return values.length / parameters;
+    }
+
+    public LocalDateTime ts(int lead) {
+        return ts.plusHours((long) lead * stepHours);
+    }
+
+    public float value(int lead, int parameter) {
+        return values[lead * parameters + parameter];
+    }
+}
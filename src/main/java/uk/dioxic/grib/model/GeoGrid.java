@@ -0,0 +1,33 @@
+package uk.dioxic.grib.model;
+
+/**
+ * Grid of locations addressed by an integer index.
+ * <p>
+ * Coordinates are computed from the index on demand so large grids need no per-point storage.
+ * </p>
+ */
+public interface GeoGrid {
+
+    String getName();
+
+    int size();
+
+    double longitude(int idx);
+
+    double latitude(int idx);
+
+    /**
+     * Index of the grid point at the given coordinates.
+     * @return the index or -1 if the coordinates are not a point of this grid
+     */
+    int index(double longitude, double latitude);
+
+    default Point point(int idx) {
+        return new Point(longitude(idx), latitude(idx));
+    }
+
+    default int index(Point point) {
+        return index(point.getLongitude(), point.getLatitude());
+    }
+
+}
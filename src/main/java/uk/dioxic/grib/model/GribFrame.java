@@ -0,0 +1,132 @@
+package uk.dioxic.grib.model;
+
+import lombok.Getter;
+import org.bson.types.ObjectId;
+import uk.dioxic.grib.model.GribRecord.GribRecordBuilder;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar block of GRIB values held in primitive arrays.
+ * <p>
+ * Timestamps are hours since the epoch and locations are indices into the generator grid.
+ * A generator reuses the same frame for every emission, so anything needed beyond the current
+ * signal must be copied out (or the frame {@link #copy() copied}) before the next one is requested.
+ * </p>
+ */
+@Getter
+public class GribFrame {
+
+    private static final String[] PARAMETER_KEYS = new String[256];
+
+    static {
+        for (int i = 0; i < PARAMETER_KEYS.length; i++) {
+            PARAMETER_KEYS[i] = Integer.toString(i);
+        }
+    }
+
+    private final int[] ts;
+    private final int[] calcTs;
+    private final int[] locIdx;
+    private final int[] parameter;
+    private final float[] value;
+    private int size;
+
+    public GribFrame(int capacity) {
+        ts = new int[capacity];
+        calcTs = new int[capacity];
+        locIdx = new int[capacity];
+        parameter = new int[capacity];
+        value = new float[capacity];
+    }
+
+    public int capacity() {
+        return value.length;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public void add(int ts, int calcTs, int locIdx, int parameter, float value) {
+        this.ts[size] = ts;
+        this.calcTs[size] = calcTs;
+        this.locIdx[size] = locIdx;
+        this.parameter[size] = parameter;
+        this.value[size] = value;
+        size++;
+    }
+
+    public GribFrame copy() {
+        GribFrame copy = new GribFrame(size);
+        System.arraycopy(ts, 0, copy.ts, 0, size);
+        System.arraycopy(calcTs, 0, copy.calcTs, 0, size);
+        System.arraycopy(locIdx, 0, copy.locIdx, 0, size);
+        System.arraycopy(parameter, 0, copy.parameter, 0, size);
+        System.arraycopy(value, 0, copy.value, 0, size);
+        copy.size = size;
+        return copy;
+    }
+
+    /**
+     * Compatibility adapter producing a GRIB record per row.
+     * <p>
+     * Consecutive rows with the same timestamp, calculation or location share the same
+     * {@link LocalDateTime} and {@link Point} instances.
+     * </p>
+     * @param grid grid the location indices refer to
+     * @return GRIB records in row order
+     */
+    public List<GribRecord> toGribRecords(GeoGrid grid) {
+        GribRecordBuilder builder = GribRecord.builder();
+        List<GribRecord> records = new ArrayList<>(size);
+
+        LocalDateTime rowTs = null;
+        LocalDateTime rowCalcTs = null;
+        Point rowLoc = null;
+        for (int row = 0; row < size; row++) {
+            if (row == 0 || ts[row] != ts[row - 1]) {
+                rowTs = toLocalDateTime(ts[row]);
+            }
+            if (row == 0 || calcTs[row] != calcTs[row - 1]) {
+                rowCalcTs = toLocalDateTime(calcTs[row]);
+            }
+            if (row == 0 || locIdx[row] != locIdx[row - 1]) {
+                rowLoc = grid.point(locIdx[row]);
+            }
+            records.add(builder
+                    .id(ObjectId.get())
+                    .loc(rowLoc)
+                    .calcTs(rowCalcTs)
+                    .ts(rowTs)
+                    .parameter(parameter[row])
+                    .value(value[row])
+                    .build());
+        }
+
+        return records;
+    }
+
+    /**
+     * Document key for a parameter, shared between buckets so frame rows do not allocate a string each.
+     * @param parameter parameter number
+     * @return the parameter as a field name
+     */
+    public static String parameterKey(int parameter) {
+        return parameter >= 0 && parameter < PARAMETER_KEYS.length
+                ? PARAMETER_KEYS[parameter]
+                : Integer.toString(parameter);
+    }
+
+    public static int toEpochHour(LocalDateTime dateTime) {
+        return (int) (dateTime.toEpochSecond(ZoneOffset.UTC) / 3600);
+    }
+
+    public static LocalDateTime toLocalDateTime(int epochHour) {
+        return LocalDateTime.ofEpochSecond(epochHour * 3600L, 0, ZoneOffset.UTC);
+    }
+
+}
@@ -1,28 +1,63 @@
 package uk.dioxic.grib.model;
 
-import lombok.Getter;
-
-import java.util.ArrayList;
-import java.util.List;
-
-public enum Grid {
+public enum Grid implements GeoGrid {
     EUROPE(-23,39,36,72),
     ONE_POINT(12, 12.25, 55, 55.25),
     FOUR_POINT(12, 12.50, 55, 55.50),
     DENMARK(8, 12, 55, 57),
-    WIDE(0, 20, 45, 60);
+    WIDE(0, 20, 45, 60),
+    GLOBAL_0125(-180, 180, -90, 90.125, 0.125);
 
-    @Getter
-    private final List<Point> points;
+    private static final double DEFAULT_RESOLUTION = 0.25;
+
+    private final double minLongitude;
+    private final double maxLongitude;
+    private final double minLatitude;
+    private final double maxLatitude;
+    private final RegularGrid grid;
 
     Grid(double minLongitude, double maxLongitude, double minLatitude, double maxLatitude) {
-        points = new ArrayList<>();
+        this(minLongitude, maxLongitude, minLatitude, maxLatitude, DEFAULT_RESOLUTION);
+    }
+
+    Grid(double minLongitude, double maxLongitude, double minLatitude, double maxLatitude, double resolution) {
+        this.minLongitude = minLongitude;
+        this.maxLongitude = maxLongitude;
+        this.minLatitude = minLatitude;
+        this.maxLatitude = maxLatitude;
+        this.grid = new RegularGrid(name(), minLongitude, maxLongitude, minLatitude, maxLatitude, resolution);
+    }
+
+    /**
+     * This grid's bounds at a different resolution.
+     */
+    public RegularGrid withResolution(double resolution) {
+        return new RegularGrid(name() + "@" + resolution, minLongitude, maxLongitude, minLatitude, maxLatitude, resolution);
+    }
+
+    @Override
+    public String getName() {
+        return name();
+    }
+
+    @Override
+    public int size() {
+        return grid.size();
+    }
+
+    @Override
+    public double longitude(int idx) {
+        return grid.longitude(idx);
+    }
+
+    @Override
+    public double latitude(int idx) {
+        return grid.latitude(idx);
+    }
 
-        for (double longitude = minLongitude; longitude < maxLongitude; longitude = longitude + 0.25d) {
-            for (double latitude = minLatitude; latitude < maxLatitude; latitude = latitude + 0.25d) {
-                points.add(new Point(longitude, latitude));
-            }
-        }
+    @Override
+    public int index(double longitude, double latitude) {
+        return grid.index(longitude, latitude);
     }
 
 }
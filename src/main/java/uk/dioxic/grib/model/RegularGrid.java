@@ -0,0 +1,86 @@
+package uk.dioxic.grib.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Regular longitude/latitude grid with longitude as the outer and latitude as the inner dimension.
+ * <p>
+ * Bounds and resolution are held in integer micro-degrees so a coordinate is a single multiplication
+ * away from its index and never accumulates floating-point drift. The maximum bounds are exclusive.
+ * </p>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class RegularGrid implements GeoGrid {
+    private static final double MICROS = 1e6;
+
+    private final String name;
+    private final long minLongitude;
+    private final long minLatitude;
+    private final long resolution;
+    private final int longitudes;
+    private final int latitudes;
+
+    public RegularGrid(String name, double minLongitude, double maxLongitude, double minLatitude, double maxLatitude, double resolution) {
+        this.name = name;
+        this.minLongitude = toMicros(minLongitude);
+        this.minLatitude = toMicros(minLatitude);
+        this.resolution = toMicros(resolution);
+
+        if (this.resolution <= 0) {
+            throw new IllegalArgumentException("grid resolution must be positive");
+        }
+        if (maxLongitude <= minLongitude || maxLatitude <= minLatitude) {
+            throw new IllegalArgumentException("grid bounds must not be empty");
+        }
+
+        this.longitudes = (int) ceilDiv(toMicros(maxLongitude) - this.minLongitude, this.resolution);
+        this.latitudes = (int) ceilDiv(toMicros(maxLatitude) - this.minLatitude, this.resolution);
+
+        if ((long) longitudes * latitudes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("grid has more than " + Integer.MAX_VALUE + " points");
+        }
+    }
+
+    @Override
+    public int size() {
+        return longitudes * latitudes;
+    }
+
+    @Override
+    public double longitude(int idx) {
+        return (minLongitude + (idx / latitudes) * resolution) / MICROS;
+    }
+
+    @Override
+    public double latitude(int idx) {
+        return (minLatitude + (idx % latitudes) * resolution) / MICROS;
+    }
+
+    @Override
+    public int index(double longitude, double latitude) {
+        long lon = toMicros(longitude) - minLongitude;
+        long lat = toMicros(latitude) - minLatitude;
+        if (lon < 0 || lat < 0 || lon % resolution != 0 || lat % resolution != 0) {
+            return -1;
+        }
+        long lonIdx = lon / resolution;
+        long latIdx = lat / resolution;
+        if (lonIdx >= longitudes || latIdx >= latitudes) {
+            return -1;
+        }
+        return (int) (lonIdx * latitudes + latIdx);
+    }
+
+    private static long toMicros(double degrees) {
+        return Math.round(degrees * MICROS);
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+
+}
@@ -48,4 +48,21 @@ public class SimpleBucket {
         id = ObjectId.get();
 
     }
+
+    public SimpleBucket(GribFrame frame, int from, int to, GeoGrid grid) {
+        if (from >= to) {
+            throw new IllegalArgumentException("frame rows cannot be empty!");
+        }
+
+        loc = grid.point(frame.getLocIdx()[from]);
+        ts = GribFrame.toLocalDateTime(frame.getTs()[from]);
+        calcTs = GribFrame.toLocalDateTime(frame.getCalcTs()[from]);
+        parameters = new HashMap<>(to - from);
+
+        for (int row = from; row < to; row++) {
+            parameters.put(GribFrame.parameterKey(frame.getParameter()[row]), frame.getValue()[row]);
+        }
+
+        id = ObjectId.get();
+    }
 }
@@ -0,0 +1,78 @@
+package uk.dioxic.grib.model;
+
+import lombok.Builder;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.With;
+import org.bson.types.ObjectId;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The values of one timestamp and calculation for every point of a tile as a [offset][parameter] matrix.
+ * <p>
+ * Offsets are those of the {@link Tiling} the bucket was built with. Points of the tile outside the grid hold NaN
+ * for every parameter.
+ * </p>
+ */
+@Data
+@Builder
+@RequiredArgsConstructor
+public class TileBucket {
+    @With
+    private final ObjectId id;
+    private final int tile;
+    private final double[][] box;
+    private final LocalDateTime ts;
+    private final LocalDateTime calcTs;
+    private final int parameters;
+    private final float[] values;
+
+    /**
+     * @param gribRecords the records of one timestamp and calculation within one tile, with every parameter from 0
+     *                    for each point
+     */
+    public TileBucket(List<GribRecord> gribRecords, Tiling tiling, int parameters) {
+        if (gribRecords == null || gribRecords.isEmpty()) {
+            throw new IllegalArgumentException("grib records cannot be empty!");
+        }
+
+        GribRecord first = gribRecords.get(0);
+        tile = tiling.tileId(first.getLoc());
+        box = tiling.box(tile);
+        ts = first.getTs();
+        calcTs = first.getCalcTs();
+        this.parameters = parameters;
+        values = new float[tiling.points() * parameters];
+        Arrays.fill(values, Float.NaN);
+
+        for (GribRecord rec : gribRecords) {
+            if (!rec.getTs().equals(ts)
+                    || !rec.getCalcTs().equals(calcTs)
+                    || tiling.tileId(rec.getLoc()) != tile
+                    || rec.getParameter() >= parameters) {
+                throw new IllegalArgumentException("grib record " + rec + " does not belong to tile " + tile + "!");
+            }
+            values[tiling.offset(rec.getLoc()) * parameters + rec.getParameter()] = rec.getValue();
+        }
+
+        id = ObjectId.get();
+    }
+
+    public int getPoints() {
+        return values.length / parameters;
+    }
+
+    public float value(int offset, int parameter) {
+        return values[offset * parameters + parameter];
+    }
+
+    /**
+     * Whether the tile has values at the offset, i.e. whether the point is part of the grid.
+     */
+    public boolean hasPoint(int offset) {
+        return !Float.isNaN(values[offset * parameters]);
+    }
+}
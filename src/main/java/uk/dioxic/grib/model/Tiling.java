@@ -0,0 +1,135 @@
+package uk.dioxic.grib.model;
+
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Global partitioning of a regular lattice of points into tiles of longitudes x latitudes points.
+ * <p>
+ * Tiles are anchored at (-180, -90) rather than at the bounds of any grid, so every grid on the lattice tiles
+ * identically and a tile id means the same area whichever grid it was loaded from. Within a tile, points are
+ * addressed by an offset with longitude as the outer and latitude as the inner dimension, as in {@link RegularGrid}.
+ * Like {@link RegularGrid}, coordinates are held in integer micro-degrees.
+ * </p>
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+public class Tiling {
+    private static final double MICROS = 1e6;
+    private static final long LONGITUDE_ORIGIN = -180_000_000L;
+    private static final long LATITUDE_ORIGIN = -90_000_000L;
+
+    private final long resolution;
+    private final int longitudes;
+    private final int latitudes;
+    private final int rows;
+
+    /**
+     * @param resolution spacing of the lattice in degrees
+     * @param longitudes points per tile along a parallel
+     * @param latitudes  points per tile along a meridian
+     */
+    public Tiling(double resolution, int longitudes, int latitudes) {
+        this.resolution = toMicros(resolution);
+        this.longitudes = longitudes;
+        this.latitudes = latitudes;
+
+        if (this.resolution <= 0) {
+            throw new IllegalArgumentException("tiling resolution must be positive");
+        }
+        if (longitudes <= 0 || latitudes <= 0) {
+            throw new IllegalArgumentException("tiles must hold at least one point");
+        }
+        // latitude 90 is a lattice point of its own
+        this.rows = (int) (180_000_000L / tileHeight()) + 1;
+    }
+
+    public int points() {
+        return longitudes * latitudes;
+    }
+
+    /**
+     * Id of the tile holding the point.
+     * @throws IllegalArgumentException if the point is not on the lattice
+     */
+    public int tileId(Point point) {
+        long lon = lonMicros(point);
+        long lat = latMicros(point);
+        return (int) (Math.floorDiv(lon, tileWidth()) * rows + Math.floorDiv(lat, tileHeight()));
+    }
+
+    /**
+     * Offset of the point within its tile.
+     * @throws IllegalArgumentException if the point is not on the lattice
+     */
+    public int offset(Point point) {
+        long lon = lonMicros(point);
+        long lat = latMicros(point);
+        return (int) (Math.floorMod(lon, tileWidth()) / resolution * latitudes + Math.floorMod(lat, tileHeight()) / resolution);
+    }
+
+    /**
+     * The south west point of a tile, at offset 0.
+     */
+    public Point origin(int tileId) {
+        return new Point(
+                (LONGITUDE_ORIGIN + (tileId / rows) * tileWidth()) / MICROS,
+                (LATITUDE_ORIGIN + (tileId % rows) * tileHeight()) / MICROS);
+    }
+
+    public Point point(int tileId, int offset) {
+        return new Point(
+                (LONGITUDE_ORIGIN + (tileId / rows) * tileWidth() + (offset / latitudes) * resolution) / MICROS,
+                (LATITUDE_ORIGIN + (tileId % rows) * tileHeight() + (offset % latitudes) * resolution) / MICROS);
+    }
+
+    /**
+     * Closed ring of the area a tile covers, reaching half the resolution beyond its outer points so that adjacent
+     * tiles share edges. Edges are geodesics on a 2dsphere index, which is close enough to the parallels for tiles
+     * of a few degrees.
+     */
+    public double[][] box(int tileId) {
+        long west = LONGITUDE_ORIGIN + (tileId / rows) * tileWidth() - resolution / 2;
+        long south = LATITUDE_ORIGIN + (tileId % rows) * tileHeight() - resolution / 2;
+        double minLon = Math.max(west, LONGITUDE_ORIGIN) / MICROS;
+        double minLat = Math.max(south, LATITUDE_ORIGIN) / MICROS;
+        double maxLon = Math.min(west + tileWidth(), -LONGITUDE_ORIGIN) / MICROS;
+        double maxLat = Math.min(south + tileHeight(), -LATITUDE_ORIGIN) / MICROS;
+        return new double[][]{
+                {minLon, minLat},
+                {maxLon, minLat},
+                {maxLon, maxLat},
+                {minLon, maxLat},
+                {minLon, minLat}};
+    }
+
+    private long tileWidth() {
+        return longitudes * resolution;
+    }
+
+    private long tileHeight() {
+        return latitudes * resolution;
+    }
+
+    private long lonMicros(Point point) {
+        return onLattice(toMicros(point.getLongitude()) - LONGITUDE_ORIGIN, point);
+    }
+
+    private long latMicros(Point point) {
+        return onLattice(toMicros(point.getLatitude()) - LATITUDE_ORIGIN, point);
+    }
+
+    private long onLattice(long micros, Point point) {
+        if (micros % resolution != 0) {
+            throw new IllegalArgumentException(point + " is not on a " + resolution / MICROS + " degree lattice");
+        }
+        return micros;
+    }
+
+    private static long toMicros(double degrees) {
+        return Math.round(degrees * MICROS);
+    }
+
+}
@@ -55,4 +55,31 @@ public class TimestampBucket {
 
     }
 
+    public TimestampBucket(GribFrame frame, GeoGrid grid) {
+        if (frame.getSize() == 0) {
+            throw new IllegalArgumentException("frame cannot be empty!");
+        }
+
+        location = grid.point(frame.getLocIdx()[0]);
+        ts = GribFrame.toLocalDateTime(frame.getTs()[0]);
+
+        ParameterTimestampMapBuilder parameterMapBuilder = ParameterTimestampMap.builder();
+        calculations = new ArrayList<>();
+
+        for (int row = 0; row < frame.getSize(); row++) {
+            if (row == 0 || frame.getCalcTs()[row] != frame.getCalcTs()[row - 1]) {
+                if (row > 0) {
+                    calculations.add(parameterMapBuilder.build());
+                    parameterMapBuilder.clearParameters();
+                }
+                parameterMapBuilder.ts(GribFrame.toLocalDateTime(frame.getCalcTs()[row]));
+            }
+            parameterMapBuilder.parameter(GribFrame.parameterKey(frame.getParameter()[row]), frame.getValue()[row]);
+        }
+
+        calculations.add(parameterMapBuilder.build());
+
+        id = ObjectId.get();
+    }
+
 }
@@ -17,7 +17,7 @@ import uk.dioxic.grib.codec.PointCodec;
 import uk.dioxic.grib.csv.CalculationBucketCsv;
 import uk.dioxic.grib.csv.Csv;
 import uk.dioxic.grib.generator.Generator;
-import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.generator.ForecastGenerator;
 import uk.dioxic.grib.model.CalculationBucket;
 import uk.dioxic.grib.model.CalculationBucket.CalculationBucketBuilder;
 import uk.dioxic.grib.model.GribRecord;
@@ -39,9 +39,28 @@ import static com.mongodb.client.model.Sorts.ascending;
 import static com.mongodb.client.model.Updates.*;
 import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
 
+/**
+ * A document per calculation and location holding every forecast timestamp of it.
+ * <p>
+ * Forecasts are pushed onto the bucket of their calculation. Pushes are not idempotent, so a batch lost with its
+ * connection fails the load rather than being replayed, unless the schema is switched to
+ * {@link #idempotentUpdates() idempotent updates} which add the forecast with {@code $addToSet} at the cost of
+ * comparing it against every forecast already in the bucket.
+ * </p>
+ */
 @Deprecated
 public class CalculationBucketSchema implements Schema<CalculationBucket, GribRecord> {
 
+    private final boolean idempotent;
+
+    public CalculationBucketSchema() {
+        this(false);
+    }
+
+    public CalculationBucketSchema(boolean idempotent) {
+        this.idempotent = idempotent;
+    }
+
     @Override
     public void visit(SchemaCommand schemaCommand) {
         schemaCommand.run(this);
@@ -49,7 +68,7 @@ public class CalculationBucketSchema implements Schema<CalculationBucket, GribRe
 
     @Override
     public Flux<WriteModel<CalculationBucket>> writeModel(Flux<GribRecord> sourceFlux, Generator<GribRecord> generator) {
-        GribGenerator gribGenerator = (GribGenerator) generator;
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
         return sourceFlux
                 .buffer(gribGenerator.getParameters())
                 .map(this::updateModel);
@@ -59,7 +78,7 @@ public class CalculationBucketSchema implements Schema<CalculationBucket, GribRe
 
     @Override
     public int recordsPerOperation(Generator<GribRecord> generator) {
-        GribGenerator gribGenerator = (GribGenerator) generator;
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
         return gribGenerator.getParameters();
     }
 
@@ -77,8 +96,9 @@ public class CalculationBucketSchema implements Schema<CalculationBucket, GribRe
         Map<String, Float> parameters = gribRecords.stream()
                 .collect(Collectors.toMap(rec -> Integer.toString(rec.getParameter()), GribRecord::getValue));
 
+        ParameterTimestampMap forecast = new ParameterTimestampMap(first.getTs(), parameters);
         Bson update = combine(
-                push("forecasts", new ParameterTimestampMap(first.getTs(), parameters)),
+                idempotent ? addToSet("forecasts", forecast) : push("forecasts", forecast),
                 min("tsMin", first.getTs()),
                 max("tsMax", first.getTs()),
                 setOnInsert("loc", first.getLoc())
@@ -87,6 +107,16 @@ public class CalculationBucketSchema implements Schema<CalculationBucket, GribRe
         return new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true));
     }
 
+    @Override
+    public boolean isReplayable() {
+        return idempotent;
+    }
+
+    @Override
+    public Schema<CalculationBucket, GribRecord> idempotentUpdates() {
+        return new CalculationBucketSchema(true);
+    }
+
     private InsertOneModel<CalculationBucket> insertModel(List<List<GribRecord>> gribRecords) {
         if (gribRecords == null || gribRecords.isEmpty() || gribRecords.get(0).isEmpty()) {
             throw new IllegalArgumentException("grid records cannot be empty!");
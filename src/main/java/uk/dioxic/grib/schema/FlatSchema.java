@@ -10,6 +10,7 @@ import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
 import uk.dioxic.grib.cli.command.SchemaCommand;
 import uk.dioxic.grib.codec.GribRecordCodec;
 import uk.dioxic.grib.csv.Csv;
@@ -20,6 +21,7 @@ import uk.dioxic.grib.model.GribRecord;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Function;
 
 import static com.mongodb.client.model.Accumulators.last;
 import static com.mongodb.client.model.Aggregates.*;
@@ -41,11 +43,26 @@ public class FlatSchema implements Schema<GribRecord, GribRecord> {
                 .map(InsertOneModel::new);
     }
 
+    @Override
+    public Function<GribRecord, Object> transformKey() {
+        return grib -> Tuples.of(grib.getTs(), grib.getLoc());
+    }
+
     @Override
     public int recordsPerOperation(Generator<GribRecord> generator) {
         return 1;
     }
 
+    @Override
+    public Bson rangeFilter(GribRecord from, GribRecord to) {
+        return GribRecordFilters.tsRange(from, to);
+    }
+
+    @Override
+    public ShardKey<GribRecord> shardKey() {
+        return GribRecordFilters.tsShardKey();
+    }
+
     @Override
     public Mono<String> indexModel(MongoCollection<GribRecord> collection) {
         return Mono.from(collection.createIndex(Indexes.compoundIndex(
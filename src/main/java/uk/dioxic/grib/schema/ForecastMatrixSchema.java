@@ -0,0 +1,198 @@
+package uk.dioxic.grib.schema;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.geojson.Polygon;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+import uk.dioxic.grib.cli.command.SchemaCommand;
+import uk.dioxic.grib.codec.ForecastMatrixCodec;
+import uk.dioxic.grib.csv.Csv;
+import uk.dioxic.grib.csv.ForecastMatrixCsv;
+import uk.dioxic.grib.generator.ForecastGenerator;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.ForecastMatrix;
+import uk.dioxic.grib.model.GribRecord;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Aggregates.sort;
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Indexes.compoundIndex;
+import static com.mongodb.client.model.Sorts.ascending;
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+
+/**
+ * One document per calculation and location holding every lead time and parameter as a packed float32 matrix.
+ * <p>
+ * Field names are paid once per forecast rather than once per value. The server cannot look inside the matrix, so
+ * queries select whole matrices by calculation, time range and location and leave picking parameters and resolving
+ * the latest calculation per timestamp to the client.
+ * </p>
+ */
+public class ForecastMatrixSchema implements Schema<ForecastMatrix, GribRecord> {
+    private static final Logger LOG = LogManager.getLogger(ForecastMatrixSchema.class);
+
+    private static final Comparator<GribRecord> FORECAST_ORDER = Comparator
+            .comparing(GribRecord::getCalcTs)
+            .thenComparingDouble(record -> record.getLoc().getLongitude())
+            .thenComparingDouble(record -> record.getLoc().getLatitude())
+            .thenComparing(GribRecord::getTs)
+            .thenComparingInt(GribRecord::getParameter);
+
+    @Override
+    public void visit(SchemaCommand schemaCommand) {
+        schemaCommand.run(this);
+    }
+
+    /**
+     * Generated records come a forecast at a time. Other generators are sorted into forecast order a cycle at a
+     * time, which holds a whole cycle in memory.
+     */
+    @Override
+    public Flux<GribRecord> source(Generator<GribRecord> generator) {
+        if (generator instanceof GribGenerator) {
+            return ((GribGenerator) generator).generateForecastOrder();
+        }
+        LOG.warn("sorting {} records into forecast order in memory", generator.recordCount());
+        return Flux.fromIterable(generator.cycles())
+                .concatMap(cycle -> cycle.generate().collectSortedList(FORECAST_ORDER))
+                .flatMapIterable(records -> records);
+    }
+
+    @Override
+    public Flux<WriteModel<ForecastMatrix>> writeModel(Flux<GribRecord> sourceFlux, Generator<GribRecord> generator) {
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
+        return sourceFlux
+                .bufferUntilChanged(transformKey())
+                .map(records -> new ForecastMatrix(records, gribGenerator.getResolutionHours(), gribGenerator.getParameters()))
+                .map(InsertOneModel::new);
+    }
+
+    @Override
+    public Function<GribRecord, Object> transformKey() {
+        return grib -> Tuples.of(grib.getCalcTs(), grib.getLoc());
+    }
+
+    @Override
+    public int recordsPerOperation(Generator<GribRecord> generator) {
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
+        int leads = Math.max(1, (gribGenerator.getHorizonDays() * 24 - 1) / gribGenerator.getResolutionHours());
+        return gribGenerator.getParameters() * leads;
+    }
+
+    /**
+     * Matrices start within the timestamp range of the partition they were generated from.
+     */
+    @Override
+    public Bson rangeFilter(GribRecord from, GribRecord to) {
+        return GribRecordFilters.tsRange(from, to);
+    }
+
+    @Override
+    public ShardKey<GribRecord> shardKey() {
+        return GribRecordFilters.tsShardKey();
+    }
+
+    @Override
+    public Mono<String> indexModel(MongoCollection<ForecastMatrix> collection) {
+        return Mono.from(collection.createIndex(compoundIndex(
+                Indexes.ascending("ts"),
+                Indexes.ascending("calcTs"),
+                Indexes.geo2dsphere("loc")
+        ), new IndexOptions().unique(true)));
+    }
+
+    /**
+     * Matrices of the calculation up to the horizon limit, with all parameters.
+     */
+    @Override
+    public List<Bson> singleForecastQuery(int horizonLimit,
+                                          LocalDateTime calcTs,
+                                          List<Integer> parameters,
+                                          Polygon polygon) {
+
+        Bson match = match(and(
+                gte("ts", calcTs),
+                lte("ts", calcTs.plusHours(horizonLimit)),
+                eq("calcTs", calcTs),
+                geoWithin("loc", polygon)));
+
+        Bson sort = sort(ascending("ts"));
+
+        return List.of(match, sort);
+    }
+
+    /**
+     * Matrices overlapping the time range in calculation order, the last one holding a timestamp being its latest
+     * forecast.
+     */
+    @Override
+    public List<Bson> flattenedForecastQuery(LocalDateTime tsMin,
+                                             LocalDateTime tsMax,
+                                             List<Integer> parameters,
+                                             Polygon polygon) {
+
+        Bson match = match(and(
+                lte("ts", tsMax),
+                gte("tsEnd", tsMin),
+                geoWithin("loc", polygon)));
+
+        Bson sort = sort(ascending("calcTs", "ts"));
+
+        return List.of(match, sort);
+    }
+
+    /**
+     * Matrices overlapping the time range calculated at least the window before its end, in calculation order.
+     * <p>
+     * The window applies per day of each timestamp, which the client checks as it resolves the latest forecast.
+     * </p>
+     */
+    @Override
+    public List<Bson> rollingForecastQuery(LocalDateTime tsMin,
+                                           LocalDateTime tsMax,
+                                           Duration calculationWindow,
+                                           List<Integer> parameters,
+                                           Polygon polygon) {
+
+        Bson match = match(and(
+                lt("ts", tsMax),
+                gt("tsEnd", tsMin),
+                lt("calcTs", tsMax.toLocalDate().atStartOfDay().minus(calculationWindow)),
+                geoWithin("loc", polygon)));
+
+        Bson sort = sort(ascending("calcTs", "ts"));
+
+        return List.of(match, sort);
+    }
+
+    @Override
+    public CodecRegistry codecRegistry() {
+        return fromCodecs(new ForecastMatrixCodec());
+    }
+
+    @Override
+    public Class<ForecastMatrix> getModelClass() {
+        return ForecastMatrix.class;
+    }
+
+    @Override
+    public Csv<ForecastMatrix> getCsvConverter() {
+        return new ForecastMatrixCsv();
+    }
+}
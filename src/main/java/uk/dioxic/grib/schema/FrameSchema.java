@@ -0,0 +1,19 @@
+package uk.dioxic.grib.schema;
+
+import com.mongodb.client.model.WriteModel;
+import reactor.core.publisher.Flux;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.GribFrame;
+
+/**
+ * Schema able to build write models directly from columnar frames.
+ * <p>
+ * Frames are reused by the generator, so implementations must extract everything they need
+ * from a frame synchronously, before any buffering or thread hand-off.
+ * </p>
+ */
+public interface FrameSchema<MODEL> {
+
+    Flux<WriteModel<MODEL>> frameWriteModel(Flux<GribFrame> frameFlux, GribGenerator generator);
+
+}
@@ -0,0 +1,36 @@
+package uk.dioxic.grib.schema;
+
+import org.bson.conversions.Bson;
+import uk.dioxic.grib.model.GribRecord;
+
+import static com.mongodb.client.model.Filters.*;
+
+final class GribRecordFilters {
+
+    private GribRecordFilters() {
+    }
+
+    /**
+     * Documents with a timestamp from that of {@code from} up to but not including that of {@code to}.
+     * <p>
+     * Only valid for records split on timestamp boundaries, so it refuses a range that starts and ends
+     * on the same timestamp rather than silently matching nothing.
+     * </p>
+     */
+    static Bson tsRange(GribRecord from, GribRecord to) {
+        if (to == null) {
+            return gte("ts", from.getTs());
+        }
+        if (!to.getTs().isAfter(from.getTs())) {
+            throw new IllegalArgumentException("range " + from.getTs() + " to " + to.getTs() + " does not fall on timestamp boundaries");
+        }
+        return and(gte("ts", from.getTs()), lt("ts", to.getTs()));
+    }
+
+    /**
+     * Range shard key on timestamp, the leading field of every timestamp ordered index.
+     */
+    static ShardKey<GribRecord> tsShardKey() {
+        return new ShardKey<>("ts", GribRecord::getTs);
+    }
+}
@@ -2,21 +2,95 @@ package uk.dioxic.grib.schema;
 
 import com.mongodb.client.model.WriteModel;
 import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
 import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import uk.dioxic.grib.cli.command.SchemaCommand;
 import uk.dioxic.grib.csv.Csv;
 import uk.dioxic.grib.generator.Generator;
 
+import java.util.function.Function;
+
 public interface Schema<MODEL,SOURCE> extends ReadSchema {
 
     void visit(SchemaCommand schemaCommand);
 
     Flux<WriteModel<MODEL>> writeModel(Flux<SOURCE> sourceFlux, Generator<SOURCE> generator);
 
+    /**
+     * Source records of a generator in the order {@link #writeModel(Flux, Generator)} expects them.
+     */
+    default Flux<SOURCE> source(Generator<SOURCE> generator) {
+        return generator.generate();
+    }
+
     int recordsPerOperation(Generator<SOURCE> generator);
 
+    /**
+     * Key of the bucket a source record is written to, so the write model transform can run on parallel rails.
+     * <p>
+     * Consecutive records with the same key are always transformed together, in order, on the same rail, so a
+     * schema sees whole buckets as long as a bucket never spans two keys.
+     * </p>
+     * @return key function, or null if the schema must transform the source as a single stream
+     */
+    default Function<SOURCE, Object> transformKey() {
+        return null;
+    }
+
+    /**
+     * Filter matching the documents written from a run of source records, used to remove partially written
+     * segments before they are loaded again.
+     * <p>
+     * The run starts at {@code from} and ends just before {@code to}, or at the end of the source when
+     * {@code to} is null. Both are the first records of generator partitions.
+     * </p>
+     * @return the filter, or null if the schema cannot tell which documents a run wrote
+     */
+    default Bson rangeFilter(SOURCE from, SOURCE to) {
+        return null;
+    }
+
+    /**
+     * Range shard key to pre-split the collection on and route writes by.
+     * @return the shard key, or null if the schema cannot be range sharded
+     */
+    default ShardKey<SOURCE> shardKey() {
+        return null;
+    }
+
+    /**
+     * Whether a batch can be re-submitted whole after a failure that does not say which of its writes were applied,
+     * such as a lost connection.
+     * <p>
+     * Inserts with client generated ids can, as a repeated insert fails with a duplicate key. Updates can only when
+     * applying them twice leaves the same document.
+     * </p>
+     */
+    default boolean isReplayable() {
+        return true;
+    }
+
+    /**
+     * The same schema writing updates that can be applied twice, so its batches are {@link #isReplayable() replayable}.
+     * @return the idempotent schema, or this schema if it has no other way of writing
+     */
+    default Schema<MODEL, SOURCE> idempotentUpdates() {
+        return this;
+    }
+
+    /**
+     * Creates the collection before it is indexed, for schemas that need collection options.
+     * <p>
+     * Called after any drop, so the collection may already exist when it is being added to.
+     * </p>
+     */
+    default Mono<Void> prepare(MongoDatabase database, String collectionName) {
+        return Mono.empty();
+    }
+
     Mono<String> indexModel(MongoCollection<MODEL> collection);
 
     CodecRegistry codecRegistry();
@@ -2,6 +2,8 @@ package uk.dioxic.grib.schema;
 
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
+import uk.dioxic.grib.model.Tiling;
+import uk.dioxic.grib.schema.TimeSeriesSchema.Granularity;
 
 @Getter
 @RequiredArgsConstructor
@@ -10,7 +12,12 @@ public enum SchemaCandidates {
     SIMPLE_BUCKET(new SimpleBucketSchema()),
     TS_BUCKET(new TimestampBucketSchema(false)),
     TS_BUCKET_UPSERT(new TimestampBucketSchema(true)),
-    CALC_BUCKET(new CalculationBucketSchema());
+    CALC_BUCKET(new CalculationBucketSchema()),
+    FORECAST_MATRIX(new ForecastMatrixSchema()),
+    TILE_BUCKET(new TileBucketSchema(new Tiling(0.25, 4, 4))),
+    TIME_SERIES(new TimeSeriesSchema(Granularity.HOURS)),
+    TIME_SERIES_MINUTES(new TimeSeriesSchema(Granularity.MINUTES)),
+    TIME_SERIES_SECONDS(new TimeSeriesSchema(Granularity.SECONDS));
 
     private final Schema<?,?> schema;
 
@@ -0,0 +1,26 @@
+package uk.dioxic.grib.schema;
+
+import lombok.Value;
+import org.bson.Document;
+
+import java.util.function.Function;
+
+/**
+ * Ascending range shard key on a single field, with the value a source record's document is stored under.
+ */
+@Value
+public class ShardKey<SOURCE> {
+    String field;
+    Function<SOURCE, Object> value;
+
+    public Document keyPattern() {
+        return new Document(field, 1);
+    }
+
+    /**
+     * Shard key document locating the chunk that holds a source record.
+     */
+    public Document of(SOURCE source) {
+        return new Document(field, value.apply(source));
+    }
+}
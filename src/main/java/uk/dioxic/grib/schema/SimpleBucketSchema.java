@@ -8,18 +8,23 @@ import org.bson.codecs.configuration.CodecRegistry;
 import org.bson.conversions.Bson;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
 import uk.dioxic.grib.cli.command.SchemaCommand;
 import uk.dioxic.grib.codec.SimpleBucketCodec;
 import uk.dioxic.grib.csv.Csv;
 import uk.dioxic.grib.csv.SimpleBucketCsv;
 import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.ForecastGenerator;
 import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.GribFrame;
 import uk.dioxic.grib.model.GribRecord;
 import uk.dioxic.grib.model.SimpleBucket;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.mongodb.client.model.Accumulators.last;
@@ -30,7 +35,7 @@ import static com.mongodb.client.model.Projections.*;
 import static com.mongodb.client.model.Sorts.ascending;
 import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
 
-public class SimpleBucketSchema implements Schema<SimpleBucket, GribRecord> {
+public class SimpleBucketSchema implements Schema<SimpleBucket, GribRecord>, FrameSchema<SimpleBucket> {
 
     @Override
     public void visit(SchemaCommand schemaCommand) {
@@ -39,19 +44,48 @@ public class SimpleBucketSchema implements Schema<SimpleBucket, GribRecord> {
 
     @Override
     public Flux<WriteModel<SimpleBucket>> writeModel(Flux<GribRecord> sourceFlux, Generator<GribRecord> generator) {
-        GribGenerator gribGenerator = (GribGenerator) generator;
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
         return sourceFlux
                 .buffer(gribGenerator.getParameters())
                 .map(SimpleBucket::new)
                 .map(InsertOneModel::new);
     }
 
+    @Override
+    public Function<GribRecord, Object> transformKey() {
+        return grib -> Tuples.of(grib.getTs(), grib.getLoc());
+    }
+
+    @Override
+    public Flux<WriteModel<SimpleBucket>> frameWriteModel(Flux<GribFrame> frameFlux, GribGenerator generator) {
+        int parameters = generator.getParameters();
+        return frameFlux
+                .map(frame -> {
+                    List<WriteModel<SimpleBucket>> models = new ArrayList<>(frame.getSize() / parameters);
+                    for (int row = 0; row < frame.getSize(); row += parameters) {
+                        models.add(new InsertOneModel<>(new SimpleBucket(frame, row, row + parameters, generator.getGrid())));
+                    }
+                    return models;
+                })
+                .flatMapIterable(models -> models);
+    }
+
     @Override
     public int recordsPerOperation(Generator<GribRecord> generator) {
-        GribGenerator gribGenerator = (GribGenerator) generator;
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
         return gribGenerator.getParameters();
     }
 
+    @Override
+    public Bson rangeFilter(GribRecord from, GribRecord to) {
+        return GribRecordFilters.tsRange(from, to);
+    }
+
+    @Override
+    public ShardKey<GribRecord> shardKey() {
+        return GribRecordFilters.tsShardKey();
+    }
+
     @Override
     public Mono<String> indexModel(MongoCollection<SimpleBucket> collection) {
         return Mono.from(collection.createIndex(compoundIndex(
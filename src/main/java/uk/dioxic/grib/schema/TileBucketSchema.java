@@ -0,0 +1,216 @@
+package uk.dioxic.grib.schema;
+
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.geojson.Polygon;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+import uk.dioxic.grib.cli.command.SchemaCommand;
+import uk.dioxic.grib.codec.TileBucketCodec;
+import uk.dioxic.grib.csv.Csv;
+import uk.dioxic.grib.csv.TileBucketCsv;
+import uk.dioxic.grib.generator.ForecastGenerator;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.TileBucket;
+import uk.dioxic.grib.model.Tiling;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static com.mongodb.client.model.Aggregates.match;
+import static com.mongodb.client.model.Aggregates.sort;
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Indexes.compoundIndex;
+import static com.mongodb.client.model.Sorts.ascending;
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+
+/**
+ * One document per timestamp, calculation and tile holding the values of every grid point in the tile.
+ * <p>
+ * A polygon query looks up tiles rather than points, so both the documents it reads and the entries of the
+ * 2dsphere index fall by roughly the number of points per tile. The server only sees the tile area, so queries
+ * return every tile intersecting the polygon and leave dropping the points outside it, picking parameters and
+ * resolving the latest calculation per timestamp to the client, which maps offsets back to points with the
+ * {@link #getTiling() tiling}.
+ * </p>
+ * <p>
+ * Grid points must lie on the lattice of the tiling. A tile split over generator partitions is stored as one
+ * bucket per partition, which is why the index is not unique.
+ * </p>
+ */
+public class TileBucketSchema implements Schema<TileBucket, GribRecord> {
+    private static final Logger LOG = LogManager.getLogger(TileBucketSchema.class);
+
+    @Getter
+    private final Tiling tiling;
+
+    public TileBucketSchema(Tiling tiling) {
+        this.tiling = tiling;
+    }
+
+    @Override
+    public void visit(SchemaCommand schemaCommand) {
+        schemaCommand.run(this);
+    }
+
+    /**
+     * Generated records come a tile at a time. Other generators are grouped into tiles a timestamp at a time,
+     * which holds a whole timestamp in memory.
+     */
+    @Override
+    public Flux<GribRecord> source(Generator<GribRecord> generator) {
+        if (generator instanceof GribGenerator) {
+            return ((GribGenerator) generator).generateTileOrder(tiling);
+        }
+        LOG.warn("grouping {} records into tiles a timestamp at a time in memory", generator.recordCount());
+        return generator.generate()
+                .bufferUntilChanged(GribRecord::getTs)
+                .flatMapIterable(this::groupByTile)
+                .flatMapIterable(records -> records);
+    }
+
+    @Override
+    public Flux<WriteModel<TileBucket>> writeModel(Flux<GribRecord> sourceFlux, Generator<GribRecord> generator) {
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
+        return sourceFlux
+                .bufferUntilChanged(rec -> Tuples.of(rec.getTs(), rec.getCalcTs(), tiling.tileId(rec.getLoc())))
+                .map(records -> new TileBucket(records, tiling, gribGenerator.getParameters()))
+                .map(InsertOneModel::new);
+    }
+
+    private Iterable<List<GribRecord>> groupByTile(List<GribRecord> records) {
+        Map<Tuple2<LocalDateTime, Integer>, List<GribRecord>> tiles = new LinkedHashMap<>();
+        for (GribRecord record : records) {
+            tiles.computeIfAbsent(Tuples.of(record.getCalcTs(), tiling.tileId(record.getLoc())), key -> new ArrayList<>())
+                    .add(record);
+        }
+        return tiles.values();
+    }
+
+    @Override
+    public Function<GribRecord, Object> transformKey() {
+        return GribRecord::getTs;
+    }
+
+    @Override
+    public int recordsPerOperation(Generator<GribRecord> generator) {
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
+        return gribGenerator.getParameters() * tiling.points();
+    }
+
+    @Override
+    public Bson rangeFilter(GribRecord from, GribRecord to) {
+        return GribRecordFilters.tsRange(from, to);
+    }
+
+    @Override
+    public ShardKey<GribRecord> shardKey() {
+        return GribRecordFilters.tsShardKey();
+    }
+
+    @Override
+    public Mono<String> indexModel(MongoCollection<TileBucket> collection) {
+        return Mono.from(collection.createIndex(compoundIndex(
+                Indexes.ascending("ts"),
+                Indexes.ascending("calcTs"),
+                Indexes.geo2dsphere("box")
+        ), new IndexOptions()));
+    }
+
+    /**
+     * Tiles of the calculation up to the horizon limit intersecting the polygon, with all parameters.
+     */
+    @Override
+    public List<Bson> singleForecastQuery(int horizonLimit,
+                                          LocalDateTime calcTs,
+                                          List<Integer> parameters,
+                                          Polygon polygon) {
+
+        Bson match = match(and(
+                gte("ts", calcTs),
+                lte("ts", calcTs.plusHours(horizonLimit)),
+                eq("calcTs", calcTs),
+                geoIntersects("box", polygon)));
+
+        Bson sort = sort(ascending("ts", "tile"));
+
+        return List.of(match, sort);
+    }
+
+    /**
+     * Tiles in the time range intersecting the polygon in calculation order, the last one of a timestamp and tile
+     * being its latest forecast.
+     */
+    @Override
+    public List<Bson> flattenedForecastQuery(LocalDateTime tsMin,
+                                             LocalDateTime tsMax,
+                                             List<Integer> parameters,
+                                             Polygon polygon) {
+
+        Bson match = match(and(
+                gte("ts", tsMin),
+                lte("ts", tsMax),
+                geoIntersects("box", polygon)));
+
+        Bson sort = sort(ascending("ts", "tile", "calcTs"));
+
+        return List.of(match, sort);
+    }
+
+    /**
+     * Tiles in the time range intersecting the polygon, calculated at least the window before the day of the range
+     * end, in calculation order.
+     * <p>
+     * The window applies per day of each timestamp, which the client checks as it resolves the latest forecast.
+     * </p>
+     */
+    @Override
+    public List<Bson> rollingForecastQuery(LocalDateTime tsMin,
+                                           LocalDateTime tsMax,
+                                           Duration calculationWindow,
+                                           List<Integer> parameters,
+                                           Polygon polygon) {
+
+        Bson match = match(and(
+                gt("ts", tsMin),
+                lt("ts", tsMax),
+                lt("calcTs", tsMax.toLocalDate().atStartOfDay().minus(calculationWindow)),
+                geoIntersects("box", polygon)));
+
+        Bson sort = sort(ascending("ts", "tile", "calcTs"));
+
+        return List.of(match, sort);
+    }
+
+    @Override
+    public CodecRegistry codecRegistry() {
+        return fromCodecs(new TileBucketCodec());
+    }
+
+    @Override
+    public Class<TileBucket> getModelClass() {
+        return TileBucket.class;
+    }
+
+    @Override
+    public Csv<TileBucket> getCsvConverter() {
+        return new TileBucketCsv(tiling);
+    }
+}
@@ -0,0 +1,265 @@
+package uk.dioxic.grib.schema;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.geojson.Polygon;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.mongodb.reactivestreams.client.MongoDatabase;
+import lombok.Getter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.bson.Document;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.bson.conversions.Bson;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuples;
+import uk.dioxic.grib.cli.command.SchemaCommand;
+import uk.dioxic.grib.codec.TimeSeriesCodec;
+import uk.dioxic.grib.csv.Csv;
+import uk.dioxic.grib.csv.SimpleBucketCsv;
+import uk.dioxic.grib.generator.ForecastGenerator;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.SimpleBucket;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static com.mongodb.client.model.Accumulators.last;
+import static com.mongodb.client.model.Aggregates.*;
+import static com.mongodb.client.model.Filters.*;
+import static com.mongodb.client.model.Indexes.compoundIndex;
+import static com.mongodb.client.model.Projections.*;
+import static com.mongodb.client.model.Sorts.ascending;
+import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
+
+/**
+ * One measurement per timestamp, location and calculation in a native time-series collection.
+ * <p>
+ * The server buckets measurements by meta field, i.e. by location, calculation and parameter set, so each bucket
+ * holds consecutive lead times of one forecast at one location, compressed column-wise. Filters on {@code ts} and
+ * {@code meta} are applied to whole buckets before any are unpacked, so queries filter on those fields only and
+ * leave parameter values to projection. Requires MongoDB 6.0 for the secondary 2dsphere index on the meta field.
+ * </p>
+ * <p>
+ * Time-series collections can neither be range sharded by the pre-splitter nor, before MongoDB 7.0, have documents
+ * deleted by timestamp, so sharded loads and resuming are not supported. Nor do they reject a measurement inserted
+ * twice as a duplicate id, so a batch lost with its connection fails the load rather than being replayed.
+ * </p>
+ */
+public class TimeSeriesSchema implements Schema<SimpleBucket, GribRecord> {
+    private static final Logger LOG = LogManager.getLogger(TimeSeriesSchema.class);
+    private static final int NAMESPACE_EXISTS = 48;
+
+    /**
+     * Expected interval between consecutive measurements of a series, which sets the time span of a bucket.
+     */
+    public enum Granularity {SECONDS, MINUTES, HOURS}
+
+    @Getter
+    private final Granularity granularity;
+
+    public TimeSeriesSchema(Granularity granularity) {
+        this.granularity = granularity;
+    }
+
+    @Override
+    public void visit(SchemaCommand schemaCommand) {
+        schemaCommand.run(this);
+    }
+
+    @Override
+    public Mono<Void> prepare(MongoDatabase database, String collectionName) {
+        Document create = new Document("create", collectionName)
+                .append("timeseries", new Document("timeField", "ts")
+                        .append("metaField", "meta")
+                        .append("granularity", granularity.name().toLowerCase()));
+
+        return Mono.from(database.runCommand(create))
+                .doOnNext(result -> LOG.info("created time-series collection {} with {} granularity",
+                        collectionName, granularity.name().toLowerCase()))
+                .onErrorResume(e -> e instanceof MongoCommandException
+                                && ((MongoCommandException) e).getErrorCode() == NAMESPACE_EXISTS,
+                        e -> Mono.from(database.listCollections().filter(eq("name", collectionName)).first())
+                                .flatMap(collection -> {
+                                    if (!"timeseries".equals(collection.getString("type"))) {
+                                        return Mono.error(new IllegalStateException("collection " + collectionName
+                                                + " already exists and is not a time-series collection"));
+                                    }
+                                    LOG.info("collection {} already exists, adding to it as it is", collectionName);
+                                    return Mono.empty();
+                                }))
+                .then();
+    }
+
+    @Override
+    public boolean isReplayable() {
+        return false;
+    }
+
+    @Override
+    public Flux<WriteModel<SimpleBucket>> writeModel(Flux<GribRecord> sourceFlux, Generator<GribRecord> generator) {
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
+        return sourceFlux
+                .buffer(gribGenerator.getParameters())
+                .map(SimpleBucket::new)
+                .map(InsertOneModel::new);
+    }
+
+    @Override
+    public Function<GribRecord, Object> transformKey() {
+        return grib -> Tuples.of(grib.getTs(), grib.getLoc());
+    }
+
+    @Override
+    public int recordsPerOperation(Generator<GribRecord> generator) {
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
+        return gribGenerator.getParameters();
+    }
+
+    /**
+     * The collection comes with an index on meta and timestamp, which serves calculation lookups, so only a
+     * location index is added.
+     */
+    @Override
+    public Mono<String> indexModel(MongoCollection<SimpleBucket> collection) {
+        return Mono.from(collection.createIndex(compoundIndex(
+                Indexes.geo2dsphere("meta.loc"),
+                Indexes.ascending("ts")
+        )));
+    }
+
+    @Override
+    public List<Bson> singleForecastQuery(int horizonLimit,
+                                          LocalDateTime calcTs,
+                                          List<Integer> parameters,
+                                          Polygon polygon) {
+
+        Bson match = match(and(
+                eq("meta.calcTs", calcTs),
+                gte("ts", calcTs),
+                lte("ts", calcTs.plusHours(horizonLimit)),
+                geoWithin("meta.loc", polygon)));
+
+        Bson project = project(fields(
+                excludeId(),
+                include("ts", "meta.calcTs", "meta.loc"),
+                include(parameterFields(parameters))
+        ));
+
+        Bson sort = sort(ascending("ts"));
+
+        return List.of(match, project, sort);
+    }
+
+    /**
+     * The latest forecast of each timestamp and location in the range.
+     */
+    @Override
+    public List<Bson> flattenedForecastQuery(LocalDateTime tsMin,
+                                             LocalDateTime tsMax,
+                                             List<Integer> parameters,
+                                             Polygon polygon) {
+
+        Bson match = match(and(
+                gte("ts", tsMin),
+                lte("ts", tsMax),
+                geoWithin("meta.loc", polygon)));
+
+        Bson project = project(fields(
+                include("ts", "meta.calcTs", "meta.loc"),
+                include(parameterFields(parameters))
+        ));
+
+        Bson sort1 = sort(ascending("meta.calcTs"));
+
+        Bson sort2 = sort(ascending("ts"));
+
+        return List.of(match, project, sort1, latestForecast(), flatten(), sort2);
+    }
+
+    /**
+     * The latest forecast of each timestamp and location in the range calculated at least the window before the
+     * day of the timestamp.
+     */
+    @Override
+    public List<Bson> rollingForecastQuery(LocalDateTime tsMin,
+                                           LocalDateTime tsMax,
+                                           Duration calculationWindow,
+                                           List<Integer> parameters,
+                                           Polygon polygon) {
+
+        // bucket level bound of the per day window below
+        Bson match1 = match(and(
+                gt("ts", tsMin),
+                lt("ts", tsMax),
+                lt("meta.calcTs", tsMax.toLocalDate().atStartOfDay().minus(calculationWindow)),
+                geoWithin("meta.loc", polygon)));
+
+        Bson dateTrunc = new Document("$dateFromParts", new Document()
+                .append("year", new Document("$year", "$ts"))
+                .append("month", new Document("$month", "$ts"))
+                .append("day", new Document("$dayOfMonth", "$ts")));
+
+        Bson dateSubtract = new Document("$subtract", List.of(dateTrunc, calculationWindow.toMillis()));
+
+        Bson match2 = match(expr(new Document("$lt", List.of("$meta.calcTs", dateSubtract))));
+
+        Bson project = project(fields(
+                include("ts", "meta.calcTs", "meta.loc"),
+                include(parameterFields(parameters))
+        ));
+
+        Bson sort1 = sort(ascending("meta.calcTs"));
+
+        Bson sort2 = sort(ascending("ts"));
+
+        return List.of(match1, match2, project, sort1, latestForecast(), flatten(), sort2);
+    }
+
+    private static List<String> parameterFields(List<Integer> parameters) {
+        return parameters.stream().map(p -> "parameters." + p).collect(Collectors.toList());
+    }
+
+    /**
+     * Groups measurements in calculation order by timestamp and location, keeping the last.
+     */
+    private static Bson latestForecast() {
+        Document groupBy = new Document()
+                .append("ts", "$ts")
+                .append("loc", "$meta.loc");
+
+        return group(groupBy,
+                last("calcTs", "$meta.calcTs"),
+                last("parameters", "$parameters"));
+    }
+
+    private static Bson flatten() {
+        return project(fields(
+                excludeId(),
+                computed("ts", "$_id.ts"),
+                computed("loc", "$_id.loc"),
+                include("calcTs", "parameters")));
+    }
+
+    @Override
+    public CodecRegistry codecRegistry() {
+        return fromCodecs(new TimeSeriesCodec());
+    }
+
+    @Override
+    public Class<SimpleBucket> getModelClass() {
+        return SimpleBucket.class;
+    }
+
+    @Override
+    public Csv<SimpleBucket> getCsvConverter() {
+        return new SimpleBucketCsv();
+    }
+}
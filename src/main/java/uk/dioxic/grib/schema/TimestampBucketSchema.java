@@ -20,16 +20,22 @@ import uk.dioxic.grib.codec.TimestampBucketCodec;
 import uk.dioxic.grib.csv.Csv;
 import uk.dioxic.grib.csv.TimestampBucketCsv;
 import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.ForecastGenerator;
 import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.GribFrame;
 import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.GeoGrid;
 import uk.dioxic.grib.model.ParameterTimestampMap;
 import uk.dioxic.grib.model.TimestampBucket;
 import uk.dioxic.grib.util.ProjectionOperators;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static com.mongodb.client.model.Accumulators.last;
@@ -41,10 +47,24 @@ import static com.mongodb.client.model.Sorts.ascending;
 import static com.mongodb.client.model.Updates.*;
 import static org.bson.codecs.configuration.CodecRegistries.fromCodecs;
 
+/**
+ * A document per timestamp and location holding every calculation of it.
+ * <p>
+ * In upsert mode each calculation is pushed onto the bucket of its timestamp as it arrives. Pushes are not idempotent,
+ * so a batch lost with its connection fails the load rather than being replayed, unless the schema is switched to
+ * {@link #idempotentUpdates() idempotent updates} which add the calculation with {@code $addToSet} at the cost of
+ * comparing it against every calculation already in the bucket.
+ * </p>
+ */
 @RequiredArgsConstructor
-public class TimestampBucketSchema implements Schema<TimestampBucket, GribRecord> {
+public class TimestampBucketSchema implements Schema<TimestampBucket, GribRecord>, FrameSchema<TimestampBucket> {
 
     private final boolean upsert;
+    private final boolean idempotent;
+
+    public TimestampBucketSchema(boolean upsert) {
+        this(upsert, false);
+    }
 
     @Override
     public void visit(SchemaCommand schemaCommand) {
@@ -69,13 +89,40 @@ public class TimestampBucketSchema implements Schema<TimestampBucket, GribRecord
                 .map(this::updateModel);
     }
 
-    private int gribsPerDocument(GribGenerator gribGenerator) {
+    @Override
+    public Function<GribRecord, Object> transformKey() {
+        return grib -> Tuples.of(grib.getTs(), grib.getLoc());
+    }
+
+    @Override
+    public Flux<WriteModel<TimestampBucket>> frameWriteModel(Flux<GribFrame> frameFlux, GribGenerator generator) {
+        GeoGrid grid = generator.getGrid();
+        if (!upsert) {
+            return frameFlux
+                    .map(frame -> new InsertOneModel<>(new TimestampBucket(frame, grid)));
+        }
+        return frameFlux
+                .map(frame -> {
+                    List<WriteModel<TimestampBucket>> models = new ArrayList<>();
+                    int from = 0;
+                    for (int row = 1; row <= frame.getSize(); row++) {
+                        if (row == frame.getSize() || frame.getCalcTs()[row] != frame.getCalcTs()[from]) {
+                            models.add(updateModel(frame, from, row, grid));
+                            from = row;
+                        }
+                    }
+                    return models;
+                })
+                .flatMapIterable(models -> models);
+    }
+
+    private int gribsPerDocument(ForecastGenerator gribGenerator) {
         return (gribGenerator.getParameters() * gribGenerator.getHorizonDays() * 24) / gribGenerator.getIntervalHours();
     }
 
     @Override
     public int recordsPerOperation(Generator<GribRecord> generator) {
-        GribGenerator gribGenerator = (GribGenerator) generator;
+        ForecastGenerator gribGenerator = (ForecastGenerator) generator;
         int gribsPerDoc = (gribGenerator.getParameters() * gribGenerator.getHorizonDays() * 24) / gribGenerator.getIntervalHours();
         int calcsPerDoc = (24 * gribGenerator.getHorizonDays()) / gribGenerator.getIntervalHours();
 
@@ -91,22 +138,62 @@ public class TimestampBucketSchema implements Schema<TimestampBucket, GribRecord
         }
 
         GribRecord first = gribRecords.get(0);
-        Bson filter = and(
-                eq("ts", first.getTs()),
-                geoIntersects("loc", new Point(new Position(first.getLoc().getLongitude(), first.getLoc().getLatitude())))
-        );
-
         Map<String, Float> parameters = gribRecords.stream()
                 .collect(Collectors.toMap(rec -> Integer.toString(rec.getParameter()), GribRecord::getValue));
 
+        return updateModel(first.getTs(), first.getLoc(), first.getCalcTs(), parameters);
+    }
+
+    private UpdateOneModel<TimestampBucket> updateModel(GribFrame frame, int from, int to, GeoGrid grid) {
+        Map<String, Float> parameters = new HashMap<>(to - from);
+        for (int row = from; row < to; row++) {
+            parameters.put(GribFrame.parameterKey(frame.getParameter()[row]), frame.getValue()[row]);
+        }
+
+        return updateModel(GribFrame.toLocalDateTime(frame.getTs()[from]),
+                grid.point(frame.getLocIdx()[from]),
+                GribFrame.toLocalDateTime(frame.getCalcTs()[from]),
+                parameters);
+    }
+
+    private UpdateOneModel<TimestampBucket> updateModel(LocalDateTime ts,
+                                                        uk.dioxic.grib.model.Point loc,
+                                                        LocalDateTime calcTs,
+                                                        Map<String, Float> parameters) {
+        Bson filter = and(
+                eq("ts", ts),
+                geoIntersects("loc", new Point(new Position(loc.getLongitude(), loc.getLatitude())))
+        );
+
+        ParameterTimestampMap calc = new ParameterTimestampMap(calcTs, parameters);
         Bson update = combine(
-                push("calcs", new ParameterTimestampMap(first.getCalcTs(), parameters)),
-                setOnInsert("loc", first.getLoc())
+                idempotent ? addToSet("calcs", calc) : push("calcs", calc),
+                setOnInsert("loc", loc)
         );
 
         return new UpdateOneModel<>(filter, update, new UpdateOptions().upsert(true));
     }
 
+    @Override
+    public boolean isReplayable() {
+        return !upsert || idempotent;
+    }
+
+    @Override
+    public Schema<TimestampBucket, GribRecord> idempotentUpdates() {
+        return upsert ? new TimestampBucketSchema(true, true) : this;
+    }
+
+    @Override
+    public Bson rangeFilter(GribRecord from, GribRecord to) {
+        return GribRecordFilters.tsRange(from, to);
+    }
+
+    @Override
+    public ShardKey<GribRecord> shardKey() {
+        return GribRecordFilters.tsShardKey();
+    }
+
     @Override
     public Mono<String> indexModel(MongoCollection<TimestampBucket> collection) {
         return Mono.from(collection.createIndex(compoundIndex(
@@ -0,0 +1,43 @@
+package uk.dioxic.grib;
+
+import org.junit.jupiter.api.Test;
+import uk.dioxic.grib.loader.AdaptiveController;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AdaptiveControllerTest {
+
+    /**
+     * Simulated server with a fixed per-batch overhead and a saturation point of 16 concurrent writes,
+     * past which extra writes only queue.
+     */
+    @Test
+    void convergesUnderCeiling() {
+        AdaptiveController controller = new AdaptiveController(100, 1, 64, Duration.ofMillis(50));
+        long now = 0;
+
+        for (int window = 0; window < 2000; window++) {
+            int concurrency = controller.getConcurrency();
+            int batchSize = controller.getBatchSize();
+            long latencyNanos = TimeUnit.MILLISECONDS.toNanos(2)
+                    + TimeUnit.MICROSECONDS.toNanos(10) * batchSize * Math.max(1, concurrency / 16);
+
+            now += latencyNanos;
+            for (int i = 0; i < concurrency; i++) {
+                controller.onComplete(batchSize, latencyNanos, now);
+            }
+        }
+
+        long settledLatency = TimeUnit.MILLISECONDS.toNanos(2)
+                + TimeUnit.MICROSECONDS.toNanos(10) * controller.getBatchSize() * Math.max(1, controller.getConcurrency() / 16);
+
+        assertThat(controller.isSettled()).isTrue();
+        assertThat(settledLatency).isLessThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(50));
+        assertThat(controller.getConcurrency()).isGreaterThan(1);
+        assertThat(controller.getBatchSize()).isGreaterThan(100);
+    }
+
+}
@@ -0,0 +1,112 @@
+package uk.dioxic.grib;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.WriteModelEncoder;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.schema.SimpleBucketSchema;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Batches sized in encoded bytes and held to an in-flight byte budget. The client only lends its codecs to the
+ * encoder and is never connected to.
+ */
+public class ByteBudgetLoadTest {
+    private static final long MAX_BATCH_BYTES = 2_000;
+    private static final long MAX_INFLIGHT_BYTES = 5_000;
+
+    private static final SimpleBucketSchema schema = new SimpleBucketSchema();
+    private static MongoClient client;
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-01T12:00:00"))
+            .horizonDays(1)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(3)
+            .grid(Grid.FOUR_POINT)
+            .build();
+
+    private final List<Long> batchBytes = Collections.synchronizedList(new ArrayList<>());
+    private final List<Long> modelBytes = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicLong inflight = new AtomicLong();
+    private final AtomicLong maxInflight = new AtomicLong();
+
+    @BeforeAll
+    static void setup() {
+        client = MongoClients.create(MongoClientSettings.builder()
+                .codecRegistry(fromRegistries(schema.codecRegistry(), MongoClientSettings.getDefaultCodecRegistry()))
+                .build());
+    }
+
+    @AfterAll
+    static void teardown() {
+        client.close();
+    }
+
+    @Test
+    void batchesCloseOnBytesWithinBudget() {
+        Long operations = LoadRunner.<SimpleBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(schema)
+                .encoder(new WriteModelEncoder<>(client.getDatabase("test").getCollection("test", SimpleBucket.class)))
+                .writeTarget((requests, options) -> write(requests))
+                .batchSize(1000)
+                .concurrency(8)
+                .maxBatchBytes(MAX_BATCH_BYTES)
+                .maxInflightBytes(MAX_INFLIGHT_BYTES)
+                .build()
+                .load()
+                // holds once a write does not give its bytes back
+                .block(Duration.ofSeconds(30));
+
+        long largestModel = Collections.max(modelBytes);
+        assertThat(operations).isEqualTo(generator.recordCount() / generator.getParameters());
+        assertThat(batchBytes.size()).isGreaterThan(3);
+        assertThat(batchBytes).allMatch(bytes -> bytes < MAX_BATCH_BYTES + largestModel);
+        assertThat(batchBytes.stream().filter(bytes -> bytes < MAX_BATCH_BYTES)).hasSizeLessThanOrEqualTo(1);
+        assertThat(maxInflight.get()).isLessThanOrEqualTo(MAX_INFLIGHT_BYTES);
+        assertThat(maxInflight.get()).isGreaterThan(MAX_BATCH_BYTES);
+    }
+
+    /**
+     * Write taking a few milliseconds, tracking the bytes of the writes running at once.
+     */
+    private Mono<BulkWriteResult> write(List<? extends WriteModel<? extends SimpleBucket>> requests) {
+        return Mono.fromCallable(() -> {
+            long bytes = 0;
+            for (WriteModel<?> model : requests) {
+                long size = WriteModelEncoder.size(model);
+                modelBytes.add(size);
+                bytes += size;
+            }
+            batchBytes.add(bytes);
+            maxInflight.accumulateAndGet(inflight.addAndGet(bytes), Math::max);
+            return bytes;
+        })
+                .delayElement(Duration.ofMillis(5))
+                .doOnNext(bytes -> inflight.addAndGet(-bytes))
+                .thenReturn(BulkWriteResult.unacknowledged());
+    }
+}
@@ -0,0 +1,100 @@
+package uk.dioxic.grib;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.generator.ValueModelCandidates;
+import uk.dioxic.grib.loader.Checkpoint;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.schema.FlatSchema;
+import uk.dioxic.grib.schema.SimpleBucketSchema;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class CheckpointTest {
+
+    @TempDir
+    Path dir;
+
+    private final GribGenerator.GribGeneratorBuilder generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-01T12:00:00"))
+            .horizonDays(1)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(2)
+            .seed(1)
+            .grid(Grid.ONE_POINT);
+
+    private final Map<String, String> identity = Checkpoint.identity(generator.build(), new SimpleBucketSchema());
+
+    @Test
+    void segmentCompletesWhenGeneratedAndAcknowledged() {
+        Checkpoint checkpoint = Checkpoint.create(dir.resolve("load.checkpoint"), 4, 1000, identity);
+        Checkpoint.Segment segment = checkpoint.segment(0);
+
+        segment.batch();
+        segment.batch();
+        segment.acknowledged();
+        segment.generated();
+        assertThat(checkpoint.isComplete(0)).isFalse();
+
+        segment.acknowledged();
+        assertThat(checkpoint.isComplete(0)).isTrue();
+        assertThat(checkpoint.getWatermark()).isEqualTo(1);
+    }
+
+    @Test
+    void resumeRestoresProgress() {
+        Path file = dir.resolve("load.checkpoint");
+        Checkpoint checkpoint = Checkpoint.create(file, 10, 1000, identity);
+        for (int idx : new int[]{0, 1, 2, 4, 6, 7}) {
+            checkpoint.segment(idx).generated();
+        }
+        checkpoint.save();
+
+        Checkpoint resumed = Checkpoint.resume(file, 10, 1000, identity);
+
+        assertThat(resumed.isResumed()).isTrue();
+        assertThat(resumed.getWatermark()).isEqualTo(3);
+        assertThat(resumed.getCompletedCount()).isEqualTo(6);
+        assertThat(resumed.incompleteRanges())
+                .containsExactly(new int[]{3, 4}, new int[]{5, 6}, new int[]{8, 10});
+    }
+
+    @Test
+    void resumeRejectsDifferentLoad() {
+        Path file = dir.resolve("load.checkpoint");
+        Checkpoint.create(file, 10, 1000, identity).save();
+
+        assertThatThrownBy(() -> Checkpoint.resume(file, 10, 2000, identity))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(Checkpoint.resume(dir.resolve("missing.checkpoint"), 10, 1000, identity).isResumed()).isFalse();
+    }
+
+    @Test
+    void resumeRejectsDifferentGeneratorOrSchema() {
+        Path file = dir.resolve("load.checkpoint");
+        Checkpoint.create(file, 10, 1000, identity).save();
+
+        assertThatThrownBy(() -> Checkpoint.resume(file, 10, 1000,
+                Checkpoint.identity(generator.seed(2).build(), new SimpleBucketSchema())))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> Checkpoint.resume(file, 10, 1000,
+                Checkpoint.identity(generator.seed(1).valueModel(ValueModelCandidates.NOISE).build(), new SimpleBucketSchema())))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> Checkpoint.resume(file, 10, 1000,
+                Checkpoint.identity(generator.valueModel(null).grid(Grid.DENMARK).build(), new SimpleBucketSchema())))
+                .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> Checkpoint.resume(file, 10, 1000,
+                Checkpoint.identity(generator.grid(Grid.ONE_POINT).build(), new FlatSchema())))
+                .isInstanceOf(IllegalStateException.class);
+        assertThat(Checkpoint.resume(file, 10, 1000,
+                Checkpoint.identity(generator.build(), new SimpleBucketSchema())).isResumed()).isTrue();
+    }
+}
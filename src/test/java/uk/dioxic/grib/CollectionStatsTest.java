@@ -0,0 +1,48 @@
+package uk.dioxic.grib;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import uk.dioxic.grib.loader.CollectionStats;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CollectionStatsTest {
+
+    @Test
+    void sizesPerDocumentAndValue() {
+        Map<String, Long> indexSizes = new LinkedHashMap<>();
+        indexSizes.put("_id_", 4_000L);
+        indexSizes.put("ts_1", 2_000L);
+        CollectionStats stats = new CollectionStats(300, 90_000, 30_000, 6_000, 300, indexSizes);
+
+        Document document = stats.toDocument(7_000);
+
+        assertThat(document.getDouble("compressionRatio")).isEqualTo(3.0);
+        assertThat(document.get("indexSizes", Document.class).keySet()).containsExactly("_id_", "ts_1");
+
+        Document perDocument = document.get("perDocument", Document.class);
+        assertThat(perDocument.getDouble("dataSize")).isEqualTo(300.0);
+        assertThat(perDocument.getDouble("storageSize")).isEqualTo(100.0);
+        assertThat(perDocument.getDouble("indexSize")).isEqualTo(20.0);
+
+        Document perValue = document.get("perValue", Document.class);
+        assertThat(perValue.getDouble("dataSize")).isEqualTo(12.86);
+        assertThat(perValue.getDouble("storageSize")).isEqualTo(4.29);
+        assertThat(perValue.getDouble("indexSize")).isEqualTo(0.86);
+        assertThat(perValue.getDouble("totalSize")).isEqualTo(5.14);
+    }
+
+    @Test
+    void emptyCollection() {
+        CollectionStats stats = new CollectionStats(0, 0, 0, 0, 0, Map.of());
+
+        Document document = stats.toDocument(0);
+
+        assertThat(document.getDouble("compressionRatio")).isZero();
+        assertThat(document.get("perDocument", Document.class).getDouble("storageSize")).isZero();
+        assertThat(document.get("perValue", Document.class).getDouble("totalSize")).isZero();
+    }
+}
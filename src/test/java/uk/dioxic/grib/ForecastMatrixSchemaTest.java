@@ -0,0 +1,74 @@
+package uk.dioxic.grib;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+import uk.dioxic.grib.codec.ForecastMatrixCodec;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.ForecastMatrix;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.schema.ForecastMatrixSchema;
+import uk.dioxic.grib.schema.SchemaCandidates;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.dioxic.grib.SchemaTestSupport.*;
+
+public class ForecastMatrixSchemaTest {
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+            .horizonDays(2)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(8)
+            .grid(Grid.FOUR_POINT)
+            .build();
+
+    @Test
+    void matrixPerForecast() {
+        ForecastMatrixSchema schema = new ForecastMatrixSchema();
+        List<WriteModel<ForecastMatrix>> models = schema.writeModel(schema.source(generator), generator).collectList().block();
+
+        // one matrix per calculation and location
+        assertThat(models).hasSize(generator.getForecasts() * Grid.FOUR_POINT.size());
+
+        for (WriteModel<ForecastMatrix> model : models) {
+            ForecastMatrix matrix = ((InsertOneModel<ForecastMatrix>) model).getDocument();
+            assertThat(matrix.getLeads()).isEqualTo(generator.getLeadTimes());
+            assertThat(matrix.getTs()).isEqualTo(matrix.getCalcTs().plusHours(1));
+            assertThat(matrix.getTsEnd()).isEqualTo(matrix.ts(matrix.getLeads() - 1));
+            assertThat(matrix.value(5, 3)).isEqualTo(generator.value(matrix.ts(5), matrix.getCalcTs(),
+                    Grid.FOUR_POINT.index(matrix.getLoc().getLongitude(), matrix.getLoc().getLatitude()), 3));
+        }
+    }
+
+    @Test
+    void codecRoundTrip() {
+        ForecastMatrix matrix = firstDocument(new ForecastMatrixSchema(), generator);
+        ForecastMatrixCodec codec = new ForecastMatrixCodec();
+        RawBsonDocument document = encode(codec, matrix);
+
+        byte[] values = document.getBinary("values").getData();
+        assertThat(values).hasSize(matrix.getLeads() * matrix.getParameters() * Float.BYTES);
+        ByteBuffer littleEndian = ByteBuffer.wrap(values).order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(littleEndian.getFloat(0)).isEqualTo(matrix.value(0, 0));
+        assertThat(littleEndian.getFloat((matrix.getParameters() + 1) * Float.BYTES)).isEqualTo(matrix.value(1, 1));
+
+        assertThat(decode(codec, document)).isEqualTo(matrix);
+    }
+
+    @Test
+    void fewerBytesPerValue() {
+        long matrixBytes = encodeLoad(SchemaCandidates.FORECAST_MATRIX.getSchema(), generator).getBytes();
+        long simpleBytes = encodeLoad(SchemaCandidates.SIMPLE_BUCKET.getSchema(), generator).getBytes();
+
+        assertThat(matrixBytes * 3).isLessThan(simpleBytes);
+    }
+}
@@ -0,0 +1,161 @@
+package uk.dioxic.grib;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.Grib2FileGenerator;
+import uk.dioxic.grib.grib2.Grib2Field;
+import uk.dioxic.grib.grib2.Grib2Reader;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.Point;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class Grib2FileGeneratorTest {
+
+    @Test
+    void decodeTest(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("test.grib2");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(message(0, simplePacking()));
+        out.write(new byte[]{0, 0, 0});
+        out.write(message(1, complexPacking()));
+        Files.write(file, out.toByteArray());
+
+        Grib2FileGenerator generator = Grib2FileGenerator.builder()
+                .files(List.of(file))
+                .build();
+
+        assertThat(generator.getParameters()).isEqualTo(2);
+        assertThat(generator.getResolutionHours()).isEqualTo(6);
+        assertThat(generator.recordCount()).isEqualTo(12);
+
+        List<GribRecord> records = generator.generate().collectList().block();
+
+        assertThat(records).hasSize(12);
+        assertThat(records).allSatisfy(record -> {
+            assertThat(record.getCalcTs()).isEqualTo(LocalDateTime.parse("2020-01-01T00:00:00"));
+            assertThat(record.getTs()).isEqualTo(LocalDateTime.parse("2020-01-01T06:00:00"));
+        });
+        assertThat(records.stream().filter(r -> r.getParameter() == 0).map(GribRecord::getValue))
+                .containsExactly(10.0f, 10.1f, 10.2f, 10.3f, 10.4f, 10.5f);
+        assertThat(records.stream().filter(r -> r.getParameter() == 1).map(GribRecord::getValue))
+                .containsExactly(10f, 12f, 15f, 15f, 13f, 20f);
+        assertThat(records.get(9).getLoc()).isEqualTo(new Point(-9.75, 49.75));
+
+        List<Generator<GribRecord>> partitions = generator.split(4);
+        assertThat(partitions).hasSize(1);
+        assertThat(partitions.get(0).generate().collect(Collectors.toList()).block()).hasSize(12);
+    }
+
+    @Test
+    void corruptGroupLengths(@TempDir Path dir) throws IOException {
+        byte[] corrupt = complexPacking();
+        // last group length of 5 rather than 3, describing 8 values
+        ByteBuffer.wrap(corrupt).putInt(42, 5);
+        Path file = dir.resolve("corrupt.grib2");
+        Files.write(file, message(1, corrupt));
+
+        Grib2Field field = Grib2Reader.index(file).get(0);
+        ByteBuffer message = ByteBuffer.wrap(Files.readAllBytes(file));
+
+        assertThatThrownBy(() -> Grib2Reader.decode(field, message))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("group lengths describe 8 values");
+    }
+
+    @Test
+    void negativeSurfaceScale(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("surface.grib2");
+        // sign and magnitude scale factor of -1
+        Files.write(file, message(0, (byte) 0x81, 5, simplePacking()));
+
+        assertThat(Grib2Reader.index(file).get(0).getParameter().getSurfaceValue()).isEqualTo(50.0);
+    }
+
+    /**
+     * Template 5.0 with R=100, E=0, D=1 and 8 bit values 0..5.
+     */
+    private static byte[] simplePacking() {
+        ByteBuffer drs = ByteBuffer.allocate(21);
+        drs.putInt(21).put((byte) 5).putInt(6).putShort((short) 0)
+                .putFloat(100f).putShort((short) 0).putShort((short) 1).put((byte) 8).put((byte) 0);
+        return concat(drs.array(), data(new byte[]{0, 1, 2, 3, 4, 5}));
+    }
+
+    /**
+     * Template 5.3 with first order differencing of 10, 12, 15, 15, 13, 20 packed in two groups of three.
+     */
+    private static byte[] complexPacking() {
+        ByteBuffer drs = ByteBuffer.allocate(49);
+        drs.putInt(49).put((byte) 5).putInt(6).putShort((short) 3)
+                .putFloat(0f).putShort((short) 0).putShort((short) 0).put((byte) 4).put((byte) 0)
+                .put((byte) 1).put((byte) 0).putInt(0).putInt(0)
+                .putInt(2).put((byte) 0).put((byte) 3)
+                .putInt(3).put((byte) 1).putInt(3).put((byte) 0)
+                .put((byte) 1).put((byte) 2);
+        return concat(drs.array(), data(new byte[]{
+                0x00, 0x0A,                 // first value 10
+                (byte) 0x80, 0x02,          // minimum difference -2
+                0x00,                       // group references 0, 0
+                0x70,                       // group widths 3, 4
+                0x12, (byte) 0x90, 0x48     // 0,4,5 in 3 bits then 2,0,9 in 4 bits
+        }));
+    }
+
+    private static byte[] data(byte[] packed) {
+        ByteBuffer bitmap = ByteBuffer.allocate(6).putInt(6).put((byte) 6).put((byte) 255);
+        ByteBuffer data = ByteBuffer.allocate(5 + packed.length).putInt(5 + packed.length).put((byte) 7).put(packed);
+        return concat(bitmap.array(), data.array());
+    }
+
+    private static byte[] message(int category, byte[] representation) {
+        return message(category, (byte) 0, 0, representation);
+    }
+
+    private static byte[] message(int category, byte surfaceScale, int surfaceValue, byte[] representation) {
+        ByteBuffer identification = ByteBuffer.allocate(21);
+        identification.putInt(21).put((byte) 1).putShort((short) 98).putShort((short) 0).put((byte) 2).put((byte) 0)
+                .put((byte) 1).putShort((short) 2020).put((byte) 1).put((byte) 1).put((byte) 0).put((byte) 0).put((byte) 0)
+                .put((byte) 0).put((byte) 1);
+
+        // 3x2 grid from 50N 350E in 0.25 degree steps
+        ByteBuffer grid = ByteBuffer.allocate(72);
+        grid.putInt(72).put((byte) 3).put((byte) 0).putInt(6).put((byte) 0).put((byte) 0).putShort((short) 0)
+                .put((byte) 6).put(new byte[15])
+                .putInt(3).putInt(2).putInt(0).putInt(-1)
+                .putInt(50_000_000).putInt(350_000_000).put((byte) 48)
+                .putInt(49_750_000).putInt(350_500_000).putInt(250_000).putInt(250_000).put((byte) 0);
+
+        ByteBuffer product = ByteBuffer.allocate(34);
+        product.putInt(34).put((byte) 4).putShort((short) 0).putShort((short) 0)
+                .put((byte) category).put((byte) 0).put((byte) 2).put((byte) 0).put((byte) 0)
+                .putShort((short) 0).put((byte) 0).put((byte) 1).putInt(6)
+                .put((byte) 1).put(surfaceScale).putInt(surfaceValue)
+                .put((byte) 255).put((byte) 0).putInt(0);
+
+        byte[] body = concat(concat(concat(identification.array(), grid.array()), product.array()), representation);
+        ByteBuffer message = ByteBuffer.allocate(16 + body.length + 4);
+        message.put(new byte[]{'G', 'R', 'I', 'B', 0, 0, 0, 2}).putLong(message.capacity())
+                .put(body).put(new byte[]{'7', '7', '7', '7'});
+        return message.array();
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = new byte[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+}
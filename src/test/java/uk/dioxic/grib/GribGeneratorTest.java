@@ -5,9 +5,14 @@ import org.apache.logging.log4j.Logger;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
+import uk.dioxic.grib.generator.Generator;
 import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.generator.ValueModelCandidates;
+import uk.dioxic.grib.model.GribRecord;
 import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.Tiling;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -15,6 +20,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class GribGeneratorTest {
 
@@ -43,6 +51,279 @@ public class GribGeneratorTest {
 
     }
 
+    @ParameterizedTest
+    @CsvSource({"1,ONE_POINT", "3,FOUR_POINT", "7,FOUR_POINT", "500,ONE_POINT", "500,FOUR_POINT"})
+    public void splitTest(int partitions, Grid grid) {
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(2)
+                .resolutionHours(1)
+                .intervalHours(6)
+                .parameters(3)
+                .grid(grid)
+                .build();
+
+        List<Generator<GribRecord>> generators = generator.split(partitions);
+
+        assertThat(generators).hasSizeLessThanOrEqualTo(partitions);
+        assertThat(generators.stream().mapToLong(Generator::recordCount).sum()).isEqualTo(generator.recordCount());
+
+        List<String> expected = generator.generate()
+                .map(this::key)
+                .collectList()
+                .block();
+
+        List<String> actual = Flux.concat(generators.stream().map(Generator::generate).collect(Collectors.toList()))
+                .map(this::key)
+                .collectList()
+                .block();
+
+        assertThat(actual)
+                .hasSize((int) generator.recordCount())
+                .containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    public void cyclesTest() {
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(2)
+                .resolutionHours(3)
+                .intervalHours(6)
+                .parameters(2)
+                .grid(Grid.FOUR_POINT)
+                .build();
+
+        List<Generator<GribRecord>> cycles = generator.cycles();
+
+        assertThat(cycles).hasSize(generator.getForecasts());
+        assertThat(cycles.stream().mapToLong(Generator::recordCount).sum()).isEqualTo(generator.recordCount());
+
+        List<String> expected = generator.generate()
+                .map(this::key)
+                .sort()
+                .collectList()
+                .block();
+
+        List<String> actual = Flux.concat(cycles.stream().map(Generator::generate).collect(Collectors.toList()))
+                .map(this::key)
+                .sort()
+                .collectList()
+                .block();
+
+        assertThat(actual).containsExactlyElementsOf(expected);
+
+        for (int i = 0; i < cycles.size(); i++) {
+            LocalDateTime calcTs = generator.getStartDate().plusHours(i * 6);
+            assertThat(cycles.get(i).generate().map(GribRecord::getCalcTs).distinct().collectList().block())
+                    .containsExactly(calcTs);
+            assertThat(cycles.get(i).split(3).stream().mapToLong(Generator::recordCount).sum())
+                    .isEqualTo(cycles.get(i).recordCount());
+        }
+    }
+
+    @Test
+    void generateFramesTest() {
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(2)
+                .resolutionHours(1)
+                .intervalHours(6)
+                .parameters(3)
+                .grid(Grid.FOUR_POINT)
+                .build();
+
+        List<String> frameKeys = generator.generateFrames()
+                .map(frame -> frame.toGribRecords(generator.getGrid()))
+                .flatMapIterable(records -> records)
+                .map(this::key)
+                .collectList()
+                .block();
+
+        Long frameCount = generator.generateFrames().count().block();
+        Long tsCount = generator.generate().map(GribRecord::getTs).distinct().count().block();
+
+        assertThat(frameKeys).hasSize((int) generator.recordCount());
+        assertThat(frameCount).isEqualTo(tsCount * Grid.FOUR_POINT.size());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"5,1,6", "2,1,6", "2,4,6", "2,3,5", "1,6,4", "1,1,24", "3,2,1"})
+    public void calculationMappingTest(int horizon, int resolution, int interval) {
+        LocalDateTime startDate = LocalDateTime.parse("2020-01-01T00:00:00");
+        LocalDateTime endDate = LocalDateTime.parse("2020-01-03T00:00:00");
+
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(startDate)
+                .endDate(endDate)
+                .horizonDays(horizon)
+                .resolutionHours(resolution)
+                .intervalHours(interval)
+                .parameters(1)
+                .grid(Grid.ONE_POINT)
+                .build();
+
+        Map<LocalDateTime, List<LocalDateTime>> calculationMap = new HashMap<>();
+        for (LocalDateTime calcTs = startDate; calcTs.isBefore(endDate); calcTs = calcTs.plusHours(interval)) {
+            for (LocalDateTime ts = calcTs.plusHours(resolution); ts.isBefore(calcTs.plusDays(horizon)); ts = ts.plusHours(resolution)) {
+                calculationMap
+                        .computeIfAbsent(ts, k -> new ArrayList<>())
+                        .add(calcTs);
+            }
+        }
+
+        List<String> expected = calculationMap.keySet()
+                .stream()
+                .sorted()
+                .flatMap(ts -> calculationMap.get(ts).stream().map(calcTs -> ts + "|" + calcTs))
+                .collect(Collectors.toList());
+
+        List<String> actual = generator.generate()
+                .map(rec -> rec.getTs() + "|" + rec.getCalcTs())
+                .collectList()
+                .block();
+
+        assertThat(generator.recordCount()).isEqualTo(expected.size());
+        assertThat(actual).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void seedTest() {
+        GribGenerator.GribGeneratorBuilder builder = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(1)
+                .resolutionHours(1)
+                .intervalHours(6)
+                .parameters(3)
+                .grid(Grid.FOUR_POINT);
+
+        List<String> first = builder.seed(42).build().generate().map(this::key).collectList().block();
+        List<String> second = builder.seed(42).build().generate().map(this::key).collectList().block();
+        List<String> other = builder.seed(43).build().generate().map(this::key).collectList().block();
+
+        assertThat(first).containsExactlyElementsOf(second);
+        assertThat(first).isNotEqualTo(other);
+
+        GribGenerator generator = builder.seed(42).build();
+        GribRecord rec = generator.generate().blockLast();
+        assertThat(rec).isNotNull();
+        assertThat(generator.value(rec.getTs(), rec.getCalcTs(), generator.getGrid().index(rec.getLoc()), rec.getParameter()))
+                .isEqualTo(rec.getValue());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"UNIFORM,0.2,0.5", "NOISE,0,0.05"})
+    void valueModelTest(ValueModelCandidates valueModel, double minDiff, double maxDiff) {
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(1)
+                .resolutionHours(1)
+                .intervalHours(6)
+                .parameters(1)
+                .valueModel(valueModel)
+                .grid(Grid.DENMARK)
+                .build();
+
+        LocalDateTime ts = LocalDateTime.parse("2020-01-01T12:00:00");
+        LocalDateTime calcTs = LocalDateTime.parse("2020-01-01T06:00:00");
+        int locations = generator.getGrid().size();
+
+        double meanDiff = IntStream.range(1, locations)
+                .mapToDouble(loc -> Math.abs(generator.value(ts, calcTs, loc, 0) - generator.value(ts, calcTs, loc - 1, 0)))
+                .average()
+                .orElseThrow();
+
+        assertThat(meanDiff).isBetween(minDiff, maxDiff);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1,FOUR_POINT", "3,FOUR_POINT", "500,ONE_POINT"})
+    public void forecastOrderTest(int partitions, Grid grid) {
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(2)
+                .resolutionHours(3)
+                .intervalHours(6)
+                .parameters(3)
+                .grid(grid)
+                .build();
+
+        List<String> expected = generator.generate()
+                .map(this::key)
+                .sort()
+                .collectList()
+                .block();
+
+        List<GribRecord> actual = new ArrayList<>();
+        for (Generator<GribRecord> partition : generator.split(partitions)) {
+            List<GribRecord> records = ((GribGenerator) partition).generateForecastOrder().collectList().block();
+            assertThat(records).hasSize((int) partition.recordCount());
+
+            // each calculation at each location is contiguous, in timestamp -> parameter order
+            List<String> forecasts = records.stream()
+                    .map(rec -> rec.getCalcTs() + "|" + rec.getLoc())
+                    .distinct()
+                    .collect(Collectors.toList());
+            assertThat(records.stream().map(rec -> rec.getCalcTs() + "|" + rec.getLoc()).collect(Collectors.toList()))
+                    .isSortedAccordingTo((a, b) -> Integer.compare(forecasts.indexOf(a), forecasts.indexOf(b)));
+            for (int i = 1; i < records.size(); i++) {
+                if (records.get(i).getParameter() > 0) {
+                    assertThat(records.get(i).getTs()).isEqualTo(records.get(i - 1).getTs());
+                    assertThat(records.get(i).getParameter()).isEqualTo(records.get(i - 1).getParameter() + 1);
+                }
+            }
+            actual.addAll(records);
+        }
+
+        assertThat(actual.stream().map(this::key).sorted().collect(Collectors.toList())).isEqualTo(expected);
+    }
+
+    @ParameterizedTest
+    @CsvSource({"1,DENMARK", "4,DENMARK", "3,FOUR_POINT"})
+    public void tileOrderTest(int partitions, Grid grid) {
+        Tiling tiling = new Tiling(0.25, 4, 4);
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-01T12:00:00"))
+                .horizonDays(1)
+                .resolutionHours(3)
+                .intervalHours(6)
+                .parameters(2)
+                .grid(grid)
+                .build();
+
+        List<String> expected = generator.generate()
+                .map(this::key)
+                .sort()
+                .collectList()
+                .block();
+
+        List<GribRecord> actual = new ArrayList<>();
+        for (Generator<GribRecord> partition : generator.split(partitions)) {
+            List<GribRecord> records = ((GribGenerator) partition).generateTileOrder(tiling).collectList().block();
+
+            // each timestamp, calculation and tile is contiguous
+            List<String> buckets = records.stream()
+                    .map(rec -> rec.getTs() + "|" + rec.getCalcTs() + "|" + tiling.tileId(rec.getLoc()))
+                    .collect(Collectors.toList());
+            List<String> distinct = buckets.stream().distinct().collect(Collectors.toList());
+            assertThat(buckets).isSortedAccordingTo((a, b) -> Integer.compare(distinct.indexOf(a), distinct.indexOf(b)));
+            actual.addAll(records);
+        }
+
+        assertThat(actual.stream().map(this::key).sorted().collect(Collectors.toList())).isEqualTo(expected);
+    }
+
+    private String key(GribRecord rec) {
+        return rec.getTs() + "|" + rec.getLoc() + "|" + rec.getCalcTs() + "|" + rec.getParameter() + "|" + rec.getValue();
+    }
+
     @Test
     void quick() {
         LocalDateTime startDate = LocalDateTime.parse("2020-01-01T00:00:00");
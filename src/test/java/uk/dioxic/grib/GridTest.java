@@ -2,15 +2,52 @@ package uk.dioxic.grib;
 
 import org.junit.jupiter.api.Test;
 import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.Point;
+import uk.dioxic.grib.model.RegularGrid;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 
 public class GridTest {
 
     @Test
     void printGridCounts() {
         Arrays.stream(Grid.values())
-                .forEach(grid -> System.out.println(grid.toString() + ": " + grid.getPoints().size()));
+                .forEach(grid -> System.out.println(grid.toString() + ": " + grid.size()));
+    }
+
+    @Test
+    void pointOrderTest() {
+        List<Point> expected = new ArrayList<>();
+        for (double longitude = -23; longitude < 39; longitude = longitude + 0.25d) {
+            for (double latitude = 36; latitude < 72; latitude = latitude + 0.25d) {
+                expected.add(new Point(longitude, latitude));
+            }
+        }
+
+        assertThat(Grid.EUROPE.size()).isEqualTo(expected.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertThat(Grid.EUROPE.point(i)).isEqualTo(expected.get(i));
+            assertThat(Grid.EUROPE.index(expected.get(i))).isEqualTo(i);
+        }
+    }
+
+    @Test
+    void regularGridTest() {
+        RegularGrid grid = new RegularGrid("TENTH", 8, 12, 55, 57, 0.1);
+
+        assertThat(grid.size()).isEqualTo(40 * 20);
+        assertThat(grid.point(grid.size() - 1)).isEqualTo(new Point(11.9, 56.9));
+        assertThat(grid.index(new Point(10.3, 55.7))).isEqualTo(23 * 20 + 7);
+        assertThat(grid.index(new Point(10.35, 55.7))).isEqualTo(-1);
+        assertThat(grid.index(new Point(12, 55))).isEqualTo(-1);
+
+        assertThat(Grid.GLOBAL_0125.size()).isEqualTo(2880 * 1441);
+        assertThat(Grid.GLOBAL_0125.point(Grid.GLOBAL_0125.size() - 1)).isEqualTo(new Point(179.875, 90));
+        assertThat(Grid.DENMARK.withResolution(0.1).size()).isEqualTo(grid.size());
     }
 
 }
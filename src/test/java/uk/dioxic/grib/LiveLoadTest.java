@@ -0,0 +1,124 @@
+package uk.dioxic.grib;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.InsertOneModel;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.loader.LoadResult;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.schema.FlatSchema;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Live loads releasing forecast cycles on a period, against a target that needs no server.
+ */
+public class LiveLoadTest {
+
+    private static final int CYCLES = 3;
+    private static final int RECORDS_PER_CYCLE = 2;
+    private static final Duration PERIOD = Duration.ofMillis(100);
+    private static final Duration CYCLE_TAIL = Duration.ofMillis(400);
+
+    @Test
+    void cyclesReleasedOnPeriodAndFlushedBeforeBatchFills() {
+        // cycle -> nanos at which its records were emitted, and at which its first write arrived
+        ConcurrentHashMap<Integer, Long> emitted = new ConcurrentHashMap<>();
+        ConcurrentHashMap<Integer, Long> firstWrites = new ConcurrentHashMap<>();
+        List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+        LoadResult result = LoadRunner.<GribRecord, GribRecord>builder()
+                .generator(new CycleGenerator(emitted))
+                .schema(new FlatSchema())
+                .writeTarget((requests, options) -> {
+                    long nanos = System.nanoTime();
+                    int cycle = ((InsertOneModel<? extends GribRecord>) requests.get(0)).getDocument().getParameter();
+                    firstWrites.putIfAbsent(cycle, nanos);
+                    batchSizes.add(requests.size());
+                    return Mono.just(BulkWriteResult.acknowledged(requests.size(), 0, 0, 0,
+                            Collections.emptyList(), Collections.emptyList()));
+                })
+                .batchSize(1000)
+                .flushInterval(Duration.ofMillis(20))
+                .concurrency(4)
+                .liveCyclePeriod(PERIOD)
+                .build()
+                .run()
+                .block();
+
+        assertThat(result.getOperationCount()).isEqualTo(CYCLES * RECORDS_PER_CYCLE);
+        assertThat(batchSizes).containsOnly(RECORDS_PER_CYCLE);
+        assertThat(firstWrites).containsOnlyKeys(0, 1, 2);
+
+        for (int cycle = 0; cycle < CYCLES; cycle++) {
+            // flushed on the flush interval, well before the cycle source completes
+            long flushDelay = TimeUnit.NANOSECONDS.toMillis(firstWrites.get(cycle) - emitted.get(cycle));
+            assertThat(flushDelay).isLessThan(CYCLE_TAIL.toMillis() / 2);
+        }
+        for (int cycle = 1; cycle < CYCLES; cycle++) {
+            // released on the period
+            long spacing = TimeUnit.NANOSECONDS.toMillis(emitted.get(cycle) - emitted.get(cycle - 1));
+            assertThat(spacing).isBetween(PERIOD.toMillis() / 2, PERIOD.toMillis() * 3 / 2);
+        }
+    }
+
+    /**
+     * Cycles that emit their records straight away but only complete after a tail, so a partial batch is only
+     * written before completion when the flush interval fires.
+     */
+    private static class CycleGenerator implements Generator<GribRecord> {
+
+        private final ConcurrentHashMap<Integer, Long> emitted;
+        private final int cycle;
+
+        CycleGenerator(ConcurrentHashMap<Integer, Long> emitted) {
+            this(emitted, -1);
+        }
+
+        private CycleGenerator(ConcurrentHashMap<Integer, Long> emitted, int cycle) {
+            this.emitted = emitted;
+            this.cycle = cycle;
+        }
+
+        @Override
+        public Flux<GribRecord> generate() {
+            LocalDateTime calcTs = LocalDateTime.parse("2020-01-01T00:00:00").plusHours(6L * cycle);
+            return Flux.defer(() -> {
+                emitted.put(cycle, System.nanoTime());
+                return Flux.range(0, RECORDS_PER_CYCLE);
+            })
+                    .map(i -> GribRecord.builder()
+                            .calcTs(calcTs)
+                            .ts(calcTs.plusHours(i + 1))
+                            .parameter(cycle)
+                            .value(i)
+                            .build())
+                    .concatWith(Mono.delay(CYCLE_TAIL).then(Mono.empty()));
+        }
+
+        @Override
+        public long recordCount() {
+            return cycle < 0 ? (long) CYCLES * RECORDS_PER_CYCLE : RECORDS_PER_CYCLE;
+        }
+
+        @Override
+        public List<Generator<GribRecord>> cycles() {
+            return IntStream.range(0, CYCLES)
+                    .mapToObj(cycle -> new CycleGenerator(emitted, cycle))
+                    .collect(Collectors.toList());
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package uk.dioxic.grib;
+
+import org.HdrHistogram.Histogram;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import uk.dioxic.grib.loader.LoadResult;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LoadResultTest {
+
+    private final Histogram latency = new Histogram(3);
+
+    @Test
+    void ratesOverElapsedSeconds() {
+        LoadResult result = new LoadResult(1000, 3000, 0, 0, 0, 3_000_000_000L, latency);
+
+        assertThat(result.getOperationRate()).isCloseTo(333.33, within(0.01));
+        assertThat(result.getParameterRate()).isCloseTo(1000, within(0.01));
+    }
+
+    @Test
+    void documentRoundedToTenths() {
+        for (int i = 1; i <= 100; i++) {
+            latency.recordValue(i * 1_234_567L);
+        }
+        LoadResult result = new LoadResult(1000, 3000, 4, 1, 2, 3_000_000_000L, latency);
+
+        Document document = result.toDocument();
+
+        assertThat(document.getLong("operations")).isEqualTo(1000);
+        assertThat(document.getLong("records")).isEqualTo(3000);
+        assertThat(document.getDouble("seconds")).isEqualTo(3.0);
+        assertThat(document.getDouble("operationsPerSecond")).isEqualTo(333.3);
+        assertThat(document.getDouble("recordsPerSecond")).isEqualTo(1000.0);
+        assertThat(document.getLong("retriedOperations")).isEqualTo(4);
+        assertThat(document.getLong("duplicates")).isEqualTo(1);
+        assertThat(document.getLong("writeConcernErrors")).isEqualTo(2);
+
+        Document percentiles = document.get("latency", Document.class);
+        assertThat(percentiles.getDouble("p50")).isEqualTo(61.7);
+        assertThat(percentiles.getDouble("p90")).isEqualTo(111.1);
+        assertThat(percentiles.getDouble("max")).isEqualTo(123.5);
+    }
+}
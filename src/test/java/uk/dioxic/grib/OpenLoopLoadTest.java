@@ -0,0 +1,81 @@
+package uk.dioxic.grib;
+
+import com.mongodb.bulk.BulkWriteResult;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.LoadResult;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.NullWriteTarget;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.schema.SimpleBucketSchema;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Open-loop loads against targets that need no server.
+ */
+public class OpenLoopLoadTest {
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-01T12:00:00"))
+            .horizonDays(1)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(2)
+            .grid(Grid.ONE_POINT)
+            .build();
+
+    private final long operations = generator.recordCount() / generator.getParameters();
+
+    @Test
+    void pacedToTargetRate() {
+        int batchSize = 2;
+        long batches = (operations + batchSize - 1) / batchSize;
+        // every batch released 20ms after the one before
+        double targetRate = batchSize * 50.0;
+
+        LoadResult result = LoadRunner.<SimpleBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(new SimpleBucketSchema())
+                .writeTarget(new NullWriteTarget<>())
+                .batchSize(batchSize)
+                .concurrency(4)
+                .targetRate(targetRate)
+                .build()
+                .run()
+                .block();
+
+        assertThat(result.getOperationCount()).isEqualTo(operations);
+        assertThat(result.getElapsedNanos()).isGreaterThanOrEqualTo(Duration.ofMillis(20 * (batches - 1)).toNanos());
+    }
+
+    @Test
+    void latencyIncludesQueueing() {
+        int batchSize = (int) Math.max(1, operations / 20);
+        long batches = (operations + batchSize - 1) / batchSize;
+
+        // batches are released every 10ms but take 20ms each, one at a time
+        LoadResult result = LoadRunner.<SimpleBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(new SimpleBucketSchema())
+                .writeTarget((requests, options) -> Mono.delay(Duration.ofMillis(20))
+                        .thenReturn(BulkWriteResult.unacknowledged()))
+                .batchSize(batchSize)
+                .concurrency(1)
+                .targetRate(batchSize * 100.0)
+                .build()
+                .run()
+                .block();
+
+        assertThat(result.getOperationCount()).isEqualTo(operations);
+        // the last batch waits behind every earlier one, far beyond its own 20ms
+        assertThat(result.getMaxLatency()).isGreaterThan(10.0 * (batches - 1) * 0.8);
+    }
+}
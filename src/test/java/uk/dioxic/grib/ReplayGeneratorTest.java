@@ -0,0 +1,77 @@
+package uk.dioxic.grib;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import reactor.core.publisher.Flux;
+import uk.dioxic.grib.dump.BinaryDumpWriter;
+import uk.dioxic.grib.dump.DumpHeader;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.generator.ReplayGenerator;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.Grid;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ReplayGeneratorTest {
+
+    @Test
+    void replayTest(@TempDir Path dir) throws IOException {
+        Path file = dir.resolve("dump.bin");
+        GribGenerator generator = GribGenerator.builder()
+                .horizonDays(1)
+                .resolutionHours(3)
+                .intervalHours(6)
+                .parameters(3)
+                .seed(7)
+                .grid(Grid.FOUR_POINT)
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .build();
+
+        try (BinaryDumpWriter writer = new BinaryDumpWriter(file, DumpHeader.of(generator))) {
+            generator.generate().doOnNext(writer::write).blockLast();
+        }
+
+        ReplayGenerator replay = ReplayGenerator.builder()
+                .file(file)
+                .build();
+
+        assertThat(replay.recordCount()).isEqualTo(generator.recordCount());
+        assertThat(replay.getParameters()).isEqualTo(3);
+        assertThat(replay.getGridName()).isEqualTo(Grid.FOUR_POINT.name());
+
+        List<GribRecord> expected = withoutIds(generator.generate());
+        assertThat(withoutIds(replay.generate())).isEqualTo(expected);
+
+        List<Generator<GribRecord>> partitions = replay.split(5);
+        assertThat(partitions).hasSize(5);
+        assertThat(withoutIds(Flux.concat(partitions.stream().map(Generator::generate).collect(Collectors.toList()))))
+                .isEqualTo(expected);
+        for (int i = 1; i < partitions.size(); i++) {
+            GribRecord last = partitions.get(i - 1).generate().blockLast();
+            GribRecord first = partitions.get(i).generate().blockFirst();
+            assertThat(first.getTs()).isAfter(last.getTs());
+        }
+
+        // more partitions than timestamps leaves one timestamp per partition
+        long timestamps = expected.stream().map(GribRecord::getTs).distinct().count();
+        List<Generator<GribRecord>> single = replay.split(1000);
+        assertThat(single).hasSize((int) timestamps);
+        assertThat(single).allSatisfy(partition -> assertThat(withoutIds(partition.generate()).stream()
+                .map(GribRecord::getTs).distinct()).hasSize(1));
+        assertThat(withoutIds(Flux.concat(single.stream().map(Generator::generate).collect(Collectors.toList()))))
+                .isEqualTo(expected);
+    }
+
+    private static List<GribRecord> withoutIds(Flux<GribRecord> records) {
+        return records.map(record -> record.withId(null)).collectList().block();
+    }
+
+}
@@ -0,0 +1,158 @@
+package uk.dioxic.grib;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.Checkpoint;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.WriteTarget;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.schema.SimpleBucketSchema;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Resumes checkpointed loads against an in-memory target that applies inserts and timestamp range deletes.
+ */
+public class ResumeLoadTest {
+
+    @TempDir
+    Path dir;
+
+    // fewer timestamps than locations or segments
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-01T12:00:00"))
+            .horizonDays(1)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(2)
+            .grid(Grid.DENMARK)
+            .build();
+
+    @Test
+    void segmentsFallOnTimestamps() {
+        List<Generator<GribRecord>> segments = generator.segments(1000);
+
+        assertThat(segments.size()).isGreaterThan(1);
+        for (int i = 1; i < segments.size(); i++) {
+            assertThat(segments.get(i).generate().blockFirst().getTs())
+                    .isAfter(segments.get(i - 1).generate().blockFirst().getTs());
+        }
+        assertThat(segments.stream().mapToLong(Generator::recordCount).sum()).isEqualTo(generator.recordCount());
+    }
+
+    @Test
+    void resumeHalfFinishedLoad() {
+        MemoryTarget complete = new MemoryTarget();
+        load(complete, null, false);
+
+        List<Generator<GribRecord>> segments = generator.segments(1000);
+        int half = segments.size() / 2;
+        LocalDateTime halfTs = segments.get(half).generate().blockFirst().getTs();
+
+        // every segment before half written, and part of the ones after
+        MemoryTarget target = new MemoryTarget();
+        target.documents.addAll(complete.documents.stream()
+                .filter(bucket -> bucket.getTs().isBefore(halfTs))
+                .collect(Collectors.toList()));
+        target.documents.addAll(complete.documents.stream()
+                .filter(bucket -> !bucket.getTs().isBefore(halfTs))
+                .limit(20)
+                .collect(Collectors.toList()));
+
+        Path file = dir.resolve("load.checkpoint");
+        Map<String, String> identity = Checkpoint.identity(generator, new SimpleBucketSchema());
+        Checkpoint checkpoint = Checkpoint.create(file, segments.size(), generator.recordCount(), identity);
+        for (int idx = 0; idx < half; idx++) {
+            checkpoint.segment(idx).generated();
+        }
+        checkpoint.save();
+
+        load(target, file, true);
+
+        assertThat(target.withoutIds()).containsExactlyInAnyOrderElementsOf(complete.withoutIds());
+        assertThat(Checkpoint.resume(file, segments.size(), generator.recordCount(), identity).getCompletedCount())
+                .isEqualTo(segments.size());
+    }
+
+    private void load(WriteTarget<SimpleBucket> target, Path checkpointFile, boolean resume) {
+        LoadRunner.<SimpleBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(new SimpleBucketSchema())
+                .writeTarget(target)
+                .batchSize(10)
+                .concurrency(2)
+                .checkpointFile(checkpointFile)
+                .resume(resume)
+                .build()
+                .load()
+                .block();
+    }
+
+    /**
+     * Keeps inserted buckets and deletes them by the timestamp range filters of the schema.
+     */
+    private static class MemoryTarget implements WriteTarget<SimpleBucket> {
+        private final List<SimpleBucket> documents = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public Publisher<BulkWriteResult> bulkWrite(List<? extends WriteModel<? extends SimpleBucket>> requests,
+                                                    BulkWriteOptions options) {
+            return Mono.fromCallable(() -> {
+                int inserted = 0;
+                int deleted = 0;
+                for (WriteModel<? extends SimpleBucket> model : requests) {
+                    if (model instanceof InsertOneModel) {
+                        documents.add(((InsertOneModel<? extends SimpleBucket>) model).getDocument());
+                        inserted++;
+                    } else {
+                        BsonDocument filter = ((DeleteManyModel<? extends SimpleBucket>) model).getFilter()
+                                .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+                        int before = documents.size();
+                        documents.removeIf(bucket -> matches(filter, bucket));
+                        deleted += before - documents.size();
+                    }
+                }
+                return BulkWriteResult.acknowledged(inserted, 0, deleted, 0, List.of(), List.of());
+            });
+        }
+
+        private List<SimpleBucket> withoutIds() {
+            return documents.stream().map(bucket -> bucket.withId(null)).collect(Collectors.toList());
+        }
+
+        private static boolean matches(BsonDocument filter, SimpleBucket bucket) {
+            if (filter.containsKey("$and")) {
+                return filter.getArray("$and").stream().allMatch(clause -> matches(clause.asDocument(), bucket));
+            }
+            long ts = bucket.getTs().toInstant(ZoneOffset.UTC).toEpochMilli();
+            BsonDocument range = filter.getDocument("ts");
+            BsonValue gte = range.get("$gte");
+            BsonValue lt = range.get("$lt");
+            return (gte == null || ts >= gte.asDateTime().getValue()) && (lt == null || ts < lt.asDateTime().getValue());
+        }
+    }
+}
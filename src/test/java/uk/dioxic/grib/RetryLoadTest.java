@@ -0,0 +1,223 @@
+package uk.dioxic.grib;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoSocketException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.WriteConcernError;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.LoadResult;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.WriteTarget;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.model.TimestampBucket;
+import uk.dioxic.grib.schema.Schema;
+import uk.dioxic.grib.schema.SimpleBucketSchema;
+import uk.dioxic.grib.schema.TimestampBucketSchema;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Retries of a single batch against targets that fail on cue.
+ */
+public class RetryLoadTest {
+    private static final int DUPLICATE_KEY = 11000;
+    private static final int INTERRUPTED_AT_SHUTDOWN = 11600;
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-01T06:00:00"))
+            .horizonDays(1)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(2)
+            .grid(Grid.ONE_POINT)
+            .build();
+
+    // every operation in one batch
+    private final int operations = (int) (generator.recordCount() / generator.getParameters());
+
+    private final List<List<WriteModel<?>>> attempts = new ArrayList<>();
+    private final List<Long> attemptNanos = new ArrayList<>();
+
+    @Test
+    void retriesFailedIndexesOnly() {
+        LoadResult result = load(target(attempt -> attempt == 0
+                ? writeErrors(INTERRUPTED_AT_SHUTDOWN, 1, 3)
+                : null), false);
+
+        assertThat(attempts).hasSize(2);
+        assertThat(attempts.get(1)).containsExactly(attempts.get(0).get(1), attempts.get(0).get(3));
+        assertThat(result.getOperationCount()).isEqualTo(operations);
+        assertThat(result.getRetriedOperationCount()).isEqualTo(2);
+    }
+
+    @Test
+    void replaysWholeBatchOnConnectionLoss() {
+        LoadResult result = load(target(attempt -> attempt == 0
+                ? new MongoSocketException("connection reset", new ServerAddress())
+                : null), false);
+
+        assertThat(attempts).hasSize(2);
+        assertThat(attempts.get(1)).isEqualTo(attempts.get(0));
+        assertThat(result.getRetriedOperationCount()).isEqualTo(operations);
+    }
+
+    @Test
+    void pushedUpdatesNotReplayed() {
+        LoadRunner<TimestampBucket, GribRecord> runner = upsertRunner(new TimestampBucketSchema(true), target(attempt ->
+                new MongoSocketException("connection reset", new ServerAddress())));
+
+        assertThatThrownBy(() -> runner.run().block()).isInstanceOf(MongoSocketException.class);
+        assertThat(attempts).hasSize(1);
+    }
+
+    @Test
+    void idempotentUpdatesReplayed() {
+        LoadRunner<TimestampBucket, GribRecord> runner = upsertRunner(new TimestampBucketSchema(true).idempotentUpdates(),
+                target(attempt -> attempt == 0
+                        ? new MongoSocketException("connection reset", new ServerAddress())
+                        : null));
+
+        runner.run().block();
+        assertThat(attempts).hasSize(2);
+        assertThat(attempts.get(1)).isEqualTo(attempts.get(0));
+    }
+
+    @Test
+    void backoffCapped() {
+        LoadRunner<SimpleBucket, GribRecord> runner = runner(target(attempt -> attempt < 5
+                ? writeErrors(INTERRUPTED_AT_SHUTDOWN, 0)
+                : null), false)
+                .retryBackoff(Duration.ofMillis(10))
+                .maxRetryBackoff(Duration.ofMillis(20))
+                .build();
+
+        runner.run().block();
+
+        // 10ms, then capped at 20ms rather than doubling to 40, 80 and 160
+        List<Long> gaps = IntStream.range(1, attemptNanos.size())
+                .mapToObj(i -> Duration.ofNanos(attemptNanos.get(i) - attemptNanos.get(i - 1)).toMillis())
+                .collect(Collectors.toList());
+        assertThat(gaps).hasSize(5);
+        assertThat(gaps.get(0)).isGreaterThanOrEqualTo(10);
+        assertThat(gaps.subList(1, 5)).allMatch(gap -> gap >= 20 && gap < 40);
+    }
+
+    @Test
+    void givesUpAfterMaxRetries() {
+        LoadRunner<SimpleBucket, GribRecord> runner = runner(target(attempt ->
+                writeErrors(INTERRUPTED_AT_SHUTDOWN, 0)), false)
+                .maxRetries(2)
+                .build();
+
+        assertThatThrownBy(() -> runner.run().block()).isInstanceOf(MongoBulkWriteException.class);
+        assertThat(attempts).hasSize(3);
+    }
+
+    @Test
+    void duplicatesOfEarlierAttemptsAreWritten() {
+        LoadResult result = load(target(attempt -> attempt == 0
+                ? writeErrors(INTERRUPTED_AT_SHUTDOWN, 0, 1)
+                : attempt == 1 ? writeErrors(DUPLICATE_KEY, 0) : null), false);
+
+        // the duplicate was written by the first attempt, the other retried operation succeeded
+        assertThat(attempts).hasSize(2);
+        assertThat(result.getDuplicateCount()).isEqualTo(1);
+        assertThat(result.getRetriedOperationCount()).isEqualTo(2);
+    }
+
+    @Test
+    void duplicatesOnFirstAttemptFail() {
+        WriteTarget<SimpleBucket> target = target(attempt -> attempt == 0 ? writeErrors(DUPLICATE_KEY, 0) : null);
+
+        assertThatThrownBy(() -> load(target, false)).isInstanceOf(MongoBulkWriteException.class);
+        assertThat(attempts).hasSize(1);
+
+        attempts.clear();
+        LoadResult result = load(target, true);
+        assertThat(attempts).hasSize(1);
+        assertThat(result.getDuplicateCount()).isEqualTo(1);
+    }
+
+    @Test
+    void writeConcernErrorsCountedNotRetried() {
+        LoadResult result = load(target(attempt -> attempt == 0
+                ? new MongoBulkWriteException(BulkWriteResult.unacknowledged(), List.of(),
+                new WriteConcernError(64, "WriteConcernFailed", "waiting for replication timed out", new BsonDocument()),
+                new ServerAddress())
+                : null), false);
+
+        assertThat(attempts).hasSize(1);
+        assertThat(result.getWriteConcernErrorCount()).isEqualTo(1);
+        assertThat(result.getRetriedOperationCount()).isZero();
+    }
+
+    private LoadResult load(WriteTarget<SimpleBucket> target, boolean ignoreDuplicates) {
+        return runner(target, ignoreDuplicates).build().run().block();
+    }
+
+    private LoadRunner.LoadRunnerBuilder<SimpleBucket, GribRecord> runner(WriteTarget<SimpleBucket> target,
+                                                                        boolean ignoreDuplicates) {
+        return LoadRunner.<SimpleBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(new SimpleBucketSchema())
+                .writeTarget(target)
+                .batchSize(operations)
+                .concurrency(1)
+                .retryBackoff(Duration.ofMillis(1))
+                .ignoreDuplicates(ignoreDuplicates);
+    }
+
+    private LoadRunner<TimestampBucket, GribRecord> upsertRunner(Schema<TimestampBucket, GribRecord> schema,
+                                                                 WriteTarget<TimestampBucket> target) {
+        return LoadRunner.<TimestampBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(schema)
+                .writeTarget(target)
+                .batchSize(operations)
+                .concurrency(1)
+                .retryBackoff(Duration.ofMillis(1))
+                .build();
+    }
+
+    /**
+     * Target failing each attempt with the error for its attempt number, or succeeding when there is none.
+     */
+    private <MODEL> WriteTarget<MODEL> target(Failure failure) {
+        return (requests, options) -> Mono.defer(() -> {
+            int attempt = attempts.size();
+            attempts.add(new ArrayList<>(requests));
+            attemptNanos.add(System.nanoTime());
+            RuntimeException error = failure.at(attempt);
+            return error != null ? Mono.error(error) : Mono.just(BulkWriteResult.unacknowledged());
+        });
+    }
+
+    private static MongoBulkWriteException writeErrors(int code, int... indexes) {
+        List<BulkWriteError> errors = IntStream.of(indexes)
+                .mapToObj(index -> new BulkWriteError(code, "error " + code, new BsonDocument(), index))
+                .collect(Collectors.toList());
+        return new MongoBulkWriteException(BulkWriteResult.unacknowledged(), errors, null, new ServerAddress());
+    }
+
+    @FunctionalInterface
+    private interface Failure {
+        RuntimeException at(int attempt);
+    }
+}
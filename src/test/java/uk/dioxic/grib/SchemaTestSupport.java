@@ -0,0 +1,67 @@
+package uk.dioxic.grib;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.InsertOneModel;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+import uk.dioxic.grib.generator.Generator;
+import uk.dioxic.grib.loader.EncodingWriteTarget;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.schema.Schema;
+
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Codec round trips and encoded sizes shared by the schema tests.
+ */
+final class SchemaTestSupport {
+
+    private SchemaTestSupport() {
+    }
+
+    /**
+     * Document of the first write model of a schema that inserts.
+     */
+    @SuppressWarnings("unchecked")
+    static <MODEL> MODEL firstDocument(Schema<MODEL, GribRecord> schema, Generator<GribRecord> generator) {
+        return ((InsertOneModel<MODEL>) schema.writeModel(schema.source(generator), generator).blockFirst()).getDocument();
+    }
+
+    static <T> RawBsonDocument encode(Codec<T> codec, T value) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        codec.encode(new BsonBinaryWriter(buffer), value, EncoderContext.builder().build());
+        return new RawBsonDocument(buffer.toByteArray());
+    }
+
+    static <T> T decode(Codec<T> codec, RawBsonDocument document) {
+        return codec.decode(new BsonBinaryReader(document.getByteBuffer().asNIO()), DecoderContext.builder().build());
+    }
+
+    /**
+     * Loads the generator into a target that only encodes, for the documents and bytes a schema would write.
+     */
+    @SuppressWarnings("unchecked")
+    static <MODEL> EncodingWriteTarget<MODEL> encodeLoad(Schema<?, ?> candidate, Generator<GribRecord> generator) {
+        Schema<MODEL, GribRecord> schema = (Schema<MODEL, GribRecord>) candidate;
+        EncodingWriteTarget<MODEL> target = new EncodingWriteTarget<>(
+                fromRegistries(schema.codecRegistry(), MongoClientSettings.getDefaultCodecRegistry()), false);
+
+        LoadRunner.<MODEL, GribRecord>builder()
+                .generator(generator)
+                .schema(schema)
+                .writeTarget(target)
+                .batchSize(100)
+                .concurrency(1)
+                .build()
+                .load()
+                .block();
+
+        return target;
+    }
+}
@@ -0,0 +1,102 @@
+package uk.dioxic.grib;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.ShardLayout;
+import uk.dioxic.grib.loader.ShardPreSplitter;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.schema.SimpleBucketSchema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * The sharded load runs against a local mongos given by the {@code sharded.uri} system property, e.g. a cluster
+ * started with {@code mlaunch init --sharded 3 --replicaset --nodes 1}, and is skipped when none is reachable.
+ */
+public class ShardedLoadTest {
+
+    @Test
+    void roundRobinLayout() {
+        ShardLayout layout = ShardLayout.roundRobin(List.of("a", "b", "c"), 8);
+
+        assertThat(layout.getPartitions()).isEqualTo(8);
+        assertThat(layout.shardOf(0)).isEqualTo("a");
+        assertThat(layout.shardOf(4)).isEqualTo("b");
+        assertThat(layout.partitionsOf("a")).containsExactly(0, 3, 6);
+        assertThat(layout.partitionsOf("c")).containsExactly(2, 5);
+    }
+
+    @Test
+    void loadSharded() {
+        SimpleBucketSchema schema = new SimpleBucketSchema();
+        MongoClient client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString(System.getProperty("sharded.uri", "mongodb://localhost:27017")))
+                .applyToClusterSettings(builder -> builder.serverSelectionTimeout(2, TimeUnit.SECONDS))
+                .codecRegistry(fromRegistries(schema.codecRegistry(), MongoClientSettings.getDefaultCodecRegistry()))
+                .build());
+
+        try {
+            Document hello = Mono.from(client.getDatabase("admin").runCommand(new Document("isMaster", 1)))
+                    .onErrorResume(e -> Mono.empty())
+                    .block();
+            assumeTrue(hello != null && "isdbgrid".equals(hello.getString("msg")), "no mongos available");
+
+            GribGenerator generator = GribGenerator.builder()
+                    .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                    .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                    .horizonDays(2)
+                    .resolutionHours(1)
+                    .intervalHours(6)
+                    .parameters(4)
+                    .grid(Grid.DENMARK)
+                    .build();
+
+            MongoCollection<SimpleBucket> collection = client.getDatabase("test")
+                    .getCollection("shardedTest", SimpleBucket.class);
+            Mono.from(collection.drop()).block();
+
+            ShardLayout layout = ShardPreSplitter.<GribRecord>builder()
+                    .client(client)
+                    .namespace(collection.getNamespace())
+                    .shardKey(schema.shardKey())
+                    .chunksPerShard(2)
+                    .build()
+                    .preSplit(generator)
+                    .block();
+            schema.indexModel(collection).block();
+
+            LoadRunner.<SimpleBucket, GribRecord>builder()
+                    .generator(generator)
+                    .collection(collection)
+                    .schema(schema)
+                    .batchSize(500)
+                    .concurrency(4)
+                    .shardLayout(layout)
+                    .shardConcurrency(2)
+                    .build()
+                    .load()
+                    .block();
+
+            assertThat(Mono.from(collection.countDocuments()).block())
+                    .isEqualTo(generator.recordCount() / generator.getParameters());
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package uk.dioxic.grib;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonDocument;
+import org.bson.codecs.configuration.CodecRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import reactor.util.function.Tuples;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.EncodingWriteTarget;
+import uk.dioxic.grib.loader.LoadRunner;
+import uk.dioxic.grib.loader.Sink;
+import uk.dioxic.grib.loader.WriteTarget;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.GribRecord;
+import uk.dioxic.grib.model.TimestampBucket;
+import uk.dioxic.grib.schema.TimestampBucketSchema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+/**
+ * Loads into the stand-in sinks, which need no server.
+ */
+public class SinkLoadTest {
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+            .horizonDays(1)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(3)
+            .grid(Grid.FOUR_POINT)
+            .build();
+
+    private final TimestampBucketSchema schema = new TimestampBucketSchema(false);
+
+    private final CodecRegistry codecRegistry =
+            fromRegistries(schema.codecRegistry(), MongoClientSettings.getDefaultCodecRegistry());
+
+    @ParameterizedTest
+    @EnumSource(value = Sink.class, names = {"NULL", "ENCODE", "MEMORY"})
+    void loadIntoSink(Sink sink) {
+        WriteTarget<TimestampBucket> target = sink.target(codecRegistry);
+
+        Long operations = LoadRunner.<TimestampBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(schema)
+                .writeTarget(target)
+                .batchSize(10)
+                .concurrency(2)
+                .build()
+                .load()
+                .block();
+
+        long buckets = generator.generate()
+                .map(record -> Tuples.of(record.getTs(), record.getLoc()))
+                .distinct()
+                .count()
+                .block();
+
+        assertThat(operations).isEqualTo(buckets);
+        if (target instanceof EncodingWriteTarget) {
+            EncodingWriteTarget<TimestampBucket> encoding = (EncodingWriteTarget<TimestampBucket>) target;
+            assertThat(encoding.getDocumentCount()).isEqualTo(operations);
+            assertThat(encoding.getBytes()).isPositive();
+            assertThat(encoding.getDocuments()).hasSize(sink == Sink.MEMORY ? operations.intValue() : 0);
+        }
+    }
+
+    @Test
+    void railsBuildSameBuckets() {
+        List<BsonDocument> single = buckets(0, 1);
+        List<BsonDocument> rails = buckets(3, 4);
+
+        assertThat(rails).hasSize(single.size());
+        assertThat(rails).containsExactlyInAnyOrderElementsOf(single);
+    }
+
+    /**
+     * Buckets stored by a load, without their generated ids.
+     */
+    private List<BsonDocument> buckets(int transformThreads, int partitions) {
+        WriteTarget<TimestampBucket> target = Sink.MEMORY.target(codecRegistry);
+
+        LoadRunner.<TimestampBucket, GribRecord>builder()
+                .generator(generator)
+                .schema(schema)
+                .writeTarget(target)
+                .batchSize(10)
+                .concurrency(2)
+                .partitions(partitions)
+                .transformThreads(transformThreads)
+                .build()
+                .load()
+                .block();
+
+        return ((EncodingWriteTarget<TimestampBucket>) target).getDocuments().stream()
+                .map(document -> {
+                    BsonDocument copy = new BsonDocument();
+                    copy.putAll(document);
+                    copy.remove("_id");
+                    return copy;
+                })
+                .collect(Collectors.toList());
+    }
+}
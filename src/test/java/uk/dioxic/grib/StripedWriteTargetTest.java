@@ -0,0 +1,58 @@
+package uk.dioxic.grib;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import uk.dioxic.grib.loader.StripedWriteTarget;
+import uk.dioxic.grib.loader.WriteTarget;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class StripedWriteTargetTest {
+
+    private final List<WriteModel<Document>> batch = List.of(new InsertOneModel<>(new Document()));
+    private final List<String> writes = new ArrayList<>();
+
+    private WriteTarget<Document> target(String name, boolean complete) {
+        return (requests, options) -> {
+            writes.add(name);
+            return complete ? Mono.just(BulkWriteResult.unacknowledged()) : Mono.never();
+        };
+    }
+
+    @Test
+    void roundRobin() {
+        StripedWriteTarget<Document> striped = new StripedWriteTarget<>(List.of("a", "b", "c"),
+                List.of(target("a", true), target("b", true), target("c", true)),
+                StripedWriteTarget.Selection.ROUND_ROBIN);
+
+        for (int i = 0; i < 4; i++) {
+            Mono.from(striped.bulkWrite(batch, new BulkWriteOptions())).block();
+        }
+
+        assertThat(writes).containsExactly("a", "b", "c", "a");
+    }
+
+    @Test
+    void leastOutstanding() {
+        StripedWriteTarget<Document> striped = new StripedWriteTarget<>(List.of("slow", "fast"),
+                List.of(target("slow", false), target("fast", true)),
+                StripedWriteTarget.Selection.LEAST_OUTSTANDING);
+
+        Mono.from(striped.bulkWrite(batch, new BulkWriteOptions())).subscribe();
+        for (int i = 0; i < 3; i++) {
+            Mono.from(striped.bulkWrite(batch, new BulkWriteOptions())).block();
+        }
+
+        assertThat(writes).containsExactly("slow", "fast", "fast", "fast");
+        assertThat(striped.getOutstanding(0)).isEqualTo(1);
+        assertThat(striped.getOutstanding(1)).isZero();
+    }
+}
@@ -0,0 +1,110 @@
+package uk.dioxic.grib;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+import uk.dioxic.grib.codec.TileBucketCodec;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.EncodingWriteTarget;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.Point;
+import uk.dioxic.grib.model.TileBucket;
+import uk.dioxic.grib.model.Tiling;
+import uk.dioxic.grib.schema.SchemaCandidates;
+import uk.dioxic.grib.schema.TileBucketSchema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static uk.dioxic.grib.SchemaTestSupport.*;
+
+public class TileBucketSchemaTest {
+
+    private final Tiling tiling = new Tiling(0.25, 4, 4);
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+            .horizonDays(2)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(4)
+            .grid(Grid.DENMARK)
+            .build();
+
+    @Test
+    void tiling() {
+        Point point = new Point(8.75, 55.5);
+
+        assertThat(tiling.point(tiling.tileId(point), tiling.offset(point))).isEqualTo(point);
+        assertThat(tiling.origin(tiling.tileId(point))).isEqualTo(new Point(8, 55));
+        assertThat(tiling.offset(point)).isEqualTo(3 * 4 + 2);
+        assertThat(tiling.tileId(new Point(8.75, 56))).isEqualTo(tiling.tileId(point) + 1);
+        assertThat(tiling.box(tiling.tileId(point))[2]).containsExactly(8.875, 55.875);
+        assertThatThrownBy(() -> tiling.tileId(new Point(8.1, 55))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void bucketPerTile() {
+        TileBucketSchema schema = new TileBucketSchema(tiling);
+        List<WriteModel<TileBucket>> models = schema.writeModel(schema.source(generator), generator).collectList().block();
+
+        // denmark is 16 x 8 points, i.e. 4 x 2 whole tiles
+        assertThat(models).hasSize((int) (generator.recordCount() / generator.getParameters() / tiling.points()));
+
+        for (WriteModel<TileBucket> model : models) {
+            TileBucket bucket = ((InsertOneModel<TileBucket>) model).getDocument();
+            for (int offset = 0; offset < bucket.getPoints(); offset++) {
+                assertThat(bucket.hasPoint(offset)).isTrue();
+                assertThat(bucket.value(offset, 3)).isEqualTo(generator.value(bucket.getTs(), bucket.getCalcTs(),
+                        Grid.DENMARK.index(tiling.point(bucket.getTile(), offset)), 3));
+            }
+        }
+    }
+
+    @Test
+    void partialTile() {
+        GribGenerator fourPoint = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-01T06:00:00"))
+                .horizonDays(1)
+                .resolutionHours(1)
+                .intervalHours(6)
+                .parameters(2)
+                .grid(Grid.FOUR_POINT)
+                .build();
+        TileBucketSchema schema = new TileBucketSchema(tiling);
+
+        TileBucket bucket = firstDocument(schema, fourPoint);
+
+        assertThat(bucket.getPoints()).isEqualTo(16);
+        assertThat(bucket.hasPoint(0)).isTrue();
+        assertThat(bucket.hasPoint(5)).isTrue();
+        assertThat(bucket.hasPoint(2)).isFalse();
+        assertThat(schema.getCsvConverter().getLine(bucket).split("\n")).hasSize(4);
+    }
+
+    @Test
+    void codecRoundTrip() {
+        TileBucket bucket = firstDocument(new TileBucketSchema(tiling), generator);
+        TileBucketCodec codec = new TileBucketCodec();
+        RawBsonDocument document = encode(codec, bucket);
+
+        assertThat(document.getDocument("box").getString("type").getValue()).isEqualTo("Polygon");
+        assertThat(document.getBinary("values").getData()).hasSize(tiling.points() * bucket.getParameters() * Float.BYTES);
+
+        assertThat(decode(codec, document)).isEqualTo(bucket);
+    }
+
+    @Test
+    void fewerDocumentsAndBytes() {
+        EncodingWriteTarget<?> tiles = encodeLoad(SchemaCandidates.TILE_BUCKET.getSchema(), generator);
+        EncodingWriteTarget<?> simple = encodeLoad(SchemaCandidates.SIMPLE_BUCKET.getSchema(), generator);
+
+        assertThat(tiles.getDocumentCount() * tiling.points()).isEqualTo(simple.getDocumentCount());
+        assertThat(tiles.getBytes() * 3).isLessThan(simple.getBytes());
+    }
+}
@@ -0,0 +1,59 @@
+package uk.dioxic.grib;
+
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.RawBsonDocument;
+import org.junit.jupiter.api.Test;
+import uk.dioxic.grib.codec.TimeSeriesCodec;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.SimpleBucket;
+import uk.dioxic.grib.schema.TimeSeriesSchema;
+import uk.dioxic.grib.schema.TimeSeriesSchema.Granularity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static uk.dioxic.grib.SchemaTestSupport.*;
+
+public class TimeSeriesSchemaTest {
+
+    private final GribGenerator generator = GribGenerator.builder()
+            .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+            .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+            .horizonDays(2)
+            .resolutionHours(1)
+            .intervalHours(6)
+            .parameters(3)
+            .grid(Grid.FOUR_POINT)
+            .build();
+
+    private final TimeSeriesSchema schema = new TimeSeriesSchema(Granularity.HOURS);
+
+    @Test
+    void measurementPerLocation() {
+        List<WriteModel<SimpleBucket>> models = schema.writeModel(schema.source(generator), generator).collectList().block();
+
+        assertThat(models).hasSize((int) (generator.recordCount() / generator.getParameters()));
+    }
+
+    @Test
+    void codecRoundTrip() {
+        SimpleBucket measurement = firstDocument(schema, generator);
+        TimeSeriesCodec codec = new TimeSeriesCodec();
+        RawBsonDocument document = encode(codec, measurement);
+
+        BsonDocument meta = document.getDocument("meta");
+        assertThat(meta.keySet()).containsExactly("loc", "calcTs", "set");
+        assertThat(meta.getArray("set")).isEqualTo(new BsonArray(List.of(new BsonInt32(0), new BsonInt32(1), new BsonInt32(2))));
+        assertThat(document.getObjectId("_id").getValue()).isEqualTo(measurement.getId());
+        assertThat(document.getDateTime("ts")).isNotNull();
+        assertThat(document.getDocument("parameters").getDouble("1").getValue())
+                .isEqualTo((double) measurement.getParameters().get("1"));
+
+        assertThat(decode(codec, document)).isEqualTo(measurement);
+    }
+}
@@ -0,0 +1,97 @@
+package uk.dioxic.grib;
+
+import com.mongodb.ConnectionString;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.reactivestreams.client.MongoClient;
+import com.mongodb.reactivestreams.client.MongoClients;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.DecoderContext;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import uk.dioxic.grib.codec.TimestampBucketCodec;
+import uk.dioxic.grib.generator.GribGenerator;
+import uk.dioxic.grib.loader.WriteModelEncoder;
+import uk.dioxic.grib.model.Grid;
+import uk.dioxic.grib.model.TimestampBucket;
+import uk.dioxic.grib.schema.TimestampBucketSchema;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.bson.codecs.configuration.CodecRegistries.fromRegistries;
+
+public class WriteModelEncoderTest {
+
+    private static MongoClient client;
+
+    @BeforeAll
+    static void setup() {
+        TimestampBucketSchema schema = new TimestampBucketSchema(false);
+        client = MongoClients.create(MongoClientSettings.builder()
+                .applyConnectionString(new ConnectionString("mongodb://localhost:27017"))
+                .codecRegistry(fromRegistries(schema.codecRegistry(), MongoClientSettings.getDefaultCodecRegistry()))
+                .build());
+    }
+
+    @AfterAll
+    static void teardown() {
+        client.close();
+    }
+
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void encodeTest(boolean upsert) {
+        GribGenerator generator = GribGenerator.builder()
+                .startDate(LocalDateTime.parse("2020-01-01T00:00:00"))
+                .endDate(LocalDateTime.parse("2020-01-02T00:00:00"))
+                .horizonDays(1)
+                .resolutionHours(1)
+                .intervalHours(6)
+                .parameters(3)
+                .grid(Grid.FOUR_POINT)
+                .build();
+
+        MongoCollection<TimestampBucket> collection = client.getDatabase("test")
+                .getCollection("encoderTest", TimestampBucket.class);
+        WriteModelEncoder<TimestampBucket> encoder = new WriteModelEncoder<>(collection);
+        TimestampBucketSchema schema = new TimestampBucketSchema(upsert);
+
+        List<WriteModel<TimestampBucket>> models = schema.writeModel(generator.generate(), generator).collectList().block();
+        assertThat(models).isNotEmpty();
+
+        for (WriteModel<TimestampBucket> model : models) {
+            WriteModel<TimestampBucket> encoded = encoder.encode(model);
+
+            if (upsert) {
+                UpdateOneModel<TimestampBucket> update = (UpdateOneModel<TimestampBucket>) model;
+                UpdateOneModel<?> encodedUpdate = (UpdateOneModel<?>) encoded;
+                assertThat(encodedUpdate.getFilter()).isInstanceOf(RawBsonDocument.class);
+                assertThat(encodedUpdate.getFilter())
+                        .isEqualTo(update.getFilter().toBsonDocument(TimestampBucket.class, collection.getCodecRegistry()));
+                assertThat(encodedUpdate.getUpdate())
+                        .isEqualTo(update.getUpdate().toBsonDocument(TimestampBucket.class, collection.getCodecRegistry()));
+                assertThat(encodedUpdate.getOptions().isUpsert()).isTrue();
+            } else {
+                TimestampBucket bucket = ((InsertOneModel<TimestampBucket>) model).getDocument();
+                Object document = ((InsertOneModel<?>) encoded).getDocument();
+                assertThat(document).isInstanceOf(RawBsonDocument.class);
+
+                TimestampBucket decoded = new TimestampBucketCodec().decode(((RawBsonDocument) document).asBsonReader(),
+                        DecoderContext.builder().build());
+                assertThat(decoded.getTs()).isEqualTo(bucket.getTs());
+                assertThat(decoded.getLocation()).isEqualTo(bucket.getLocation());
+                assertThat(decoded.getCalculations()).hasSameSizeAs(bucket.getCalculations());
+            }
+        }
+
+        assertThat(encoder.getEncodeCount()).isEqualTo(models.size());
+        assertThat(encoder.getEncodeNanos()).isPositive();
+    }
+}
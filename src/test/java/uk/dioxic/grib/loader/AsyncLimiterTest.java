@@ -0,0 +1,92 @@
+package uk.dioxic.grib.loader;
+
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AsyncLimiterTest {
+
+    @Test
+    void grantedInArrivalOrder() {
+        AsyncLimiter limiter = new AsyncLimiter(10);
+        AtomicInteger granted = new AtomicInteger();
+
+        limiter.acquire(8).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        limiter.acquire(5).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        // would fit, but waits behind the earlier request
+        limiter.acquire(1).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        assertThat(granted).hasValue(1);
+
+        limiter.release(8);
+        assertThat(granted).hasValue(3);
+        assertThat(limiter.getInFlight()).isEqualTo(6);
+    }
+
+    @Test
+    void oversizedGrantedOnceNothingHeld() {
+        AsyncLimiter limiter = new AsyncLimiter(10);
+        AtomicInteger granted = new AtomicInteger();
+
+        limiter.acquire(4).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        limiter.acquire(25).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        assertThat(granted).hasValue(1);
+
+        limiter.release(4);
+        assertThat(granted).hasValue(2);
+        assertThat(limiter.getInFlight()).isEqualTo(25);
+
+        limiter.acquire(1).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        assertThat(granted).hasValue(2);
+    }
+
+    @Test
+    void lowerLimitAppliesOnRelease() {
+        AsyncLimiter limiter = new AsyncLimiter(4);
+        AtomicInteger granted = new AtomicInteger();
+
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire().subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        }
+        limiter.setLimit(2);
+        limiter.acquire().subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+
+        limiter.release(2);
+        assertThat(granted).hasValue(4);
+        limiter.release();
+        assertThat(granted).hasValue(5);
+    }
+
+    @Test
+    void cancelledWaiterLeavesQueue() {
+        AsyncLimiter limiter = new AsyncLimiter(10);
+        AtomicInteger granted = new AtomicInteger();
+
+        limiter.acquire(10).block();
+        Disposable cancelled = limiter.acquire(10).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        limiter.acquire(5).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+
+        cancelled.dispose();
+        limiter.release(10);
+
+        assertThat(granted).hasValue(1);
+        assertThat(limiter.getInFlight()).isEqualTo(5);
+    }
+
+    @Test
+    void grantedWaiterKeepsPermitsAfterSignal() {
+        AsyncLimiter limiter = new AsyncLimiter(10);
+        AtomicInteger granted = new AtomicInteger();
+
+        limiter.acquire(10).block();
+        Disposable waiter = limiter.acquire(10).subscribe(v -> {}, e -> {}, granted::incrementAndGet);
+        limiter.release(10);
+        waiter.dispose();
+
+        // the grant was delivered, so the permits are the subscriber's to release
+        assertThat(granted).hasValue(1);
+        assertThat(limiter.getInFlight()).isEqualTo(10);
+    }
+}
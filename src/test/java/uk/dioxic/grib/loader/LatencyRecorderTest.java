@@ -0,0 +1,62 @@
+package uk.dioxic.grib.loader;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.HistogramLogReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class LatencyRecorderTest {
+
+    @Test
+    void percentilesInMillis() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        for (int i = 1; i <= 1000; i++) {
+            recorder.record(i * 1_000_000L);
+        }
+
+        String[] columns = LatencyRecorder.percentiles(recorder.nextInterval()).split("\t");
+
+        assertThat(columns).hasSize(5);
+        assertThat(Double.parseDouble(columns[0])).isCloseTo(500, within(1.0));
+        assertThat(Double.parseDouble(columns[1])).isCloseTo(900, within(1.0));
+        assertThat(Double.parseDouble(columns[2])).isCloseTo(990, within(1.0));
+        assertThat(Double.parseDouble(columns[3])).isCloseTo(999, within(1.0));
+        assertThat(Double.parseDouble(columns[4])).isCloseTo(1000, within(1.0));
+    }
+
+    @Test
+    void intervalsAddUpToTotal() {
+        LatencyRecorder recorder = new LatencyRecorder();
+        recorder.record(1_000_000);
+        recorder.record(2_000_000);
+        assertThat(recorder.nextInterval().getTotalCount()).isEqualTo(2);
+
+        recorder.record(50_000_000);
+        Histogram interval = recorder.nextInterval();
+
+        assertThat(interval.getTotalCount()).isEqualTo(1);
+        assertThat(recorder.getTotal().getTotalCount()).isEqualTo(3);
+        assertThat(recorder.getTotal().getMaxValue()).isEqualTo(interval.getMaxValue());
+    }
+
+    @Test
+    void intervalsLogged(@TempDir Path dir) throws Exception {
+        Path log = dir.resolve("latency.hlog");
+        try (LatencyRecorder recorder = new LatencyRecorder(log)) {
+            recorder.record(1_000_000);
+            recorder.nextInterval();
+            recorder.record(3_000_000);
+            recorder.nextInterval();
+        }
+
+        HistogramLogReader reader = new HistogramLogReader(log.toFile());
+        assertThat(((Histogram) reader.nextIntervalHistogram()).getTotalCount()).isEqualTo(1);
+        assertThat(((Histogram) reader.nextIntervalHistogram()).getTotalCount()).isEqualTo(1);
+        assertThat(reader.nextIntervalHistogram()).isNull();
+    }
+}